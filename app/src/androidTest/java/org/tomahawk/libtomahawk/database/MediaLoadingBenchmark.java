@@ -0,0 +1,206 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tomahawk.tomahawk_android.utils.MediaWrapper;
+import org.videolan.libvlc.util.AndroidUtil;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how long it takes to load all media items from the media table. Compares the legacy
+ * OFFSET pagination to the keyset pagination of {@link DatabaseHelper#getMedias()} and to the
+ * location to lastModified projection of {@link DatabaseHelper#getMediaLastModifieds()}.
+ *
+ * The benchmark adds ROW_COUNT media items to the app's real database and removes them again
+ * afterwards. Run it with "./gradlew connectedAndroidTest" and read the results from logcat
+ * ("adb logcat -s MediaLoadingBenchmark").
+ */
+@RunWith(AndroidJUnit4.class)
+public class MediaLoadingBenchmark {
+
+    private static final String TAG = MediaLoadingBenchmark.class.getSimpleName();
+
+    private static final int ROW_COUNT = 20000;
+
+    private static final int WARMUP_RUNS = 1;
+
+    private static final int MEASURED_RUNS = 5;
+
+    // The page size that the legacy OFFSET pagination used
+    private static final int LEGACY_CHUNK_SIZE = 50;
+
+    private static final String LOCATION_PREFIX = "file:///sdcard/tomahawk-benchmark/";
+
+    private final Set<String> mLocations = new HashSet<>();
+
+    private SQLiteDatabase mLegacyDatabase;
+
+    private interface Loader {
+
+        int load();
+    }
+
+    @Before
+    public void setUp() {
+        List<MediaWrapper> medias = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            String location = LOCATION_PREFIX + String.format(Locale.US, "%06d", i) + ".mp3";
+            mLocations.add(location);
+            medias.add(new MediaWrapper(Uri.parse(location), 0, 180000 + i,
+                    MediaWrapper.TYPE_AUDIO, null, "Track " + i, "Artist " + (i / 100),
+                    "Genre " + (i % 20), "Album " + (i / 10), "Album Artist " + (i / 100), 0, 0,
+                    null, 0, -1, i % 10 + 1, 1, 1400000000000L + i));
+        }
+        DatabaseHelper.get().addMedias(medias);
+        mLegacyDatabase = new TomahawkSQLiteHelper(InstrumentationRegistry.getTargetContext())
+                .getReadableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        if (mLegacyDatabase != null) {
+            mLegacyDatabase.close();
+        }
+        DatabaseHelper.get().removeMedias(mLocations);
+    }
+
+    @Test
+    public void loadMedias() {
+        HashMap<String, MediaWrapper> medias = DatabaseHelper.get().getMedias();
+        HashMap<String, Long> lastModifieds = DatabaseHelper.get().getMediaLastModifieds();
+        assertEquals(legacyGetMedias(), medias.size());
+        assertEquals(medias.size(), lastModifieds.size());
+        for (String location : mLocations) {
+            assertTrue(medias.containsKey(location));
+            assertTrue(lastModifieds.containsKey(location));
+        }
+
+        long legacyTime = measure(new Loader() {
+            @Override
+            public int load() {
+                return legacyGetMedias();
+            }
+        });
+        long getMediasTime = measure(new Loader() {
+            @Override
+            public int load() {
+                return DatabaseHelper.get().getMedias().size();
+            }
+        });
+        long getMediaLastModifiedsTime = measure(new Loader() {
+            @Override
+            public int load() {
+                return DatabaseHelper.get().getMediaLastModifieds().size();
+            }
+        });
+        Log.d(TAG, "Loaded " + medias.size() + " media items, best of " + MEASURED_RUNS
+                + " runs. OFFSET paging (" + LEGACY_CHUNK_SIZE + " per page): " + legacyTime
+                + "ms, getMedias: " + getMediasTime + "ms, getMediaLastModifieds: "
+                + getMediaLastModifiedsTime + "ms");
+    }
+
+    /**
+     * @return the best time in ms of MEASURED_RUNS runs of the given {@link Loader}
+     */
+    private static long measure(Loader loader) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            loader.load();
+        }
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long startTime = SystemClock.elapsedRealtime();
+            loader.load();
+            bestTime = Math.min(bestTime, SystemClock.elapsedRealtime() - startTime);
+        }
+        return bestTime;
+    }
+
+    /**
+     * Loads all media items like DatabaseHelper.getMedias() did before it has been switched to
+     * keyset pagination.
+     *
+     * @return the number of loaded media items
+     */
+    private int legacyGetMedias() {
+        HashMap<String, MediaWrapper> medias = new HashMap<>();
+        int chunkCount = 0;
+        int count;
+        do {
+            Cursor cursor = mLegacyDatabase.rawQuery(String.format(Locale.US,
+                    "SELECT %s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s FROM %s"
+                            + " LIMIT %d OFFSET %d",
+                    TomahawkSQLiteHelper.MEDIA_LOCATION, //0 string
+                    TomahawkSQLiteHelper.MEDIA_TIME, //1 long
+                    TomahawkSQLiteHelper.MEDIA_LENGTH, //2 long
+                    TomahawkSQLiteHelper.MEDIA_TYPE, //3 int
+                    TomahawkSQLiteHelper.MEDIA_TITLE, //4 string
+                    TomahawkSQLiteHelper.MEDIA_ARTIST, //5 string
+                    TomahawkSQLiteHelper.MEDIA_GENRE, //6 string
+                    TomahawkSQLiteHelper.MEDIA_ALBUM, //7 string
+                    TomahawkSQLiteHelper.MEDIA_ALBUMARTIST, //8 string
+                    TomahawkSQLiteHelper.MEDIA_WIDTH, //9 int
+                    TomahawkSQLiteHelper.MEDIA_HEIGHT, //10 int
+                    TomahawkSQLiteHelper.MEDIA_ARTWORKURL, //11 string
+                    TomahawkSQLiteHelper.MEDIA_AUDIOTRACK, //12 int
+                    TomahawkSQLiteHelper.MEDIA_SPUTRACK, //13 int
+                    TomahawkSQLiteHelper.MEDIA_TRACKNUMBER, // 14 int
+                    TomahawkSQLiteHelper.MEDIA_DISCNUMBER, //15 int
+                    TomahawkSQLiteHelper.MEDIA_LASTMODIFIED, //16 long
+                    TomahawkSQLiteHelper.TABLE_MEDIA,
+                    LEGACY_CHUNK_SIZE,
+                    chunkCount * LEGACY_CHUNK_SIZE), null);
+            if (cursor.moveToFirst()) {
+                do {
+                    Uri uri = AndroidUtil.LocationToUri(cursor.getString(0));
+                    MediaWrapper media = new MediaWrapper(uri, cursor.getLong(1),
+                            cursor.getLong(2), cursor.getInt(3), null, cursor.getString(4),
+                            cursor.getString(5), cursor.getString(6), cursor.getString(7),
+                            cursor.getString(8), cursor.getInt(9), cursor.getInt(10),
+                            cursor.getString(11), cursor.getInt(12), cursor.getInt(13),
+                            cursor.getInt(14), cursor.getInt(15), cursor.getLong(16));
+                    medias.put(media.getUri().toString(), media);
+                } while (cursor.moveToNext());
+            }
+            count = cursor.getCount();
+            cursor.close();
+            chunkCount++;
+        } while (count == LEGACY_CHUNK_SIZE);
+        return medias.size();
+    }
+}
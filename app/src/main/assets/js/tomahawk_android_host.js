@@ -0,0 +1,141 @@
+/* === This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ */
+
+/**
+ * Hosts several plugins in one WebView. Every plugin is being loaded into its own iframe, so that
+ * it has its own global scope, while the libraries that have been loaded by the host page (RSVP and
+ * CryptoJS) are being shared by all of them.
+ */
+var TomahawkHost = {
+
+    frames: {},
+
+    /**
+     * The methods of the native TomahawkHostBridge mapped to their number of arguments, not
+     * counting the frame's key. The native side can only match methods with the exact number of
+     * arguments.
+     */
+    bridgeMethods: {
+        resolverDataString: 0,
+        log: 1,
+        nativeReportCapabilities: 1,
+        addCustomUrlHandler: 3,
+        readBase64: 1,
+        localStorageSetItem: 2,
+        localStorageGetItem: 1,
+        localStorageRemoveItem: 1,
+        keys: 0,
+        values: 0,
+        reportScriptJobResults: 1,
+        registerScriptPlugin: 2,
+        unregisterScriptPlugin: 2,
+        invokeNativeScriptJob: 3,
+        readHttpResponse: 3,
+        releaseHttpResponse: 1
+    },
+
+    /**
+     * @returns the used JS heap size in KB or -1, if the WebView doesn't expose it
+     */
+    usedHeapSize: function () {
+        if (window.performance && window.performance.memory) {
+            return Math.round(window.performance.memory.usedJSHeapSize / 1024);
+        }
+        return -1;
+    },
+
+    /**
+     * Creates the object that the plugin with the given key knows as "Tomahawk". All of its
+     * methods pass the key on to the native side, so that it knows which plugin is calling.
+     */
+    createBridge: function (key) {
+        var bridge = {};
+        var createMethod = function (methodName, argCount) {
+            return function (a, b, c) {
+                switch (argCount) {
+                    case 0:
+                        return TomahawkHostBridge[methodName](key);
+                    case 1:
+                        return TomahawkHostBridge[methodName](key, a);
+                    case 2:
+                        return TomahawkHostBridge[methodName](key, a, b);
+                    default:
+                        return TomahawkHostBridge[methodName](key, a, b, c);
+                }
+            };
+        };
+        for (var methodName in this.bridgeMethods) {
+            if (this.bridgeMethods.hasOwnProperty(methodName)) {
+                bridge[methodName] = createMethod(methodName, this.bridgeMethods[methodName]);
+            }
+        }
+        return bridge;
+    },
+
+    /**
+     * Loads the given scripts into a new iframe. Calls TomahawkHostBridge.onFrameLoaded once all of
+     * them have been evaluated.
+     *
+     * @param key     the key that identifies the plugin
+     * @param title   the title of the iframe's document
+     * @param scripts Array of the urls of the plugin's scripts
+     */
+    addFrame: function (key, title, scripts) {
+        var iframe = document.createElement("iframe");
+        iframe.style.display = "none";
+        document.body.appendChild(iframe);
+        this.frames[key] = iframe;
+        var quotedKey = JSON.stringify(key);
+        var html = "<!DOCTYPE html><html><head><title>" + title + "</title></head><body>"
+            + "<script type=\"text/javascript\">"
+            + "var RSVP = parent.RSVP;"
+            + "var CryptoJS = parent.CryptoJS;"
+            + "var Tomahawk = parent.TomahawkHost.createBridge(" + quotedKey + ");"
+            + "<\/script>";
+        for (var i = 0; i < scripts.length; i++) {
+            html += "<script src=\"" + scripts[i] + "\" type=\"text/javascript\"><\/script>";
+        }
+        html += "<script type=\"text/javascript\">"
+            + "parent.TomahawkHost.onFrameLoaded(" + quotedKey + ", "
+            + this.usedHeapSize() + ");"
+            + "<\/script></body></html>";
+        var doc = iframe.contentWindow.document;
+        doc.open();
+        doc.write(html);
+        doc.close();
+    },
+
+    onFrameLoaded: function (key, heapSizeBefore) {
+        var heapSizeAfter = this.usedHeapSize();
+        var memoryUsage = -1;
+        if (heapSizeBefore >= 0 && heapSizeAfter >= 0) {
+            memoryUsage = Math.max(0, heapSizeAfter - heapSizeBefore);
+        }
+        TomahawkHostBridge.onFrameLoaded(key, memoryUsage);
+    },
+
+    /**
+     * Evaluates the given code in the global scope of the plugin with the given key. Calls
+     * TomahawkHostBridge.onEvaluateFailed if there's no frame with the given key.
+     */
+    evaluate: function (key, code) {
+        var iframe = this.frames[key];
+        if (iframe) {
+            iframe.contentWindow.eval(code);
+        } else {
+            TomahawkHostBridge.onEvaluateFailed(key);
+        }
+    }
+};
@@ -44,6 +44,51 @@ Tomahawk.Collection.revision = function (params) {
     return Tomahawk.NativeScriptJobManager.invoke("collectionRevision", params);
 };
 
+/**
+ * Large response bodies of native requests aren't being inlined into the request's result, but kept
+ * on the native side. They are being pulled through the bridge in chunks, which is a lot cheaper
+ * than escaping them and passing them through a "javascript:" url.
+ */
+Tomahawk.NativeScriptJobManager.httpResponseChunkSize = 1024 * 1024;
+
+/**
+ * @returns the response body with the given handle or null, if it has expired or is unknown
+ */
+Tomahawk.NativeScriptJobManager.readHttpResponse = function (handle, length) {
+    var chunks = [];
+    var offset = 0;
+    while (offset < length) {
+        // Chunks can be shorter than requested, since surrogate pairs aren't being split
+        var chunk = Tomahawk.readHttpResponse(handle, offset, this.httpResponseChunkSize);
+        if (chunk === null || chunk === undefined || chunk.length === 0) {
+            Tomahawk.releaseHttpResponse(handle);
+            return null;
+        }
+        chunks.push(chunk);
+        offset += chunk.length;
+    }
+    Tomahawk.releaseHttpResponse(handle);
+    return chunks.join("");
+};
+
+Tomahawk.NativeScriptJobManager._reportNativeScriptJobResult =
+    Tomahawk.NativeScriptJobManager.reportNativeScriptJobResult;
+
+Tomahawk.NativeScriptJobManager.reportNativeScriptJobResult = function (requestId, result) {
+    if (result && result.responseTextHandle !== undefined) {
+        result.responseText =
+            this.readHttpResponse(result.responseTextHandle, result.responseTextLength);
+        delete result.responseTextHandle;
+        delete result.responseTextLength;
+        if (result.responseText === null) {
+            Tomahawk.log("Couldn't read the response body of native request " + requestId);
+            this.reportNativeScriptJobError(requestId, result);
+            return;
+        }
+    }
+    this._reportNativeScriptJobResult(requestId, result);
+};
+
 var encodeParamsToNativeFunctions = function (param) {
     return JSON.stringify(param);
 };
@@ -65,4 +110,18 @@ Tomahawk.error = function (msg, obj) {
     });
     stack = stack.splice(stack[0] == 'Error' ? 2 : 1).join("\n");
     console.error(msg + objString + "\n" + stack + "\n");
-};
\ No newline at end of file
+};
+
+/**
+ * Invokes several ScriptJobs at once. Used by the Java side to coalesce jobs, so that it only has
+ * to evaluate JavaScript once per batch.
+ *
+ * @param invocations Array of objects containing requestId, objectId, methodName and params
+ */
+Tomahawk.PluginManager.invokeBatch = function (invocations) {
+    for (var i = 0; i < invocations.length; i++) {
+        var invocation = invocations[i];
+        this.invoke(invocation.requestId, invocation.objectId, invocation.methodName,
+            invocation.params);
+    }
+};
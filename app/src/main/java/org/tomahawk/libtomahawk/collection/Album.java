@@ -56,7 +56,7 @@ public class Album extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * If none exists in our static {@link ConcurrentHashMap} yet, construct and add it.
      */
     public static Album get(String albumName, Artist artist) {
-        Cacheable cacheable = get(Album.class, getCacheKey(albumName, artist.getName()));
+        Cacheable cacheable = get(Album.class, CacheKey.obtain(albumName, artist.getName()));
         return cacheable != null ? (Album) cacheable : new Album(albumName, artist);
     }
 
@@ -47,7 +47,7 @@ public class Artist extends Cacheable implements AlphaComparable {
      * construct and add it.
      */
     public static Artist get(String artistName) {
-        Cacheable cacheable = get(Artist.class, getCacheKey(artistName));
+        Cacheable cacheable = get(Artist.class, CacheKey.obtain(artistName));
         return cacheable != null ? (Artist) cacheable : new Artist(artistName);
     }
 
@@ -0,0 +1,62 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.collection;
+
+/**
+ * A cache engine stores the {@link Cacheable}s of a single class. See {@link
+ * Cacheable#setCacheEngine(Class, CacheEngine)}.
+ */
+public interface CacheEngine {
+
+    class Stats {
+
+        public long hits;
+
+        public long misses;
+
+        public long evictions;
+
+        public int size;
+
+        public int pinned;
+
+        @Override
+        public String toString() {
+            return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions
+                    + ", size: " + size + ", pinned: " + pinned;
+        }
+    }
+
+    /**
+     * @param cacheKey either a stored {@link CacheKey} or a composite one that is equal to it.
+     *                 Composite keys must never be stored.
+     */
+    Cacheable get(CacheKey cacheKey);
+
+    void put(CacheKey cacheKey, Cacheable cacheable);
+
+    /**
+     * Makes sure that the given {@link Cacheable} is never evicted until it has been unpinned as
+     * often as it has been pinned.
+     */
+    void pin(Cacheable cacheable);
+
+    void unpin(Cacheable cacheable);
+
+    Stats getStats();
+}
@@ -0,0 +1,227 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.collection;
+
+/**
+ * The key of a {@link Cacheable} in its {@link CacheEngine}.
+ *
+ * The keys that are being stored in a {@link CacheEngine} are immutable and wrap the String cache
+ * key (see {@link #of(String)}). To look up a {@link Cacheable} without building its String cache
+ * key first, a composite key can be obtained from its fields (see {@link #obtain(Object)}). Its
+ * hash code is equal to the one of the String that {@link Cacheable#getCacheKey(Object...)} would
+ * build from the same fields, and {@link #equals(Object)} compares the fields char by char against
+ * the String of a stored key. Every thread reuses its own composite CacheKey instance, so looking
+ * up an existing {@link Cacheable} doesn't allocate anything.
+ *
+ * A CacheKey is only ever equal to another CacheKey, never to a String.
+ */
+public final class CacheKey {
+
+    private static final String SEPARATOR = "\t\t";
+
+    private static final int MAX_FIELDS = 5;
+
+    private static final ThreadLocal<CacheKey> sThreadLocalKey = new ThreadLocal<CacheKey>() {
+        @Override
+        protected CacheKey initialValue() {
+            return new CacheKey();
+        }
+    };
+
+    // The String cache key, if this is a stored key. null if this is a composite key.
+    private final String mString;
+
+    private final Object[] mFields;
+
+    private int mFieldCount;
+
+    private int mHashCode;
+
+    private CacheKey() {
+        mString = null;
+        mFields = new Object[MAX_FIELDS];
+    }
+
+    private CacheKey(String string) {
+        mString = string;
+        mFields = null;
+        mHashCode = string.hashCode();
+    }
+
+    /**
+     * @return a new immutable CacheKey for the given String cache key, which can be stored
+     */
+    public static CacheKey of(String cacheKey) {
+        return new CacheKey(cacheKey);
+    }
+
+    /**
+     * @return this thread's CacheKey instance, set to the given field. Only valid until the next
+     * call to one of the obtain methods on the same thread, so it must never be stored.
+     */
+    public static CacheKey obtain(Object f0) {
+        CacheKey key = sThreadLocalKey.get();
+        key.mFields[0] = f0;
+        key.mFieldCount = 1;
+        key.computeHashCode();
+        return key;
+    }
+
+    public static CacheKey obtain(Object f0, Object f1) {
+        CacheKey key = sThreadLocalKey.get();
+        key.mFields[0] = f0;
+        key.mFields[1] = f1;
+        key.mFieldCount = 2;
+        key.computeHashCode();
+        return key;
+    }
+
+    public static CacheKey obtain(Object f0, Object f1, Object f2) {
+        CacheKey key = sThreadLocalKey.get();
+        key.mFields[0] = f0;
+        key.mFields[1] = f1;
+        key.mFields[2] = f2;
+        key.mFieldCount = 3;
+        key.computeHashCode();
+        return key;
+    }
+
+    public static CacheKey obtain(Object f0, Object f1, Object f2, Object f3) {
+        CacheKey key = sThreadLocalKey.get();
+        key.mFields[0] = f0;
+        key.mFields[1] = f1;
+        key.mFields[2] = f2;
+        key.mFields[3] = f3;
+        key.mFieldCount = 4;
+        key.computeHashCode();
+        return key;
+    }
+
+    public static CacheKey obtain(Object f0, Object f1, Object f2, Object f3, Object f4) {
+        CacheKey key = sThreadLocalKey.get();
+        key.mFields[0] = f0;
+        key.mFields[1] = f1;
+        key.mFields[2] = f2;
+        key.mFields[3] = f3;
+        key.mFields[4] = f4;
+        key.mFieldCount = 5;
+        key.computeHashCode();
+        return key;
+    }
+
+    /**
+     * Builds the String cache key for the given fields. null fields are skipped, Strings are
+     * used as they are and Booleans are represented as "1" or "0".
+     */
+    public static String toString(Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            String field = fieldToString(fields[i]);
+            if (field != null) {
+                if (i > 0) {
+                    sb.append(SEPARATOR);
+                }
+                sb.append(field);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String fieldToString(Object o) {
+        if (o instanceof String) {
+            return (String) o;
+        } else if (o instanceof Boolean) {
+            return ((Boolean) o) ? "1" : "0";
+        }
+        return null;
+    }
+
+    private void computeHashCode() {
+        int h = 0;
+        for (int i = 0; i < mFieldCount; i++) {
+            String field = fieldToString(mFields[i]);
+            if (field != null) {
+                if (i > 0) {
+                    h = 31 * (31 * h + '\t') + '\t';
+                }
+                for (int j = 0; j < field.length(); j++) {
+                    h = 31 * h + field.charAt(j);
+                }
+            }
+        }
+        mHashCode = h;
+    }
+
+    @Override
+    public int hashCode() {
+        return mHashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey other = (CacheKey) o;
+        if (other.mHashCode != mHashCode) {
+            return false;
+        }
+        if (mString != null) {
+            return other.mString != null ? mString.equals(other.mString)
+                    : other.matches(mString);
+        } else {
+            return matches(other.toString());
+        }
+    }
+
+    /**
+     * @return whether or not the fields of this composite key build the given String cache key
+     */
+    private boolean matches(String s) {
+        int pos = 0;
+        for (int i = 0; i < mFieldCount; i++) {
+            String field = fieldToString(mFields[i]);
+            if (field != null) {
+                if (i > 0) {
+                    if (!s.startsWith(SEPARATOR, pos)) {
+                        return false;
+                    }
+                    pos += SEPARATOR.length();
+                }
+                if (!s.startsWith(field, pos)) {
+                    return false;
+                }
+                pos += field.length();
+            }
+        }
+        return pos == s.length();
+    }
+
+    @Override
+    public String toString() {
+        if (mString != null) {
+            return mString;
+        }
+        Object[] fields = new Object[mFieldCount];
+        System.arraycopy(mFields, 0, fields, 0, mFieldCount);
+        return toString(fields);
+    }
+}
@@ -17,8 +17,13 @@
  */
 package org.tomahawk.libtomahawk.collection;
 
-import android.util.Log;
+import org.tomahawk.libtomahawk.infosystem.Relationship;
+import org.tomahawk.libtomahawk.infosystem.SocialAction;
+import org.tomahawk.libtomahawk.infosystem.User;
+import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.Result;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -29,54 +34,118 @@ public abstract class Cacheable {
 
     private static final String TAG = Cacheable.class.getSimpleName();
 
-    private static final Map<Class, Map<String, Cacheable>> sCaches = new ConcurrentHashMap<>();
+    private static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+    private static final Map<Class, Integer> sMaxCacheSizes = new HashMap<>();
+
+    static {
+        sMaxCacheSizes.put(Query.class, 5000);
+        sMaxCacheSizes.put(Result.class, 5000);
+        sMaxCacheSizes.put(Track.class, 5000);
+        sMaxCacheSizes.put(PlaylistEntry.class, 5000);
+        sMaxCacheSizes.put(Album.class, 2000);
+        sMaxCacheSizes.put(Artist.class, 2000);
+        sMaxCacheSizes.put(Image.class, 2000);
+        sMaxCacheSizes.put(User.class, 500);
+        sMaxCacheSizes.put(SocialAction.class, 500);
+        sMaxCacheSizes.put(Relationship.class, 500);
+        sMaxCacheSizes.put(Playlist.class, 200);
+    }
+
+    private static final Map<Class, CacheEngine> sCaches = new ConcurrentHashMap<>();
 
     private String mCacheKey;
 
+    private final CacheKey mKey;
+
+    private final Class mCacheClass;
+
     protected Cacheable(Class clss, String cacheKey) {
         mCacheKey = cacheKey;
+        mKey = CacheKey.of(cacheKey);
+        mCacheClass = clss;
 
-        getCache(clss).put(cacheKey, this);
+        getCache(clss).put(mKey, this);
     }
 
     protected static void put(Class clss, String cacheKey, Cacheable cacheable) {
-        getCache(clss).put(cacheKey, cacheable);
+        getCache(clss).put(CacheKey.of(cacheKey), cacheable);
     }
 
     public String getCacheKey() {
         return mCacheKey;
     }
 
-    private static Map<String, Cacheable> getCache(Class clss) {
-        Map<String, Cacheable> cache = sCaches.get(clss);
+    /**
+     * @return the {@link CacheKey} under which this {@link Cacheable} has been stored
+     */
+    public CacheKey getKey() {
+        return mKey;
+    }
+
+    private static CacheEngine getCache(Class clss) {
+        CacheEngine cache = sCaches.get(clss);
         if (cache == null) {
-            cache = new ConcurrentHashMap<>();
-            sCaches.put(clss, cache);
+            synchronized (sCaches) {
+                cache = sCaches.get(clss);
+                if (cache == null) {
+                    Integer maxSize = sMaxCacheSizes.get(clss);
+                    cache = new LruCacheEngine(
+                            maxSize != null ? maxSize : DEFAULT_MAX_CACHE_SIZE);
+                    sCaches.put(clss, cache);
+                }
+            }
         }
         return cache;
     }
 
+    /**
+     * Replaces the {@link CacheEngine} that is being used to store all {@link Cacheable}s of the
+     * given class. Should be called before any object of that class has been created.
+     */
+    public static void setCacheEngine(Class clss, CacheEngine cacheEngine) {
+        sCaches.put(clss, cacheEngine);
+    }
+
+    /**
+     * Pins the given {@link Cacheable} so that it won't be evicted from its cache.
+     */
+    public static void pin(Cacheable cacheable) {
+        if (cacheable != null) {
+            getCache(cacheable.mCacheClass).pin(cacheable);
+        }
+    }
+
+    public static void unpin(Cacheable cacheable) {
+        if (cacheable != null) {
+            getCache(cacheable.mCacheClass).unpin(cacheable);
+        }
+    }
+
+    /**
+     * @return the current {@link CacheEngine.Stats} of every cache, keyed by class
+     */
+    public static Map<Class, CacheEngine.Stats> getCacheStats() {
+        Map<Class, CacheEngine.Stats> stats = new HashMap<>();
+        for (Map.Entry<Class, CacheEngine> entry : sCaches.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
     protected static Cacheable get(Class clss, String cacheKey) {
+        return getCache(clss).get(CacheKey.of(cacheKey));
+    }
+
+    /**
+     * Looks up the {@link Cacheable} with the given {@link CacheKey} without building its String
+     * cache key. See {@link CacheKey#obtain}.
+     */
+    protected static Cacheable get(Class clss, CacheKey cacheKey) {
         return getCache(clss).get(cacheKey);
     }
 
     protected static String getCacheKey(Object... objects) {
-        String result = "";
-        for (int i = 0; i < objects.length; i++) {
-            Object o = objects[i];
-            if (o != null) {
-                if (i > 0) {
-                    result += "\t\t";
-                }
-                if (o instanceof String) {
-                    result += ((String) o);
-                } else if (o instanceof Boolean) {
-                    result += ((Boolean) o) ? "1" : "0";
-                } else {
-                    Log.e(TAG, "getCacheKey - given Object type is not supported!");
-                }
-            }
-        }
-        return result;
+        return CacheKey.toString(objects);
     }
-}
\ No newline at end of file
+}
@@ -21,24 +21,103 @@ import org.tomahawk.libtomahawk.resolver.Query;
 import org.tomahawk.libtomahawk.resolver.Resolver;
 import org.tomahawk.libtomahawk.resolver.Result;
 import org.tomahawk.tomahawk_android.utils.IdGenerator;
+import org.tomahawk.tomahawk_android.utils.ThreadManager;
+import org.tomahawk.tomahawk_android.utils.TomahawkRunnable;
 
 import android.database.Cursor;
 import android.text.TextUtils;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.SparseArray;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Provides access to the items of a collection, which are either backed by a list or by a {@link
+ * Cursor}. Cursor-backed items are being read in blocks of consecutive rows, which are copied
+ * into plain column arrays. The next block in scroll direction is being prefetched in the
+ * background, so that scrolling through a large collection doesn't have to access the Cursor row
+ * by row. Items are only being constructed when they are actually requested. Both the blocks and
+ * the items are being kept in bounded caches.
+ */
 public class CollectionCursor<T> {
 
     private final static String TAG = CollectionCursor.class.getSimpleName();
 
-    private SparseArray<T> mCursorCache = new SparseArray<>();
+    // The number of rows that are being read from the Cursor at once
+    private static final int BLOCK_SIZE = 64;
+
+    // The maximum number of blocks that are being kept in memory
+    private static final int MAX_CACHED_BLOCKS = 32;
+
+    // The maximum number of constructed items that are being kept in memory
+    private static final int MAX_CACHED_ITEMS = 256;
+
+    private static final int[] TRACK_STRING_COLUMNS = new int[]{0, 2, 3, 5};
+
+    private static final int[] TRACK_INT_COLUMNS = new int[]{4, 7};
+
+    private static final int[] ALBUM_STRING_COLUMNS = new int[]{0, 1, 3};
 
-    private Cursor mCursor;
+    private static final int[] ARTIST_STRING_COLUMNS = new int[]{0};
+
+    private static final int[] NO_COLUMNS = new int[0];
+
+    /**
+     * A block of consecutive rows. The values are stored column by column, indexed by the
+     * column's index in the Cursor.
+     */
+    private static class Block {
+
+        private final String[][] mStrings = new String[8][];
+
+        private final int[][] mInts = new int[8][];
+    }
 
-    private int mCursorCount;
+    /**
+     * The Cursor and the caches. They are being shared between a {@link CollectionCursor} and its
+     * copies.
+     */
+    private static class Window {
+
+        private final Cursor mCursor;
+
+        private final int mCount;
+
+        private final LruCache<Integer, Block> mBlocks = new LruCache<>(MAX_CACHED_BLOCKS);
+
+        private final LruCache<Integer, Object> mItems = new LruCache<>(MAX_CACHED_ITEMS);
+
+        // The ids of the PlaylistEntries that have been constructed so far. Reusing them makes
+        // sure that a reconstructed PlaylistEntry is equal to the one that has been evicted.
+        private final SparseArray<String> mEntryIds = new SparseArray<>();
+
+        private final Set<Integer> mPrefetchingBlocks = new HashSet<>();
+
+        private volatile int mLastBlockIndex;
+
+        private volatile ArtistQuery mArtistQuery;
+
+        private Window(Cursor cursor) {
+            mCursor = cursor;
+            mCount = cursor.getCount();
+        }
+    }
+
+    /**
+     * Queries a Cursor that only contains the artist name of every row of this {@link
+     * CollectionCursor}'s Cursor, in the same order.
+     */
+    public interface ArtistQuery {
+
+        Cursor query();
+    }
+
+    private final Window mWindow;
 
     private List<T> mItems;
 
@@ -48,9 +127,17 @@ public class CollectionCursor<T> {
 
     private Playlist mPlaylist;
 
+    private int[] mStringColumns = NO_COLUMNS;
+
+    private int[] mIntColumns = NO_COLUMNS;
+
     public CollectionCursor(Cursor cursor, Class<T> clss, Resolver resolver, Playlist playlist) {
-        mCursor = cursor;
-        mCursorCount = cursor.getCount();
+        this(new Window(cursor), clss, resolver, playlist);
+    }
+
+    private CollectionCursor(Window window, Class<T> clss, Resolver resolver,
+            Playlist playlist) {
+        mWindow = window;
         mClass = clss;
         if (clss == PlaylistEntry.class || clss == Result.class) {
             if (resolver != null) {
@@ -59,6 +146,12 @@ public class CollectionCursor<T> {
                 throw new RuntimeException("Resolver is required for "
                         + "CollectionCursor<PlaylistEntry> or CollectionCursor<Result>!");
             }
+            mStringColumns = TRACK_STRING_COLUMNS;
+            mIntColumns = TRACK_INT_COLUMNS;
+        } else if (clss == Album.class) {
+            mStringColumns = ALBUM_STRING_COLUMNS;
+        } else if (clss == Artist.class) {
+            mStringColumns = ARTIST_STRING_COLUMNS;
         }
         if (clss == PlaylistEntry.class) {
             if (playlist != null) {
@@ -71,16 +164,15 @@ public class CollectionCursor<T> {
     }
 
     public CollectionCursor(List<T> items, Class<T> clss) {
+        mWindow = null;
         mItems = items;
         mClass = clss;
     }
 
     public CollectionCursor<T> copy() {
         CollectionCursor<T> copy;
-        if (mCursor != null) {
-            copy = new CollectionCursor<>(mCursor, mClass, mResolver, mPlaylist);
-            SparseArray<T> cacheCopy = mCursorCache.clone();
-            copy.setCursorCache(cacheCopy);
+        if (mWindow != null) {
+            copy = new CollectionCursor<>(mWindow, mClass, mResolver, mPlaylist);
         } else {
             List<T> itemsCopy = new ArrayList<>();
             for (T item : mItems) {
@@ -92,57 +184,60 @@ public class CollectionCursor<T> {
     }
 
     public void close() {
-        if (mCursor != null) {
-            mCursor.close();
+        if (mWindow != null) {
+            synchronized (mWindow.mCursor) {
+                mWindow.mCursor.close();
+            }
+            mWindow.mBlocks.evictAll();
+            mWindow.mItems.evictAll();
         }
     }
 
-    public void setCursorCache(SparseArray<T> cursorCache) {
-        mCursorCache = cursorCache;
-    }
-
     public T get(int location) {
-        if (mCursor != null) {
-            if (mCursor.isClosed()) {
-                Log.d(TAG, "rawGet - Cursor has been closed.");
-                return null;
-            }
-            T cachedItem = mCursorCache.get(location);
+        if (mWindow != null) {
+            T cachedItem = (T) mWindow.mItems.get(location);
             if (cachedItem == null) {
-                mCursor.moveToPosition(location);
+                Block block = getBlock(location / BLOCK_SIZE);
+                if (block == null) {
+                    Log.d(TAG, "rawGet - Cursor has been closed.");
+                    return null;
+                }
+                int row = location % BLOCK_SIZE;
                 if (mClass == PlaylistEntry.class) {
-                    Artist artist = Artist.get(mCursor.getString(0));
-                    Album album = Album.get(mCursor.getString(2), artist);
-                    Track track = Track.get(mCursor.getString(3), album, artist);
-                    track.setDuration(mCursor.getInt(4) * 1000);
-                    track.setAlbumPos(mCursor.getInt(7));
-                    Result result = Result.get(mCursor.getString(5), track, mResolver);
+                    Artist artist = Artist.get(block.mStrings[0][row]);
+                    Album album = Album.get(block.mStrings[2][row], artist);
+                    Track track = Track.get(block.mStrings[3][row], album, artist);
+                    track.setDuration(block.mInts[4][row] * 1000);
+                    track.setAlbumPos(block.mInts[7][row]);
+                    Result result = Result.get(block.mStrings[5][row], track, mResolver);
                     Query query = Query.get(result, false);
                     query.addTrackResult(result, 1.0f);
                     PlaylistEntry entry = PlaylistEntry.get(mPlaylist.getId(), query,
-                            IdGenerator.getLifetimeUniqueStringId());
+                            getEntryId(location));
                     cachedItem = (T) entry;
                 } else if (mClass == Result.class) {
-                    Artist artist = Artist.get(mCursor.getString(0));
-                    Album album = Album.get(mCursor.getString(2), artist);
-                    Track track = Track.get(mCursor.getString(3), album, artist);
-                    track.setDuration(mCursor.getInt(4) * 1000);
-                    track.setAlbumPos(mCursor.getInt(7));
-                    Result result = Result.get(mCursor.getString(5), track, mResolver);
+                    Artist artist = Artist.get(block.mStrings[0][row]);
+                    Album album = Album.get(block.mStrings[2][row], artist);
+                    Track track = Track.get(block.mStrings[3][row], album, artist);
+                    track.setDuration(block.mInts[4][row] * 1000);
+                    track.setAlbumPos(block.mInts[7][row]);
+                    Result result = Result.get(block.mStrings[5][row], track, mResolver);
                     cachedItem = (T) result;
                 } else if (mClass == Album.class) {
-                    Artist artist = Artist.get(mCursor.getString(1));
-                    Album album = Album.get(mCursor.getString(0), artist);
-                    String imagePath = mCursor.getString(3);
+                    Artist artist = Artist.get(block.mStrings[1][row]);
+                    Album album = Album.get(block.mStrings[0][row], artist);
+                    String imagePath = block.mStrings[3][row];
                     if (!TextUtils.isEmpty(imagePath)) {
                         album.setImage(Image.get(imagePath, false));
                     }
                     cachedItem = (T) album;
                 } else if (mClass == Artist.class) {
-                    Artist artist = Artist.get(mCursor.getString(0));
+                    Artist artist = Artist.get(block.mStrings[0][row]);
                     cachedItem = (T) artist;
                 }
-                mCursorCache.put(location, cachedItem);
+                if (cachedItem != null) {
+                    mWindow.mItems.put(location, cachedItem);
+                }
             }
             return cachedItem;
         } else {
@@ -151,20 +246,24 @@ public class CollectionCursor<T> {
     }
 
     public int size() {
-        if (mCursor != null) {
-            return mCursorCount;
+        if (mWindow != null) {
+            return mWindow.mCount;
         } else {
             return mItems.size();
         }
     }
 
     public String getArtistName(int location) {
-        if (mCursor != null) {
-            mCursor.moveToPosition(location);
-            if (mClass == PlaylistEntry.class || mClass == Result.class || mClass == Artist.class) {
-                return mCursor.getString(0);
-            } else if (mClass == Album.class) {
-                return mCursor.getString(1);
+        if (mWindow != null) {
+            Block block = getBlock(location / BLOCK_SIZE);
+            if (block != null) {
+                int row = location % BLOCK_SIZE;
+                if (mClass == PlaylistEntry.class || mClass == Result.class
+                        || mClass == Artist.class) {
+                    return block.mStrings[0][row];
+                } else if (mClass == Album.class) {
+                    return block.mStrings[1][row];
+                }
             }
         } else {
             Object o = mItems.get(location);
@@ -182,4 +281,166 @@ public class CollectionCursor<T> {
         Log.e(TAG, "getArtistName(int location) - Couldn't return a string");
         return null;
     }
+
+    /**
+     * Sets the {@link ArtistQuery} that {@link #getArtistIds(Map)} uses to read the artist names
+     * without having to go through the whole Cursor.
+     */
+    public void setArtistQuery(ArtistQuery artistQuery) {
+        if (mWindow != null) {
+            mWindow.mArtistQuery = artistQuery;
+        }
+    }
+
+    /**
+     * Reads the artist names of all items, without constructing any items or caching any blocks.
+     * If an {@link ArtistQuery} has been set, they are being read from its one-column Cursor.
+     * Otherwise this falls back to a single pass over the whole Cursor.
+     *
+     * @param artistIds every artist name that isn't contained in this map yet is being added to it
+     *                  together with a new consecutive id
+     * @return the artist id of every item
+     */
+    public int[] getArtistIds(Map<String, Integer> artistIds) {
+        int[] ids = new int[size()];
+        if (mWindow != null && mWindow.mArtistQuery != null) {
+            Cursor artistCursor = mWindow.mArtistQuery.query();
+            if (artistCursor != null) {
+                try {
+                    // The row count differs if the collection has changed in the meantime
+                    if (artistCursor.getCount() == ids.length) {
+                        for (int i = 0; i < ids.length && artistCursor.moveToNext(); i++) {
+                            ids[i] = getArtistId(artistIds, artistCursor.getString(0));
+                        }
+                        return ids;
+                    }
+                } finally {
+                    artistCursor.close();
+                }
+            }
+        }
+        if (mWindow != null) {
+            int column = mClass == Album.class ? 1 : 0;
+            synchronized (mWindow.mCursor) {
+                Cursor cursor = mWindow.mCursor;
+                if (!cursor.isClosed()) {
+                    for (int i = 0; i < ids.length && cursor.moveToPosition(i); i++) {
+                        ids[i] = getArtistId(artistIds, cursor.getString(column));
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = getArtistId(artistIds, getArtistName(i));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return the id of the given artist name in the given map. A new consecutive id is being
+     * added to the map, if the artist name isn't contained in it yet.
+     */
+    public static int getArtistId(Map<String, Integer> artistIds, String artistName) {
+        Integer id = artistIds.get(artistName);
+        if (id == null) {
+            id = artistIds.size();
+            artistIds.put(artistName, id);
+        }
+        return id;
+    }
+
+    private String getEntryId(int location) {
+        synchronized (mWindow.mEntryIds) {
+            String entryId = mWindow.mEntryIds.get(location);
+            if (entryId == null) {
+                entryId = IdGenerator.getLifetimeUniqueStringId();
+                mWindow.mEntryIds.put(location, entryId);
+            }
+            return entryId;
+        }
+    }
+
+    /**
+     * @return the {@link Block} with the given index, which is read from the Cursor right away if
+     * it hasn't been cached yet. Also prefetches the adjacent block in scroll direction. null if
+     * the Cursor has been closed.
+     */
+    private Block getBlock(int blockIndex) {
+        Block block = mWindow.mBlocks.get(blockIndex);
+        if (block == null) {
+            block = readBlock(blockIndex);
+        }
+        int lastBlockIndex = mWindow.mLastBlockIndex;
+        mWindow.mLastBlockIndex = blockIndex;
+        if (block != null && blockIndex != lastBlockIndex) {
+            prefetchBlock(blockIndex < lastBlockIndex ? blockIndex - 1 : blockIndex + 1);
+        }
+        return block;
+    }
+
+    private void prefetchBlock(final int blockIndex) {
+        if (blockIndex < 0 || blockIndex * BLOCK_SIZE >= mWindow.mCount
+                || mWindow.mBlocks.get(blockIndex) != null) {
+            return;
+        }
+        synchronized (mWindow.mPrefetchingBlocks) {
+            if (!mWindow.mPrefetchingBlocks.add(blockIndex)) {
+                return;
+            }
+        }
+        ThreadManager.get().execute(
+                new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_VERYHIGH) {
+                    @Override
+                    public void run() {
+                        try {
+                            if (mWindow.mBlocks.get(blockIndex) == null) {
+                                readBlock(blockIndex);
+                            }
+                        } finally {
+                            synchronized (mWindow.mPrefetchingBlocks) {
+                                mWindow.mPrefetchingBlocks.remove(blockIndex);
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Copies the rows of the block with the given index out of the Cursor and caches them.
+     *
+     * @return the {@link Block} or null if the Cursor has been closed
+     */
+    private Block readBlock(int blockIndex) {
+        synchronized (mWindow.mCursor) {
+            // The block might have been read by another thread while we've been waiting
+            Block block = mWindow.mBlocks.get(blockIndex);
+            if (block != null) {
+                return block;
+            }
+            Cursor cursor = mWindow.mCursor;
+            if (cursor.isClosed()) {
+                return null;
+            }
+            int start = blockIndex * BLOCK_SIZE;
+            int rowCount = Math.max(0, Math.min(BLOCK_SIZE, mWindow.mCount - start));
+            block = new Block();
+            for (int column : mStringColumns) {
+                block.mStrings[column] = new String[rowCount];
+            }
+            for (int column : mIntColumns) {
+                block.mInts[column] = new int[rowCount];
+            }
+            for (int row = 0; row < rowCount && cursor.moveToPosition(start + row); row++) {
+                for (int column : mStringColumns) {
+                    block.mStrings[column][row] = cursor.getString(column);
+                }
+                for (int column : mIntColumns) {
+                    block.mInts[column][row] = cursor.getInt(column);
+                }
+            }
+            mWindow.mBlocks.put(blockIndex, block);
+            return block;
+        }
+    }
 }
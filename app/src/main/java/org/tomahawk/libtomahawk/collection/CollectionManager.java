@@ -34,6 +34,7 @@ import org.tomahawk.libtomahawk.infosystem.InfoSystem;
 import org.tomahawk.libtomahawk.infosystem.QueryParams;
 import org.tomahawk.libtomahawk.infosystem.Relationship;
 import org.tomahawk.libtomahawk.infosystem.User;
+import org.tomahawk.libtomahawk.resolver.PipeLine;
 import org.tomahawk.libtomahawk.resolver.Query;
 import org.tomahawk.libtomahawk.utils.ADeferredObject;
 import org.tomahawk.tomahawk_android.R;
@@ -177,6 +178,9 @@ public class CollectionManager {
 
     public void addCollection(Collection collection) {
         mCollections.put(collection.getId(), collection);
+        if (collection instanceof DbCollection && !(collection instanceof UserCollection)) {
+            PipeLine.get().addCollection((DbCollection) collection);
+        }
         AddedOrRemovedEvent event = new AddedOrRemovedEvent();
         event.mCollection = collection;
         EventBus.getDefault().post(event);
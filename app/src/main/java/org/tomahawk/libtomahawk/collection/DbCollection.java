@@ -70,6 +70,10 @@ public abstract class DbCollection extends Collection {
         mResolver = resolver;
     }
 
+    public Resolver getResolver() {
+        return mResolver;
+    }
+
     public boolean isInitialized() {
         return mInitialized;
     }
@@ -113,31 +117,41 @@ public abstract class DbCollection extends Collection {
                     mWaitingQueries.add(query);
                     Log.d(TAG, collectionId + " - Added query to the waiting queue because the "
                             + "FuzzyIndex is still initializing.");
+                    // Free the slot, the query will be resolved again once we're initialized
+                    PipeLine.get().onResolveFinished(DbCollection.this, query);
                 } else {
                     TomahawkRunnable r = new TomahawkRunnable(
                             TomahawkRunnable.PRIORITY_IS_RESOLVING) {
                         @Override
                         public void run() {
-                            List<FuzzyIndex.IndexResult> indexResults =
-                                    db.getFuzzyIndex().searchIndex(query);
-                            if (indexResults.size() > 0) {
-                                String[] ids = new String[indexResults.size()];
-                                for (int i = 0; i < indexResults.size(); i++) {
-                                    FuzzyIndex.IndexResult indexResult = indexResults.get(i);
-                                    ids[i] = String.valueOf(indexResult.id);
+                            try {
+                                List<FuzzyIndex.IndexResult> indexResults =
+                                        db.getFuzzyIndex().searchIndex(query);
+                                if (isCancelled()) {
+                                    return;
                                 }
-                                CollectionDb.WhereInfo whereInfo = new CollectionDb.WhereInfo();
-                                whereInfo.connection = "OR";
-                                whereInfo.where.put(CollectionDb.ID, ids);
-                                Cursor cursor = db.tracks(whereInfo, null);
-                                CollectionCursor<Result> collectionCursor = new CollectionCursor<>(
-                                        cursor, Result.class, mResolver, null);
-                                ArrayList<Result> results = new ArrayList<>();
-                                for (int i = 0; i < collectionCursor.size(); i++) {
-                                    results.add(collectionCursor.get(i));
+                                if (indexResults.size() > 0) {
+                                    String[] ids = new String[indexResults.size()];
+                                    for (int i = 0; i < indexResults.size(); i++) {
+                                        FuzzyIndex.IndexResult indexResult = indexResults.get(i);
+                                        ids[i] = String.valueOf(indexResult.id);
+                                    }
+                                    CollectionDb.WhereInfo whereInfo = new CollectionDb.WhereInfo();
+                                    whereInfo.connection = "OR";
+                                    whereInfo.where.put(CollectionDb.ID, ids);
+                                    Cursor cursor = db.tracks(whereInfo, null);
+                                    CollectionCursor<Result> collectionCursor =
+                                            new CollectionCursor<>(
+                                                    cursor, Result.class, mResolver, null);
+                                    ArrayList<Result> results = new ArrayList<>();
+                                    for (int i = 0; i < collectionCursor.size(); i++) {
+                                        results.add(collectionCursor.get(i));
+                                    }
+                                    collectionCursor.close();
+                                    PipeLine.get().reportResults(query, results, mResolver.getId());
                                 }
-                                collectionCursor.close();
-                                PipeLine.get().reportResults(query, results, mResolver.getId());
+                            } finally {
+                                PipeLine.get().onResolveFinished(DbCollection.this, query);
                             }
                         }
                     };
@@ -150,7 +164,7 @@ public abstract class DbCollection extends Collection {
     private synchronized void invokeWaitingJobs() {
         Log.d(TAG, "Resolving " + mWaitingQueries.size() + " waiting queries");
         for (Query query : mWaitingQueries) {
-            resolve(query);
+            PipeLine.get().scheduleResolve(this, query);
         }
         mWaitingQueries.clear();
     }
@@ -193,6 +207,14 @@ public abstract class DbCollection extends Collection {
                             CollectionCursor<PlaylistEntry> collectionCursor
                                     = new CollectionCursor<>(
                                     cursor, PlaylistEntry.class, mResolver, playlist);
+                            final CollectionDb artistDb = db;
+                            final String[] artistOrderBy = orderBy;
+                            collectionCursor.setArtistQuery(new CollectionCursor.ArtistQuery() {
+                                @Override
+                                public Cursor query() {
+                                    return artistDb.trackArtists(null, artistOrderBy);
+                                }
+                            });
                             playlist.setCursor(collectionCursor);
                             playlist.setFilled(true);
                             playlist.setCurrentRevision(currentRevision);
@@ -71,7 +71,7 @@ public class Image extends Cacheable {
      * static {@link java.util.concurrent.ConcurrentHashMap} yet, construct and add it.
      */
     public static Image get(String imagePath, boolean scaleItDown) {
-        Cacheable cacheable = get(Image.class, getCacheKey(imagePath));
+        Cacheable cacheable = get(Image.class, CacheKey.obtain(imagePath));
         return cacheable != null ? (Image) cacheable : new Image(imagePath, scaleItDown);
     }
 
@@ -81,7 +81,7 @@ public class Image extends Cacheable {
      * static {@link java.util.concurrent.ConcurrentHashMap} yet, construct and add it.
      */
     public static Image get(String imagePath, boolean scaleItDown, int width, int height) {
-        Cacheable cacheable = get(Image.class, getCacheKey(imagePath));
+        Cacheable cacheable = get(Image.class, CacheKey.obtain(imagePath));
         return cacheable != null ? (Image) cacheable
                 : new Image(imagePath, scaleItDown, width, height);
     }
@@ -0,0 +1,335 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.collection;
+
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A {@link java.util.List} that supports positional access, insertion, removal and {@link
+ * #indexOf(Object)} in O(log n). The elements are stored in a randomized balanced binary tree
+ * (treap), in which every node knows the size of its subtree and its parent. A map from every
+ * element to its node allows us to find an element's position by walking up to the root.
+ *
+ * Every element may only be contained once.
+ */
+class IndexedList<E> extends AbstractList<E> {
+
+    private static class Node<E> {
+
+        private E mValue;
+
+        private final int mPriority;
+
+        private int mSize = 1;
+
+        private Node<E> mLeft;
+
+        private Node<E> mRight;
+
+        private Node<E> mParent;
+
+        private Node(E value, int priority) {
+            mValue = value;
+            mPriority = priority;
+        }
+    }
+
+    private final Random mRandom = new Random();
+
+    private final Map<E, Node<E>> mNodes = new HashMap<>();
+
+    private Node<E> mRoot;
+
+    @Override
+    public E get(int location) {
+        return nodeAt(location).mValue;
+    }
+
+    @Override
+    public int size() {
+        return size(mRoot);
+    }
+
+    @Override
+    public E set(int location, E object) {
+        Node<E> node = nodeAt(location);
+        E oldValue = node.mValue;
+        if (oldValue != object) {
+            ensureNotContained(object);
+            mNodes.remove(oldValue);
+            node.mValue = object;
+            mNodes.put(object, node);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public void add(int location, E object) {
+        if (location < 0 || location > size()) {
+            throw new IndexOutOfBoundsException("Invalid index " + location + ", size is "
+                    + size());
+        }
+        ensureNotContained(object);
+        Node<E> node = new Node<>(object, mRandom.nextInt());
+        mNodes.put(object, node);
+        Node<E>[] parts = split(mRoot, location);
+        mRoot = merge(merge(parts[0], node), parts[1]);
+        mRoot.mParent = null;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int location) {
+        Node<E> node = nodeAt(location);
+        removeNode(node);
+        return node.mValue;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        Node<E> node = mNodes.get(object);
+        if (node == null) {
+            return false;
+        }
+        removeNode(node);
+        return true;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        Node<E> node = mNodes.get(object);
+        if (node == null) {
+            return -1;
+        }
+        int index = size(node.mLeft);
+        while (node.mParent != null) {
+            if (node == node.mParent.mRight) {
+                index += size(node.mParent.mLeft) + 1;
+            }
+            node = node.mParent;
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object object) {
+        return indexOf(object);
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return mNodes.containsKey(object);
+    }
+
+    @Override
+    public void clear() {
+        mRoot = null;
+        mNodes.clear();
+        modCount++;
+    }
+
+    /**
+     * @return an {@link Iterator} that walks through the tree in order, which only takes O(1)
+     * amortized per element instead of the O(log n) of {@link #get(int)}
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            private Node<E> mNext = first(mRoot);
+
+            private Node<E> mLastReturned;
+
+            private int mExpectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return mNext != null;
+            }
+
+            @Override
+            public E next() {
+                if (modCount != mExpectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (mNext == null) {
+                    throw new NoSuchElementException();
+                }
+                mLastReturned = mNext;
+                mNext = successor(mNext);
+                return mLastReturned.mValue;
+            }
+
+            @Override
+            public void remove() {
+                if (mLastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != mExpectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                // Removing a node doesn't affect the other nodes, so mNext stays valid
+                removeNode(mLastReturned);
+                mLastReturned = null;
+                mExpectedModCount = modCount;
+            }
+        };
+    }
+
+    private static <E> Node<E> first(Node<E> node) {
+        while (node != null && node.mLeft != null) {
+            node = node.mLeft;
+        }
+        return node;
+    }
+
+    private static <E> Node<E> successor(Node<E> node) {
+        if (node.mRight != null) {
+            return first(node.mRight);
+        }
+        while (node.mParent != null && node == node.mParent.mRight) {
+            node = node.mParent;
+        }
+        return node.mParent;
+    }
+
+    private void ensureNotContained(E object) {
+        if (mNodes.containsKey(object)) {
+            throw new IllegalArgumentException("Element is already contained: " + object);
+        }
+    }
+
+    private Node<E> nodeAt(int location) {
+        if (location < 0 || location >= size()) {
+            throw new IndexOutOfBoundsException("Invalid index " + location + ", size is "
+                    + size());
+        }
+        Node<E> node = mRoot;
+        while (true) {
+            int leftSize = size(node.mLeft);
+            if (location < leftSize) {
+                node = node.mLeft;
+            } else if (location == leftSize) {
+                return node;
+            } else {
+                location -= leftSize + 1;
+                node = node.mRight;
+            }
+        }
+    }
+
+    private void removeNode(Node<E> node) {
+        mNodes.remove(node.mValue);
+        Node<E> parent = node.mParent;
+        Node<E> replacement = merge(node.mLeft, node.mRight);
+        if (replacement != null) {
+            replacement.mParent = parent;
+        }
+        if (parent == null) {
+            mRoot = replacement;
+        } else {
+            if (parent.mLeft == node) {
+                parent.mLeft = replacement;
+            } else {
+                parent.mRight = replacement;
+            }
+            for (Node<E> n = parent; n != null; n = n.mParent) {
+                n.mSize--;
+            }
+        }
+        node.mLeft = node.mRight = node.mParent = null;
+        modCount++;
+    }
+
+    /**
+     * Splits the given tree into one tree containing the first count elements and one tree
+     * containing the rest.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<E>[] split(Node<E> node, int count) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        int leftSize = size(node.mLeft);
+        if (count <= leftSize) {
+            Node<E>[] parts = split(node.mLeft, count);
+            setLeft(node, parts[1]);
+            parts[1] = node;
+            if (parts[0] != null) {
+                parts[0].mParent = null;
+            }
+            node.mParent = null;
+            return parts;
+        } else {
+            Node<E>[] parts = split(node.mRight, count - leftSize - 1);
+            setRight(node, parts[0]);
+            parts[0] = node;
+            if (parts[1] != null) {
+                parts[1].mParent = null;
+            }
+            node.mParent = null;
+            return parts;
+        }
+    }
+
+    /**
+     * Merges the two given trees. All elements of the left tree are being placed in front of the
+     * elements of the right tree.
+     */
+    private Node<E> merge(Node<E> left, Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.mPriority > right.mPriority) {
+            setRight(left, merge(left.mRight, right));
+            return left;
+        } else {
+            setLeft(right, merge(left, right.mLeft));
+            return right;
+        }
+    }
+
+    private static <E> void setLeft(Node<E> node, Node<E> left) {
+        node.mLeft = left;
+        if (left != null) {
+            left.mParent = node;
+        }
+        node.mSize = size(node.mLeft) + size(node.mRight) + 1;
+    }
+
+    private static <E> void setRight(Node<E> node, Node<E> right) {
+        node.mRight = right;
+        if (right != null) {
+            right.mParent = node;
+        }
+        node.mSize = size(node.mLeft) + size(node.mRight) + 1;
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.mSize : 0;
+    }
+}
@@ -0,0 +1,156 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.collection;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The default {@link CacheEngine}. The most recently used {@link Cacheable}s are being held in an
+ * LRU map of a fixed maximum size. Entries that are evicted from the LRU map are only weakly
+ * referenced afterwards. So as long as some other object still references an evicted {@link
+ * Cacheable} the very same instance will be returned, but it can be garbage collected as soon as
+ * nothing references it anymore. Pinned {@link Cacheable}s are never evicted.
+ */
+public class LruCacheEngine implements CacheEngine {
+
+    private final int mMaxSize;
+
+    private final LinkedHashMap<CacheKey, Cacheable> mLruMap;
+
+    private final Map<CacheKey, KeyedWeakReference> mWeakMap = new HashMap<>();
+
+    private final ReferenceQueue<Cacheable> mReferenceQueue = new ReferenceQueue<>();
+
+    private final Map<CacheKey, Integer> mPinCounts = new HashMap<>();
+
+    private final Map<CacheKey, Cacheable> mPinned = new HashMap<>();
+
+    private long mHits;
+
+    private long mMisses;
+
+    private long mEvictions;
+
+    private static class KeyedWeakReference extends WeakReference<Cacheable> {
+
+        private final CacheKey mKey;
+
+        public KeyedWeakReference(CacheKey key, Cacheable referent, ReferenceQueue<Cacheable> q) {
+            super(referent, q);
+            mKey = key;
+        }
+    }
+
+    public LruCacheEngine(int maxSize) {
+        mMaxSize = maxSize;
+        mLruMap = new LinkedHashMap<CacheKey, Cacheable>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Cacheable> eldest) {
+                if (size() > mMaxSize) {
+                    mEvictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Cacheable get(CacheKey cacheKey) {
+        Cacheable cacheable = mLruMap.get(cacheKey);
+        if (cacheable == null) {
+            cacheable = mPinned.get(cacheKey);
+            if (cacheable == null) {
+                purgeCollectedReferences();
+                KeyedWeakReference ref = mWeakMap.get(cacheKey);
+                if (ref != null) {
+                    cacheable = ref.get();
+                }
+            }
+            if (cacheable != null) {
+                // Promote the entry back into the LRU map
+                mLruMap.put(cacheable.getKey(), cacheable);
+            }
+        }
+        if (cacheable != null) {
+            mHits++;
+        } else {
+            mMisses++;
+        }
+        return cacheable;
+    }
+
+    @Override
+    public synchronized void put(CacheKey cacheKey, Cacheable cacheable) {
+        purgeCollectedReferences();
+        mLruMap.put(cacheKey, cacheable);
+        mWeakMap.put(cacheKey, new KeyedWeakReference(cacheKey, cacheable, mReferenceQueue));
+        if (mPinned.containsKey(cacheKey)) {
+            mPinned.put(cacheKey, cacheable);
+        }
+    }
+
+    @Override
+    public synchronized void pin(Cacheable cacheable) {
+        CacheKey key = cacheable.getKey();
+        Integer count = mPinCounts.get(key);
+        mPinCounts.put(key, count == null ? 1 : count + 1);
+        mPinned.put(key, cacheable);
+    }
+
+    @Override
+    public synchronized void unpin(Cacheable cacheable) {
+        CacheKey key = cacheable.getKey();
+        Integer count = mPinCounts.get(key);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            mPinCounts.put(key, count - 1);
+        } else {
+            mPinCounts.remove(key);
+            mPinned.remove(key);
+        }
+    }
+
+    @Override
+    public synchronized Stats getStats() {
+        purgeCollectedReferences();
+        Stats stats = new Stats();
+        stats.hits = mHits;
+        stats.misses = mMisses;
+        stats.evictions = mEvictions;
+        stats.size = mWeakMap.size();
+        stats.pinned = mPinned.size();
+        return stats;
+    }
+
+    private void purgeCollectedReferences() {
+        KeyedWeakReference ref;
+        while ((ref = (KeyedWeakReference) mReferenceQueue.poll()) != null) {
+            // Only remove the mapping if it hasn't been replaced in the meantime
+            if (mWeakMap.get(ref.mKey) == ref) {
+                mWeakMap.remove(ref.mKey);
+            }
+        }
+    }
+}
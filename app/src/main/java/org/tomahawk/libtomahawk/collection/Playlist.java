@@ -23,12 +23,12 @@ import org.tomahawk.tomahawk_android.utils.IdGenerator;
 import android.util.Log;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -47,9 +47,17 @@ public class Playlist extends Cacheable implements AlphaComparable {
 
     private Map<PlaylistEntry, Index> mCachedEntries = new HashMap<>();
 
-    private List<Index> mIndex = new ArrayList<>();
+    // Both indexes support looking up the position of an Index in O(log n), which is being done
+    // on every track change
+    private IndexedList<Index> mIndex = new IndexedList<>();
 
-    private List<Index> mShuffledIndex = new ArrayList<>();
+    private IndexedList<Index> mShuffledIndex = new IndexedList<>();
+
+    // The Indexes in the order they had when the shuffled index has been built
+    private Index[] mShuffleSource;
+
+    // Generates the rest of the shuffled index as playback advances
+    private ShuffledOrder mShuffledOrder;
 
     private static class Index {
 
@@ -63,6 +71,114 @@ public class Playlist extends Cacheable implements AlphaComparable {
         boolean fromMergedItems;
     }
 
+    /**
+     * Generates a permutation of positions in which the positions of the same artist are spread
+     * out as far as possible. Every round picks one random remaining position of every artist
+     * that has positions left. The artists are visited in the same random order in every round.
+     * Every call to {@link #next()} only takes O(1) amortized, so the permutation can be
+     * generated lazily.
+     */
+    private static class ShuffledOrder {
+
+        private final Random mRandom = new Random();
+
+        // All positions, grouped by artist
+        private final int[] mPositions;
+
+        // The start of every artist's group in mPositions
+        private final int[] mGroupStarts;
+
+        // The number of positions of every artist that haven't been picked yet. They are stored
+        // at the beginning of the artist's group.
+        private final int[] mRemaining;
+
+        // The artists of the current round in random order
+        private final int[] mRound;
+
+        private int mRoundSize;
+
+        private int mRoundPosition;
+
+        private int mLeft;
+
+        /**
+         * @param artistIds       the artist id of every position. Artist ids have to be
+         *                        consecutive, starting at 0.
+         * @param artistCount     the number of distinct artist ids
+         * @param excludePosition a position that shouldn't be part of the permutation. -1 if none
+         */
+        private ShuffledOrder(int[] artistIds, int artistCount, int excludePosition) {
+            mGroupStarts = new int[artistCount];
+            mRemaining = new int[artistCount];
+            for (int i = 0; i < artistIds.length; i++) {
+                if (i != excludePosition) {
+                    mRemaining[artistIds[i]]++;
+                }
+            }
+            for (int i = 1; i < artistCount; i++) {
+                mGroupStarts[i] = mGroupStarts[i - 1] + mRemaining[i - 1];
+            }
+            mLeft = artistIds.length - (excludePosition >= 0 ? 1 : 0);
+            mPositions = new int[mLeft];
+            int[] fill = mGroupStarts.clone();
+            for (int i = 0; i < artistIds.length; i++) {
+                if (i != excludePosition) {
+                    mPositions[fill[artistIds[i]]++] = i;
+                }
+            }
+            mRound = new int[artistCount];
+            for (int i = 0; i < artistCount; i++) {
+                if (mRemaining[i] > 0) {
+                    mRound[mRoundSize++] = i;
+                }
+            }
+            for (int i = mRoundSize - 1; i > 0; i--) {
+                int j = mRandom.nextInt(i + 1);
+                int artist = mRound[i];
+                mRound[i] = mRound[j];
+                mRound[j] = artist;
+            }
+        }
+
+        private ShuffledOrder(ShuffledOrder other) {
+            mPositions = other.mPositions.clone();
+            mGroupStarts = other.mGroupStarts;
+            mRemaining = other.mRemaining.clone();
+            mRound = other.mRound.clone();
+            mRoundSize = other.mRoundSize;
+            mRoundPosition = other.mRoundPosition;
+            mLeft = other.mLeft;
+        }
+
+        private boolean hasNext() {
+            return mLeft > 0;
+        }
+
+        private int next() {
+            if (mRoundPosition == mRoundSize) {
+                // Start a new round without the artists that don't have any positions left
+                int size = 0;
+                for (int i = 0; i < mRoundSize; i++) {
+                    if (mRemaining[mRound[i]] > 0) {
+                        mRound[size++] = mRound[i];
+                    }
+                }
+                mRoundSize = size;
+                mRoundPosition = 0;
+            }
+            int artist = mRound[mRoundPosition++];
+            // Move a randomly picked remaining position to the end of the remaining positions
+            int start = mGroupStarts[artist];
+            int last = start + --mRemaining[artist];
+            int picked = start + mRandom.nextInt(mRemaining[artist] + 1);
+            int position = mPositions[picked];
+            mPositions[picked] = mPositions[last];
+            mPositions[last] = position;
+            mLeft--;
+            return position;
+        }
+    }
+
     private String mId;
 
     private String mHatchetId;
@@ -101,6 +217,9 @@ public class Playlist extends Cacheable implements AlphaComparable {
         for (Index index : mShuffledIndex) {
             destination.mShuffledIndex.add(index);
         }
+        destination.mShuffleSource = mShuffleSource;
+        destination.mShuffledOrder =
+                mShuffledOrder != null ? new ShuffledOrder(mShuffledOrder) : null;
         destination.mHatchetId = mHatchetId;
         destination.mCurrentRevision = mCurrentRevision;
         if (mTopArtistNames != null) {
@@ -189,6 +308,8 @@ public class Playlist extends Cacheable implements AlphaComparable {
         mCachedEntries.clear();
         mIndex.clear();
         mShuffledIndex.clear();
+        mShuffleSource = null;
+        mShuffledOrder = null;
         for (int i = 0; i < mCursor.size(); i++) {
             mIndex.add(new Index(i, false));
         }
@@ -313,6 +434,9 @@ public class Playlist extends Cacheable implements AlphaComparable {
      */
     public List<PlaylistEntry> getEntries(boolean shuffled) {
         List<PlaylistEntry> entries = new ArrayList<>();
+        if (shuffled) {
+            ensureShuffledIndex(Integer.MAX_VALUE);
+        }
         List<Index> indexList = shuffled ? mShuffledIndex : mIndex;
         for (Index index : indexList) {
             PlaylistEntry entry = getEntry(index);
@@ -371,6 +495,9 @@ public class Playlist extends Cacheable implements AlphaComparable {
     }
 
     public PlaylistEntry getEntryAtPos(int position, boolean shuffled) {
+        if (shuffled) {
+            ensureShuffledIndex(position);
+        }
         List<Index> indexList = shuffled ? mShuffledIndex : mIndex;
         if (position < 0 || position >= indexList.size()) {
             return null;
@@ -386,7 +513,18 @@ public class Playlist extends Cacheable implements AlphaComparable {
     public int getIndexOfEntry(PlaylistEntry entry, boolean shuffled) {
         Index index = mCachedEntries.get(entry);
         List<Index> indexList = shuffled ? mShuffledIndex : mIndex;
-        return indexList.indexOf(index);
+        int position = indexList.indexOf(index);
+        if (shuffled && position < 0 && index != null) {
+            // The entry might not have been shuffled in yet
+            while (mShuffledOrder != null && mShuffledOrder.hasNext()) {
+                Index shuffledIndex = mShuffleSource[mShuffledOrder.next()];
+                mShuffledIndex.add(shuffledIndex);
+                if (shuffledIndex == index) {
+                    return mShuffledIndex.size() - 1;
+                }
+            }
+        }
+        return position;
     }
 
     public boolean containsEntry(PlaylistEntry entry) {
@@ -429,41 +567,42 @@ public class Playlist extends Cacheable implements AlphaComparable {
      * Shuffle this {@link Playlist}'s tracks. This method ensures that there's always a minimum
      * amount of tracks in sequence that have the same artist.
      *
+     * Only the artist names are being read up front. The shuffled index itself is being generated
+     * lazily as the entries are being requested (see {@link ShuffledOrder}).
+     *
      * @param currentIndex the track at this position will be put at the top of the resulting
      *                     shuffled list of tracks.
      */
     public void buildShuffledIndex(int currentIndex) throws IndexOutOfBoundsException {
         mShuffledIndex.clear();
+        mShuffleSource = mIndex.toArray(new Index[mIndex.size()]);
         if (currentIndex >= 0) {
             // Add the current entry to the top of shuffled index
-            mShuffledIndex.add(mIndex.get(currentIndex));
+            mShuffledIndex.add(mShuffleSource[currentIndex]);
         }
-        List<String> artistNames = new ArrayList<>();
-        Map<String, List<Integer>> artistsTrackIndexes = new HashMap<>();
-        for (int i = 0; i < size(); i++) {
-            if (i != currentIndex) { // Don't add the currently playing track
-                String artistName = getArtistName(i);
-                if (artistsTrackIndexes.get(artistName) == null) {
-                    artistsTrackIndexes.put(artistName, new ArrayList<Integer>());
-                    artistNames.add(artistName);
-                }
-                artistsTrackIndexes.get(artistName).add(i);
+        Map<String, Integer> artistIds = new HashMap<>();
+        int[] cursorArtistIds =
+                mCursor != null ? mCursor.getArtistIds(artistIds) : new int[0];
+        int[] positionArtistIds = new int[mShuffleSource.length];
+        for (int i = 0; i < mShuffleSource.length; i++) {
+            Index index = mShuffleSource[i];
+            if (index.fromMergedItems) {
+                positionArtistIds[i] = CollectionCursor.getArtistId(artistIds,
+                        mAddedEntries.get(index.internalIndex).getArtist().getName());
+            } else {
+                positionArtistIds[i] = cursorArtistIds[index.internalIndex];
             }
         }
-        Collections.shuffle(artistNames);
-        while (artistNames.size() > 0) {
-            for (int i = 0; i < artistNames.size(); i++) {
-                String artistName = artistNames.get(i);
-                // Now we can get the list of track indexes
-                List<Integer> indexes = artistsTrackIndexes.get(artistName);
-                int randomPos = (int) (Math.random() * indexes.size());
-                // Add the randomly picked track index to our shuffled index
-                int shuffledIndex = indexes.remove(randomPos);
-                mShuffledIndex.add(mIndex.get(shuffledIndex));
-                if (indexes.size() == 0) {
-                    artistNames.remove(i);
-                }
-            }
+        mShuffledOrder = new ShuffledOrder(positionArtistIds, artistIds.size(), currentIndex);
+    }
+
+    /**
+     * Makes sure that the shuffled index has been generated up to the given position.
+     */
+    private void ensureShuffledIndex(int position) {
+        while (mShuffledIndex.size() <= position && mShuffledOrder != null
+                && mShuffledOrder.hasNext()) {
+            mShuffledIndex.add(mShuffleSource[mShuffledOrder.next()]);
         }
     }
 
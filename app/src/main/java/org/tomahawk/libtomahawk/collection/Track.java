@@ -59,7 +59,7 @@ public class Track extends Cacheable implements AlphaComparable, ArtistAlphaComp
      */
     public static Track get(String trackName, Album album, Artist artist) {
         Cacheable cacheable = get(Track.class,
-                getCacheKey(trackName, album.getName(), artist.getName()));
+                CacheKey.obtain(trackName, album.getName(), artist.getName()));
         return cacheable != null ? (Track) cacheable : new Track(trackName, album, artist);
     }
 
@@ -52,16 +52,22 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import de.greenrobot.event.EventBus;
 
@@ -102,7 +108,16 @@ public class UserCollection extends DbCollection {
         }
     }
 
-    private boolean mIsStopping = false;
+    // Listing directories and parsing files is mostly I/O bound, but the storage doesn't benefit
+    // from too many concurrent requests either
+    private static final int SCAN_THREAD_COUNT =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // Filesystems like FAT only store modification times with a granularity of two seconds, so
+    // a directory listing is only reused if the directory has been modified well before the scan
+    private static final long MTIME_GRANULARITY = 2000;
+
+    private volatile boolean mIsStopping = false;
 
     private boolean mRestart = false;
 
@@ -135,6 +150,7 @@ public class UserCollection extends DbCollection {
         if (fullScan) {
             Log.d(TAG, "Executing full scan. Wiping cache...");
             DatabaseHelper.get().removeAllMedias();
+            DatabaseHelper.get().removeAllScannedDirs();
         }
         if (isWorking()) {
             if (fullScan) {
@@ -166,6 +182,154 @@ public class UserCollection extends DbCollection {
                 mLoadingThread.getState() != Thread.State.NEW;
     }
 
+    /**
+     * The result of listing a single media directory
+     */
+    private static class ListedDir {
+
+        private DatabaseHelper.ScannedDir mScannedDir;
+
+        private boolean mReused;
+
+        private final List<File> mSubDirs = new ArrayList<>();
+
+        private final List<String> mFileUris = new ArrayList<>();
+
+        private final List<Long> mFileLastModifieds = new ArrayList<>();
+    }
+
+    /**
+     * Lists a single media directory. The listing of the last scan is being reused, if the
+     * directory hasn't been modified since then.
+     */
+    private class ListDirCallable implements Callable<ListedDir> {
+
+        private final File mDir;
+
+        private final Map<String, DatabaseHelper.ScannedDir> mPreviousDirs;
+
+        private final long mScanTime;
+
+        public ListDirCallable(File dir, Map<String, DatabaseHelper.ScannedDir> previousDirs,
+                long scanTime) {
+            mDir = dir;
+            mPreviousDirs = previousDirs;
+            mScanTime = scanTime;
+        }
+
+        @Override
+        public ListedDir call() {
+            String dirPath = mDir.getAbsolutePath();
+
+            // Skip some system folders
+            if (mIsStopping || dirPath.startsWith("/proc/") || dirPath.startsWith("/sys/")
+                    || dirPath.startsWith("/dev/")) {
+                return null;
+            }
+
+            // Do not scan again if same canonical path
+            try {
+                dirPath = mDir.getCanonicalPath();
+            } catch (IOException e) {
+                Log.e(TAG, "ListDirCallable#call() - " + e.getClass() + ": "
+                        + e.getLocalizedMessage());
+            }
+
+            ListedDir listedDir = new ListedDir();
+            long lastModified = mDir.lastModified();
+            DatabaseHelper.ScannedDir previousDir = mPreviousDirs.get(dirPath);
+            if (previousDir != null && lastModified != 0
+                    && previousDir.mLastModified == lastModified
+                    && previousDir.mScanTime - lastModified > MTIME_GRANULARITY) {
+                // Nothing has been added to or removed from this directory since the last scan
+                listedDir.mScannedDir = previousDir;
+                listedDir.mReused = true;
+            } else {
+                // Do no scan media in .nomedia folders
+                if (new File(dirPath + "/.nomedia").exists()) {
+                    return null;
+                }
+
+                // Filter the extensions and the folders
+                DatabaseHelper.ScannedDir scannedDir = new DatabaseHelper.ScannedDir();
+                scannedDir.mPath = dirPath;
+                scannedDir.mLastModified = lastModified;
+                scannedDir.mScanTime = mScanTime;
+                try {
+                    File[] f = mDir.listFiles(new MediaItemFilter());
+                    if (f != null) {
+                        for (File file : f) {
+                            if (file.isFile()) {
+                                scannedDir.mFiles.add(file.getName());
+                            } else if (file.isDirectory()) {
+                                scannedDir.mSubDirs.add(file.getName());
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    // listFiles can fail in OutOfMemoryError, go to the next folder
+                    Log.e(TAG, "ListDirCallable#call() - " + e.getClass() + ": "
+                            + e.getLocalizedMessage());
+                    return null;
+                }
+                listedDir.mScannedDir = scannedDir;
+            }
+            for (String subDir : listedDir.mScannedDir.mSubDirs) {
+                listedDir.mSubDirs.add(new File(mDir, subDir));
+            }
+            for (String fileName : listedDir.mScannedDir.mFiles) {
+                File file = new File(mDir, fileName);
+                // We need the lastModified timestamp of every file anyway to detect changed files.
+                // A timestamp of 0 means that the file doesn't exist anymore.
+                long fileLastModified = file.lastModified();
+                if (fileLastModified != 0) {
+                    listedDir.mFileUris.add(AndroidUtil.FileToUri(file).toString());
+                    listedDir.mFileLastModifieds.add(fileLastModified);
+                }
+            }
+            return listedDir;
+        }
+    }
+
+    /**
+     * Parses a single media file with libVLC
+     */
+    private class ParseMediaCallable implements Callable<MediaWrapper> {
+
+        private final String mFileUri;
+
+        private final long mLastModified;
+
+        public ParseMediaCallable(String fileUri, long lastModified) {
+            mFileUri = fileUri;
+            mLastModified = lastModified;
+        }
+
+        @Override
+        public MediaWrapper call() {
+            if (mIsStopping) {
+                return null;
+            }
+            final Media media = new Media(VLCMediaPlayer.getLibVlcInstance(),
+                    Uri.parse(mFileUri));
+            media.parse();
+            try {
+                // skip files with .mod extension and no duration
+                if ((media.getDuration() == 0 || (media.getTrackCount() != 0
+                        && TextUtils.isEmpty(media.getTrack(0).codec)))
+                        && mFileUri.endsWith(".mod")) {
+                    Log.d(TAG, "File skipped: " + mFileUri);
+                    return null;
+                }
+                MediaWrapper mw = new MediaWrapper(media);
+                mw.setLastModified(mLastModified);
+                return mw;
+            } finally {
+                media.release();
+            }
+        }
+    }
+
     private class GetMediaItemsRunnable implements Runnable {
 
         @Override
@@ -186,137 +350,138 @@ public class UserCollection extends DbCollection {
             PreferenceUtils.edit().putStringSet(HAS_SET_DEFAULTDIRS, setDefaultDirs).commit();
 
             List<File> mediaDirs = DatabaseHelper.get().getMediaDirs(false);
-            Stack<File> directories = new Stack<>();
-            directories.addAll(mediaDirs);
-            for (File dir : directories) {
+            for (File dir : mediaDirs) {
                 Log.d(TAG, "Scanning directory: " + dir);
             }
 
-            // get all existing media items
-            HashMap<String, MediaWrapper> existingMedias = DatabaseHelper.get().getMedias();
-
-            // list of all added files
-            HashSet<String> addedLocations = new HashSet<>();
+            // get all existing media items and the directory listings of the last scan
+            HashMap<String, Long> existingLastModifieds =
+                    DatabaseHelper.get().getMediaLastModifieds();
+            HashMap<String, DatabaseHelper.ScannedDir> previousDirs =
+                    DatabaseHelper.get().getScannedDirs();
 
-            ArrayList<File> mediaToScan = new ArrayList<>();
+            ExecutorService executor = Executors.newFixedThreadPool(SCAN_THREAD_COUNT);
             try {
+                // Phase 1: List all directories level by level. The directories of every level
+                // are being listed in parallel.
                 long listFilesTimeBefore = System.currentTimeMillis();
-                final HashSet<String> directoriesScanned = new HashSet<>();
-                // Count total files, and stack them
+                List<DatabaseHelper.ScannedDir> scannedDirs = new ArrayList<>();
+                Set<String> directoriesScanned = new HashSet<>();
+                Map<String, Long> mediaToScan = new LinkedHashMap<>();
+                int reusedDirCount = 0;
+                List<File> directories = new ArrayList<>(mediaDirs);
                 while (!directories.isEmpty()) {
-                    File dir = directories.pop();
-                    String dirPath = dir.getAbsolutePath();
-
-                    // Skip some system folders
-                    if (dirPath.startsWith("/proc/") || dirPath.startsWith("/sys/")
-                            || dirPath.startsWith("/dev/")) {
-                        continue;
-                    }
-
-                    // Do not scan again if same canonical path
-                    try {
-                        dirPath = dir.getCanonicalPath();
-                    } catch (IOException e) {
-                        Log.e(TAG, "GetMediaItemsRunnable#run() - " + e.getClass() + ": "
-                                + e.getLocalizedMessage());
-                    }
-                    if (directoriesScanned.contains(dirPath)) {
-                        continue;
-                    } else {
-                        directoriesScanned.add(dirPath);
-                    }
-
-                    // Do no scan media in .nomedia folders
-                    if (new File(dirPath + "/.nomedia").exists()) {
-                        continue;
+                    List<Callable<ListedDir>> tasks = new ArrayList<>();
+                    for (File dir : directories) {
+                        tasks.add(new ListDirCallable(dir, previousDirs, listFilesTimeBefore));
                     }
-
-                    // Filter the extensions and the folders
-                    try {
-                        File[] f = dir.listFiles(new MediaItemFilter());
-                        if (f != null) {
-                            for (File file : f) {
-                                if (file.isFile()) {
-                                    mediaToScan.add(file);
-                                } else if (file.isDirectory()) {
-                                    directories.push(file);
-                                }
-                            }
+                    List<File> subDirs = new ArrayList<>();
+                    for (Future<ListedDir> future : executor.invokeAll(tasks)) {
+                        ListedDir listedDir = getResult(future);
+                        if (listedDir == null
+                                || !directoriesScanned.add(listedDir.mScannedDir.mPath)) {
+                            continue;
+                        }
+                        scannedDirs.add(listedDir.mScannedDir);
+                        if (listedDir.mReused) {
+                            reusedDirCount++;
+                        }
+                        subDirs.addAll(listedDir.mSubDirs);
+                        for (int i = 0; i < listedDir.mFileUris.size(); i++) {
+                            mediaToScan.put(listedDir.mFileUris.get(i),
+                                    listedDir.mFileLastModifieds.get(i));
                         }
-                    } catch (Exception e) {
-                        // listFiles can fail in OutOfMemoryError, go to the next folder
-                        Log.e(TAG, "GetMediaItemsRunnable#run() - " + e.getClass() + ": "
-                                + e.getLocalizedMessage());
-                        continue;
                     }
-
                     if (mIsStopping) {
                         Log.d(TAG, "Stopping scan");
                         return;
                     }
+                    directories = subDirs;
                 }
                 long listFilesTime = System.currentTimeMillis() - listFilesTimeBefore;
-                int parseCounter = 0;
+
+                // Phase 2: Parse all files that have been added or changed since the last scan
                 long parsingTimeBefore = System.currentTimeMillis();
-                ArrayList<MediaWrapper> mediaWrappers = new ArrayList<>();
-                // Process the stacked items
-                for (File file : mediaToScan) {
-                    String fileURI = AndroidUtil.FileToUri(file).toString();
-                    if (existingMedias.containsKey(fileURI)) {
-                        //Log.d(TAG, "File has already been scanned: " + fileURI);
-                        // only add file if it is not already in the list. eg. if a user selects a
-                        // subfolder as well
-                        if (!addedLocations.contains(fileURI)) {
-                            //Log.d(TAG, "File added to processing queue: " + fileURI);
-                            // get existing media item from database
-                            mediaWrappers.add(existingMedias.get(fileURI));
-                            addedLocations.add(fileURI);
-                        }
+                List<String> unchangedLocations = new ArrayList<>();
+                List<Callable<MediaWrapper>> parseTasks = new ArrayList<>();
+                for (Map.Entry<String, Long> entry : mediaToScan.entrySet()) {
+                    Long existingLastModified = existingLastModifieds.get(entry.getKey());
+                    if (entry.getValue().equals(existingLastModified)) {
+                        unchangedLocations.add(entry.getKey());
                     } else {
-                        // create new media item
-                        final Media media = new Media(VLCMediaPlayer.getLibVlcInstance(),
-                                Uri.parse(fileURI));
-                        media.parse();
-                        parseCounter++;
-                        // skip files with .mod extension and no duration
-                        if ((media.getDuration() == 0 || (media.getTrackCount() != 0
-                                && TextUtils.isEmpty(media.getTrack(0).codec)))
-                                && fileURI.endsWith(".mod")) {
-                            Log.d(TAG, "File skipped: " + fileURI);
-                            continue;
-                        }
-                        //Log.d(TAG, "File added to database and processing queue: " + fileURI);
-                        MediaWrapper mw = new MediaWrapper(media);
-                        media.release();
-                        mw.setLastModified(file.lastModified());
-                        mediaWrappers.add(mw);
+                        parseTasks.add(new ParseMediaCallable(entry.getKey(), entry.getValue()));
                     }
-                    if (mIsStopping) {
-                        Log.d(TAG, "Stopping scan");
-                        return;
+                }
+                List<MediaWrapper> parsedMedias = new ArrayList<>();
+                for (Future<MediaWrapper> future : executor.invokeAll(parseTasks)) {
+                    MediaWrapper mw = getResult(future);
+                    if (mw != null) {
+                        parsedMedias.add(mw);
                     }
                 }
-                Log.d(TAG, "Listing files took " + listFilesTime + "ms.");
-                Log.d(TAG, "Scanned " + mediaToScan.size() + " files.");
-                Log.d(TAG, "Actually parsed " + parseCounter + " files.");
-                Log.d(TAG,
-                        "Parsing took " + (System.currentTimeMillis() - parsingTimeBefore) + "ms.");
-                // Add all items to the database
-                DatabaseHelper.get().addMedias(mediaWrappers);
-
-                processMediaWrappers(mediaWrappers);
-            } finally {
-                // remove old files & folders from database if storage is mounted
-                if (!mIsStopping && Environment.getExternalStorageState()
-                        .equals(Environment.MEDIA_MOUNTED)) {
-                    for (String fileURI : addedLocations) {
-                        existingMedias.remove(fileURI);
+                if (mIsStopping) {
+                    Log.d(TAG, "Stopping scan");
+                    return;
+                }
+                long parsingTime = System.currentTimeMillis() - parsingTimeBefore;
+
+                // Phase 3: Apply the changes to the database and the CollectionDb.
+                // Old files & folders are only removed if the storage is mounted.
+                long applyTimeBefore = System.currentTimeMillis();
+                Set<String> removedLocations = new HashSet<>();
+                boolean isMounted = Environment.getExternalStorageState()
+                        .equals(Environment.MEDIA_MOUNTED);
+                if (isMounted) {
+                    removedLocations.addAll(existingLastModifieds.keySet());
+                    removedLocations.removeAll(mediaToScan.keySet());
+                }
+                CollectionDb db = CollectionDbManager.get().getCollectionDb(getId());
+                boolean rebuild = existingLastModifieds.isEmpty() || db.getLastUpdated() < 0;
+                if (rebuild || !parsedMedias.isEmpty() || !removedLocations.isEmpty()) {
+                    // Only now do we actually need the complete existing media items. They have
+                    // to be loaded before the changed ones are being replaced in the database.
+                    HashMap<String, MediaWrapper> existingMedias =
+                            DatabaseHelper.get().getMedias();
+                    Map<String, MediaWrapper> currentMedias = new HashMap<>();
+                    if (isMounted) {
+                        for (String location : unchangedLocations) {
+                            MediaWrapper mw = existingMedias.get(location);
+                            if (mw != null) {
+                                currentMedias.put(location, mw);
+                            }
+                        }
+                    } else {
+                        currentMedias.putAll(existingMedias);
+                    }
+                    for (MediaWrapper mw : parsedMedias) {
+                        currentMedias.put(mw.getLocation(), mw);
                     }
-                    Log.d(TAG, "Removed " + existingMedias.keySet().size()
-                            + " media items from database");
-                    DatabaseHelper.get().removeMedias(existingMedias.keySet());
+                    DatabaseHelper.get().addMedias(parsedMedias);
+                    DatabaseHelper.get().removeMedias(removedLocations);
+                    processMediaWrappers(db, rebuild, existingMedias, currentMedias,
+                            parsedMedias, removedLocations);
+                } else {
+                    Log.d(TAG, "No media items have been added, changed or removed.");
+                    db.addTracks(new ArrayList<ScriptResolverTrack>());
                 }
-
+                DatabaseHelper.get().storeScannedDirs(scannedDirs);
+                long applyTime = System.currentTimeMillis() - applyTimeBefore;
+
+                Log.d(TAG, "Listing " + scannedDirs.size() + " directories took "
+                        + listFilesTime + "ms (" + reusedDirCount + " unchanged directories "
+                        + "have been skipped).");
+                Log.d(TAG, "Scanned " + mediaToScan.size() + " files ("
+                        + mediaToScan.size() * 1000L / Math.max(listFilesTime, 1)
+                        + " files/s).");
+                Log.d(TAG, "Parsing " + parseTasks.size() + " files took " + parsingTime + "ms ("
+                        + parseTasks.size() * 1000L / Math.max(parsingTime, 1) + " files/s).");
+                Log.d(TAG, "Applying " + parsedMedias.size() + " added or changed and "
+                        + removedLocations.size() + " removed media items took " + applyTime
+                        + "ms.");
+            } catch (InterruptedException e) {
+                Log.d(TAG, "Scan has been interrupted");
+            } finally {
+                executor.shutdownNow();
                 if (mRestart) {
                     Log.d(TAG, "Restarting scan");
                     mRestart = false;
@@ -328,18 +493,101 @@ public class UserCollection extends DbCollection {
             }
         }
 
-        private void processMediaWrappers(List<MediaWrapper> mws) {
-            Log.d(TAG, "Processing " + mws.size() + " media items...");
-            Map<String, Set<String>> albumArtistsMap = new HashMap<>();
-            for (MediaWrapper mw : mws) {
+        private <T> T getResult(Future<T> future) throws InterruptedException {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                Log.e(TAG, "GetMediaItemsRunnable#getResult() - " + e.getClass() + ": "
+                        + e.getLocalizedMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Applies the changes to the CollectionDb. Only the albums that contain an added, changed
+         * or removed media item are being removed from and re-added to the CollectionDb, so that
+         * compilation albums are being detected the same way as if the whole CollectionDb had
+         * been rebuilt.
+         *
+         * @param rebuild whether or not the CollectionDb should be rebuilt from scratch, because
+         *                it has never been populated before
+         */
+        private void processMediaWrappers(CollectionDb db, boolean rebuild,
+                Map<String, MediaWrapper> existingMedias, Map<String, MediaWrapper> currentMedias,
+                List<MediaWrapper> parsedMedias, Set<String> removedLocations) {
+            if (rebuild) {
+                Log.d(TAG, "Processing " + currentMedias.size() + " media items...");
+                List<ScriptResolverTrack> tracks = toTracks(currentMedias.values());
+                db.wipe();
+                db.addTracks(tracks);
+                Log.d(TAG, "Processed " + currentMedias.size() + " media items. "
+                        + tracks.size() + " tracks have been added to the UserCollection.");
+                return;
+            }
+
+            Set<String> affectedAlbumKeys = new HashSet<>();
+            Set<String> changedAlbumArtists = new HashSet<>();
+            for (String location : removedLocations) {
+                addAlbumKey(existingMedias.get(location), affectedAlbumKeys, changedAlbumArtists);
+            }
+            for (MediaWrapper mw : parsedMedias) {
+                addAlbumKey(existingMedias.get(mw.getLocation()), affectedAlbumKeys,
+                        changedAlbumArtists);
+                addAlbumKey(mw, affectedAlbumKeys, null);
+            }
+            if (affectedAlbumKeys.isEmpty()) {
+                db.addTracks(new ArrayList<ScriptResolverTrack>());
+                return;
+            }
+
+            Set<String> removedUrls = new HashSet<>(removedLocations);
+            for (MediaWrapper mw : existingMedias.values()) {
+                if (affectedAlbumKeys.contains(getAlbumKey(mw))) {
+                    removedUrls.add(mw.getLocation());
+                }
+            }
+            List<MediaWrapper> addedMedias = new ArrayList<>();
+            for (MediaWrapper mw : currentMedias.values()) {
                 if (mw.getType() == MediaWrapper.TYPE_AUDIO) {
-                    String albumKey = mw.getAlbum() != null ? mw.getAlbum().toLowerCase() : "";
-                    if (albumArtistsMap.get(albumKey) == null) {
-                        albumArtistsMap.put(albumKey, new HashSet<String>());
+                    changedAlbumArtists.remove(nullToEmpty(mw.getAlbumArtist()));
+                    if (affectedAlbumKeys.contains(getAlbumKey(mw))) {
+                        addedMedias.add(mw);
                     }
-                    albumArtistsMap.get(albumKey).add(mw.getArtist());
                 }
             }
+            Log.d(TAG, "Processing " + affectedAlbumKeys.size() + " changed albums...");
+            int removedCount = db.removeTracks(removedUrls);
+            db.removeAlbumArtists(changedAlbumArtists);
+            List<ScriptResolverTrack> tracks = toTracks(addedMedias);
+            db.addTracks(tracks);
+            Log.d(TAG, "Processed " + affectedAlbumKeys.size() + " changed albums. "
+                    + removedCount + " tracks have been removed from and " + tracks.size()
+                    + " tracks have been added to the UserCollection.");
+        }
+
+        private void addAlbumKey(MediaWrapper mw, Set<String> albumKeys,
+                Set<String> albumArtists) {
+            if (mw != null && mw.getType() == MediaWrapper.TYPE_AUDIO) {
+                albumKeys.add(getAlbumKey(mw));
+                if (albumArtists != null) {
+                    albumArtists.add(nullToEmpty(mw.getAlbumArtist()));
+                }
+            }
+        }
+
+        /**
+         * @return the same key that {@link CollectionDb#addTracks(List)} uses to group the tracks
+         * of an album
+         */
+        private String getAlbumKey(MediaWrapper mw) {
+            return nullToEmpty(mw.getAlbum()) + "♠" + nullToEmpty(mw.getAlbumArtist());
+        }
+
+        private String nullToEmpty(String string) {
+            return string != null ? string : "";
+        }
+
+        private List<ScriptResolverTrack> toTracks(Collection<MediaWrapper> mws) {
             List<ScriptResolverTrack> tracks = new ArrayList<>();
             for (MediaWrapper mw : mws) {
                 if (mw.getType() == MediaWrapper.TYPE_AUDIO) {
@@ -356,11 +604,7 @@ public class UserCollection extends DbCollection {
                     tracks.add(track);
                 }
             }
-            CollectionDb db = CollectionDbManager.get().getCollectionDb(getId());
-            db.wipe();
-            db.addTracks(tracks);
-            Log.d(TAG, "Processed " + mws.size() + " media items. " + tracks.size()
-                    + " tracks have been added to the UserCollection.");
+            return tracks;
         }
     }
 
@@ -29,10 +29,13 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -113,6 +116,8 @@ public class CollectionDb extends SQLiteOpenHelper {
 
     protected static final int ACTION_ADDTRACKS = 1;
 
+    protected static final int ACTION_REMOVETRACKS = 2;
+
     protected static final int TYPE_DEFAULT = 0;
 
     // This type marks an entry that has been explicitly loved.
@@ -225,6 +230,26 @@ public class CollectionDb extends SQLiteOpenHelper {
 
     private FuzzyIndex mFuzzyIndex;
 
+    private static final int INGEST_CHUNK_SIZE = 500;
+
+    // In-memory dictionaries of the ids of all default artists and albums. Maintained
+    // incrementally by addTracks and reset whenever the tables are being wiped.
+    private Map<String, Long> mArtistIds;
+
+    private Map<String, Long> mAlbumIds;
+
+    private SQLiteStatement mInsertArtistStatement;
+
+    private SQLiteStatement mInsertAlbumArtistStatement;
+
+    private SQLiteStatement mInsertAlbumStatement;
+
+    private SQLiteStatement mInsertArtistAlbumStatement;
+
+    private SQLiteStatement mInsertTrackStatement;
+
+    private volatile float mLastIngestTracksPerSecond;
+
     public CollectionDb(Context context, String collectionId) {
         super(context, collectionId + DB_FILE_SUFFIX, null, DB_VERSION);
 
@@ -274,164 +299,321 @@ public class CollectionDb extends SQLiteOpenHelper {
         }
     }
 
-    public synchronized void addTracks(List<ScriptResolverTrack> tracks) {
-        long time = System.currentTimeMillis();
+    public void addTracks(List<ScriptResolverTrack> tracks) {
+        TrackIngest ingest = new TrackIngest();
+        ingest.add(tracks);
+        addTracks(ingest);
+    }
 
-        // Check if we want to store the album as a compilation album (with artist "Various Artists")
-        Map<String, Set<String>> albumArtists = new HashMap<>();
-        for (ScriptResolverTrack track : tracks) {
-            if (track.artist == null) {
-                track.artist = "";
-            }
-            if (track.artistDisambiguation == null) {
-                track.artistDisambiguation = "";
-            }
-            if (track.album == null) {
-                track.album = "";
-            }
-            if (track.albumArtist == null) {
-                track.albumArtist = "";
-            }
-            if (track.albumArtistDisambiguation == null) {
-                track.albumArtistDisambiguation = "";
-            }
-            if (track.track == null) {
-                track.track = "";
-            }
-            Set<String> artists = albumArtists.get(track.album + "♠" + track.albumArtist);
-            if (artists == null) {
-                artists = new HashSet<>();
-                albumArtists.put(track.album + "♠" + track.albumArtist, artists);
+    /**
+     * Collects the tracks that should be added to a {@link CollectionDb}. Tracks can be added in
+     * chunks (e.g. while they are still being decoded). Every chunk is being normalized and
+     * analyzed right away, so that {@link #addTracks(TrackIngest)} only has to write them.
+     */
+    public static class TrackIngest {
+
+        private final List<ScriptResolverTrack> mTracks = new ArrayList<>();
+
+        private final Map<String, Set<String>> mAlbumArtists = new HashMap<>();
+
+        private final Map<String, Long> mArtistLastModifiedMap = new HashMap<>();
+
+        private final Map<String, Long> mAlbumLastModifiedMap = new HashMap<>();
+
+        private long mDecodeTime;
+
+        private final long mStartTime = System.currentTimeMillis();
+
+        public void add(List<ScriptResolverTrack> tracks) {
+            // Check if we want to store the album as a compilation album (with artist
+            // "Various Artists") and determine the most recent lastModified timestamp of every
+            // artist and album
+            for (ScriptResolverTrack track : tracks) {
+                if (track.artist == null) {
+                    track.artist = "";
+                }
+                if (track.artistDisambiguation == null) {
+                    track.artistDisambiguation = "";
+                }
+                if (track.album == null) {
+                    track.album = "";
+                }
+                if (track.albumArtist == null) {
+                    track.albumArtist = "";
+                }
+                if (track.albumArtistDisambiguation == null) {
+                    track.albumArtistDisambiguation = "";
+                }
+                if (track.track == null) {
+                    track.track = "";
+                }
+                String albumKey = track.album + "♠" + track.albumArtist;
+                Set<String> artists = mAlbumArtists.get(albumKey);
+                if (artists == null) {
+                    artists = new HashSet<>();
+                    mAlbumArtists.put(albumKey, artists);
+                }
+                if (artists.size() < 2) {
+                    artists.add(track.artist);
+                }
+                putIfNewer(mArtistLastModifiedMap,
+                        concatKeys(track.artist, track.artistDisambiguation), track.lastModified);
+                putIfNewer(mAlbumLastModifiedMap, albumKey, track.lastModified);
             }
-            if (artists.size() < 2) {
-                artists.add(track.artist);
+            mTracks.addAll(tracks);
+            mDecodeTime = System.currentTimeMillis() - mStartTime;
+        }
+
+        public int size() {
+            return mTracks.size();
+        }
+    }
+
+    /**
+     * Writes the tracks of the given {@link TrackIngest}. Tracks of the same album have to be
+     * added with the same {@link TrackIngest}, so that compilation albums are being detected.
+     */
+    public synchronized void addTracks(TrackIngest ingest) {
+        long time = System.currentTimeMillis();
+
+        List<ScriptResolverTrack> tracks = ingest.mTracks;
+        Map<String, Set<String>> albumArtists = ingest.mAlbumArtists;
+        Map<String, Long> artistLastModifiedMap = ingest.mArtistLastModifiedMap;
+        Map<String, Long> albumLastModifiedMap = ingest.mAlbumLastModifiedMap;
+        String compilationArtistKey = concatKeys(Artist.COMPILATION_ARTIST.getName(), "");
+        for (String albumKey : albumArtists.keySet()) {
+            if (albumArtists.get(albumKey).size() > 1) {
+                putIfNewer(artistLastModifiedMap, compilationArtistKey,
+                        albumLastModifiedMap.get(albumKey));
             }
         }
 
-        Map<String, Long> artistLastModifiedMap = new HashMap<>();
-        // First we insert all artists and albumArtists
-        mDb.beginTransaction();
-        for (ScriptResolverTrack track : tracks) {
-            if (albumArtists.get(track.album + "♠" + track.albumArtist).size() > 1) {
-                ContentValues values = new ContentValues();
-                values.put(ARTISTS_ARTIST, Artist.COMPILATION_ARTIST.getName());
-                values.put(ARTISTS_ARTISTDISAMBIGUATION, "");
-                String artistKey = Artist.COMPILATION_ARTIST.getName() + "♠" + "";
-                Long lastModified = artistLastModifiedMap.get(artistKey);
-                if (lastModified == null || lastModified < track.lastModified) {
-                    artistLastModifiedMap.put(artistKey, track.lastModified);
-                    lastModified = track.lastModified;
+        ensureIngestStatements();
+        Set<String> insertedAlbumArtists = new HashSet<>();
+        Set<String> insertedArtistAlbums = new HashSet<>();
+        int tracksSize = tracks.size();
+        for (int chunkStart = 0; chunkStart < tracksSize; chunkStart += INGEST_CHUNK_SIZE) {
+            int chunkEnd = Math.min(chunkStart + INGEST_CHUNK_SIZE, tracksSize);
+            boolean success = false;
+            mDb.beginTransaction();
+            try {
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    ScriptResolverTrack track = tracks.get(i);
+                    String albumKey = track.album + "♠" + track.albumArtist;
+                    String artistKey = concatKeys(track.artist, track.artistDisambiguation);
+                    long artistId = getOrInsertArtist(track.artist, track.artistDisambiguation,
+                            artistLastModifiedMap.get(artistKey));
+                    long albumArtistId;
+                    if (albumArtists.get(albumKey).size() == 1) {
+                        albumArtistId = artistId;
+                    } else {
+                        albumArtistId = getOrInsertArtist(Artist.COMPILATION_ARTIST.getName(), "",
+                                artistLastModifiedMap.get(compilationArtistKey));
+                    }
+                    if (insertedAlbumArtists.add(
+                            concatKeys(track.albumArtist, track.albumArtistDisambiguation))) {
+                        mInsertAlbumArtistStatement.clearBindings();
+                        mInsertAlbumArtistStatement.bindString(1, track.albumArtist);
+                        mInsertAlbumArtistStatement.bindString(2,
+                                track.albumArtistDisambiguation);
+                        mInsertAlbumArtistStatement.bindLong(3,
+                                artistLastModifiedMap.get(artistKey));
+                        mInsertAlbumArtistStatement.executeInsert();
+                    }
+                    long albumId = getOrInsertAlbum(track.album, albumArtistId, track.imagePath,
+                            albumLastModifiedMap.get(albumKey));
+                    if (insertedArtistAlbums.add(concatKeys(albumId, artistId))) {
+                        mInsertArtistAlbumStatement.clearBindings();
+                        mInsertArtistAlbumStatement.bindLong(1, albumId);
+                        mInsertArtistAlbumStatement.bindLong(2, artistId);
+                        mInsertArtistAlbumStatement.executeInsert();
+                    }
+                    mInsertTrackStatement.clearBindings();
+                    mInsertTrackStatement.bindString(1, track.track);
+                    mInsertTrackStatement.bindLong(2, artistId);
+                    mInsertTrackStatement.bindLong(3, albumId);
+                    bindStringOrNull(mInsertTrackStatement, 4, track.url);
+                    mInsertTrackStatement.bindLong(5, (int) track.duration);
+                    bindStringOrNull(mInsertTrackStatement, 6, track.linkUrl);
+                    mInsertTrackStatement.bindLong(7, track.albumpos);
+                    mInsertTrackStatement.bindLong(8, track.lastModified);
+                    mInsertTrackStatement.executeInsert();
                 }
-                values.put(ARTISTS_LASTMODIFIED, lastModified);
-                values.put(ARTISTS_TYPE, TYPE_DEFAULT);
-                mDb.insert(TABLE_ARTISTS, null, values);
-            }
-            ContentValues values = new ContentValues();
-            values.put(ARTISTS_ARTIST, track.artist);
-            values.put(ARTISTS_ARTISTDISAMBIGUATION, track.artistDisambiguation);
-            String artistKey = track.artist + "♠" + track.artistDisambiguation;
-            Long lastModified = artistLastModifiedMap.get(artistKey);
-            if (lastModified == null || lastModified < track.lastModified) {
-                artistLastModifiedMap.put(artistKey, track.lastModified);
-                lastModified = track.lastModified;
-            }
-            values.put(ARTISTS_LASTMODIFIED, lastModified);
-            values.put(ARTISTS_TYPE, TYPE_DEFAULT);
-            mDb.insert(TABLE_ARTISTS, null, values);
-            values = new ContentValues();
-            values.put(ALBUMARTISTS_ALBUMARTIST, track.albumArtist);
-            values.put(ALBUMARTISTS_ALBUMARTISTDISAMBIGUATION, track.albumArtistDisambiguation);
-            values.put(ALBUMARTISTS_LASTMODIFIED, lastModified);
-            mDb.insert(TABLE_ALBUMARTISTS, null, values);
-        }
-        mDb.setTransactionSuccessful();
-        mDb.endTransaction();
-
-        Cursor cursor = mDb.query(TABLE_ARTISTS,
-                new String[]{ID, ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION},
-                null, null, null, null, null);
-        Map<String, Integer> cachedArtists = cursorToMap(cursor);
-
-        Map<String, Long> albumLastModifiedMap = new HashMap<>();
-        mDb.beginTransaction();
-        for (ScriptResolverTrack track : tracks) {
-            ContentValues values = new ContentValues();
-            values.put(ALBUMS_ALBUM, track.album);
-            int albumArtistId;
-            if (albumArtists.get(track.album + "♠" + track.albumArtist).size() == 1) {
-                albumArtistId = cachedArtists.get(
-                        concatKeys(track.artist, track.artistDisambiguation));
-            } else {
-                albumArtistId = cachedArtists.get(
-                        concatKeys(Artist.COMPILATION_ARTIST.getName(), ""));
-            }
-            values.put(ALBUMS_ALBUMARTISTID, albumArtistId);
-            values.put(ALBUMS_IMAGEPATH, track.imagePath);
-            String artistKey = track.album + "♠" + albumArtistId;
-            Long lastModified = albumLastModifiedMap.get(artistKey);
-            if (lastModified == null || lastModified < track.lastModified) {
-                albumLastModifiedMap.put(artistKey, track.lastModified);
-                lastModified = track.lastModified;
-            }
-            values.put(ALBUMS_LASTMODIFIED, lastModified);
-            values.put(ALBUMS_TYPE, TYPE_DEFAULT);
-            mDb.insert(TABLE_ALBUMS, null, values);
-        }
-        mDb.setTransactionSuccessful();
-        mDb.endTransaction();
-
-        cursor = mDb.query(TABLE_ALBUMS,
-                new String[]{ID, ALBUMS_ALBUM, ALBUMS_ALBUMARTISTID},
-                null, null, null, null, null);
-        Map<String, Integer> cachedAlbums = cursorToMap(cursor);
+                mDb.setTransactionSuccessful();
+                success = true;
+            } finally {
+                mDb.endTransaction();
+                if (!success) {
+                    // The transaction has been rolled back, so our id dictionaries might contain
+                    // ids that don't exist anymore.
+                    mArtistIds = null;
+                    mAlbumIds = null;
+                }
+            }
+        }
 
-        mDb.beginTransaction();
-        for (ScriptResolverTrack track : tracks) {
-            ContentValues values = new ContentValues();
-            int albumArtistId;
-            if (albumArtists.get(track.album + "♠" + track.albumArtist).size() == 1) {
-                albumArtistId = cachedArtists.get(
-                        concatKeys(track.artist, track.artistDisambiguation));
-            } else {
-                albumArtistId = cachedArtists.get(
-                        concatKeys(Artist.COMPILATION_ARTIST.getName(), ""));
-            }
-            int artistId = cachedArtists.get(concatKeys(track.artist, track.artistDisambiguation));
-            int albumId = cachedAlbums.get(concatKeys(track.album, albumArtistId));
-            values.put(ARTISTALBUMS_ARTISTID, artistId);
-            values.put(ARTISTALBUMS_ALBUMID, albumId);
-            mDb.insert(TABLE_ARTISTALBUMS, null, values);
-            values = new ContentValues();
-            values.put(TRACKS_TRACK, track.track);
-            values.put(TRACKS_ARTISTID, artistId);
-            values.put(TRACKS_ALBUMID, albumId);
-            values.put(TRACKS_URL, track.url);
-            values.put(TRACKS_DURATION, (int) track.duration);
-            values.put(TRACKS_LINKURL, track.linkUrl);
-            values.put(TRACKS_ALBUMPOS, track.albumpos);
-            values.put(TRACKS_LASTMODIFIED, track.lastModified);
-            mDb.insert(TABLE_TRACKS, null, values);
-        }
-        mDb.setTransactionSuccessful();
-        mDb.endTransaction();
-
-        Log.d(TAG, "Added " + tracks.size() + " tracks in " + (System.currentTimeMillis() - time)
-                + "ms");
-        if (tracks.size() > 0) {
+        long duration = Math.max(System.currentTimeMillis() - time, 1);
+        mLastIngestTracksPerSecond = tracksSize * 1000f / duration;
+        Log.d(TAG, "Added " + tracksSize + " tracks in " + duration + "ms ("
+                + (int) mLastIngestTracksPerSecond + " tracks/s), decoded and analyzed in "
+                + ingest.mDecodeTime + "ms");
+        if (tracksSize > 0) {
             storeNewRevision(String.valueOf(System.currentTimeMillis()), ACTION_ADDTRACKS);
         }
         mFuzzyIndex.ensureIndex();
         ((DbCollection) CollectionManager.get().getCollection(mCollectionId)).setInitialized(true);
     }
 
-    private static Map<String, Integer> cursorToMap(Cursor cursor) {
-        Map<String, Integer> map = new HashMap<>();
+    /**
+     * @return the throughput of the last call to {@link #addTracks(List)} in tracks per second
+     */
+    public float getLastIngestTracksPerSecond() {
+        return mLastIngestTracksPerSecond;
+    }
+
+    private static void putIfNewer(Map<String, Long> map, String key, long lastModified) {
+        Long current = map.get(key);
+        if (current == null || current < lastModified) {
+            map.put(key, lastModified);
+        }
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Compiles the statements used by {@link #addTracks(List)} and loads the ids of all default
+     * artists and albums into memory, if that hasn't been done yet.
+     */
+    private void ensureIngestStatements() {
+        if (mInsertArtistStatement == null) {
+            mInsertArtistStatement = mDb.compileStatement("INSERT INTO " + TABLE_ARTISTS + " ("
+                    + ARTISTS_ARTIST + ", " + ARTISTS_ARTISTDISAMBIGUATION + ", "
+                    + ARTISTS_LASTMODIFIED + ", " + ARTISTS_TYPE + ") VALUES (?, ?, ?, "
+                    + TYPE_DEFAULT + ")");
+            mInsertAlbumArtistStatement = mDb.compileStatement("INSERT INTO " + TABLE_ALBUMARTISTS
+                    + " (" + ALBUMARTISTS_ALBUMARTIST + ", "
+                    + ALBUMARTISTS_ALBUMARTISTDISAMBIGUATION + ", " + ALBUMARTISTS_LASTMODIFIED
+                    + ") VALUES (?, ?, ?)");
+            mInsertAlbumStatement = mDb.compileStatement("INSERT INTO " + TABLE_ALBUMS + " ("
+                    + ALBUMS_ALBUM + ", " + ALBUMS_ALBUMARTISTID + ", " + ALBUMS_IMAGEPATH + ", "
+                    + ALBUMS_LASTMODIFIED + ", " + ALBUMS_TYPE + ") VALUES (?, ?, ?, ?, "
+                    + TYPE_DEFAULT + ")");
+            mInsertArtistAlbumStatement = mDb.compileStatement("INSERT INTO " + TABLE_ARTISTALBUMS
+                    + " (" + ARTISTALBUMS_ALBUMID + ", " + ARTISTALBUMS_ARTISTID
+                    + ") VALUES (?, ?)");
+            mInsertTrackStatement = mDb.compileStatement("INSERT INTO " + TABLE_TRACKS + " ("
+                    + TRACKS_TRACK + ", " + TRACKS_ARTISTID + ", " + TRACKS_ALBUMID + ", "
+                    + TRACKS_URL + ", " + TRACKS_DURATION + ", " + TRACKS_LINKURL + ", "
+                    + TRACKS_ALBUMPOS + ", " + TRACKS_LASTMODIFIED
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        if (mArtistIds == null) {
+            Cursor cursor = mDb.query(TABLE_ARTISTS,
+                    new String[]{ID, ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION},
+                    ARTISTS_TYPE + " = ?", new String[]{String.valueOf(TYPE_DEFAULT)},
+                    null, null, null);
+            mArtistIds = cursorToMap(cursor);
+        }
+        if (mAlbumIds == null) {
+            Cursor cursor = mDb.query(TABLE_ALBUMS,
+                    new String[]{ID, ALBUMS_ALBUM, ALBUMS_ALBUMARTISTID},
+                    ALBUMS_TYPE + " = ?", new String[]{String.valueOf(TYPE_DEFAULT)},
+                    null, null, null);
+            mAlbumIds = cursorToMap(cursor);
+        }
+    }
+
+    /**
+     * Closes the compiled ingest statements and drops the id dictionaries. Must be called
+     * whenever the tables are being dropped.
+     */
+    private void resetIngestState() {
+        if (mInsertArtistStatement != null) {
+            mInsertArtistStatement.close();
+            mInsertAlbumArtistStatement.close();
+            mInsertAlbumStatement.close();
+            mInsertArtistAlbumStatement.close();
+            mInsertTrackStatement.close();
+            mInsertArtistStatement = null;
+        }
+        mArtistIds = null;
+        mAlbumIds = null;
+    }
+
+    private long getOrInsertArtist(String artist, String artistDisambiguation,
+            long lastModified) {
+        String key = concatKeys(artist, artistDisambiguation);
+        Long id = mArtistIds.get(key);
+        if (id == null) {
+            mInsertArtistStatement.clearBindings();
+            mInsertArtistStatement.bindString(1, artist);
+            mInsertArtistStatement.bindString(2, artistDisambiguation);
+            mInsertArtistStatement.bindLong(3, lastModified);
+            id = mInsertArtistStatement.executeInsert();
+            if (id < 0) {
+                // The row already existed, so we have to look up its id
+                id = queryId(TABLE_ARTISTS, ARTISTS_ARTIST + " = ? AND "
+                                + ARTISTS_ARTISTDISAMBIGUATION + " = ? AND " + ARTISTS_TYPE + " = ?",
+                        new String[]{artist, artistDisambiguation, String.valueOf(TYPE_DEFAULT)});
+            }
+            mArtistIds.put(key, id);
+        }
+        return id;
+    }
+
+    private long getOrInsertAlbum(String album, long albumArtistId, String imagePath,
+            long lastModified) {
+        String key = concatKeys(album, albumArtistId);
+        Long id = mAlbumIds.get(key);
+        if (id == null) {
+            mInsertAlbumStatement.clearBindings();
+            mInsertAlbumStatement.bindString(1, album);
+            mInsertAlbumStatement.bindLong(2, albumArtistId);
+            bindStringOrNull(mInsertAlbumStatement, 3, imagePath);
+            mInsertAlbumStatement.bindLong(4, lastModified);
+            id = mInsertAlbumStatement.executeInsert();
+            if (id < 0) {
+                // The row already existed, so we have to look up its id
+                id = queryId(TABLE_ALBUMS, ALBUMS_ALBUM + " = ? AND " + ALBUMS_ALBUMARTISTID
+                                + " = ? AND " + ALBUMS_TYPE + " = ?",
+                        new String[]{album, String.valueOf(albumArtistId),
+                                String.valueOf(TYPE_DEFAULT)});
+            }
+            mAlbumIds.put(key, id);
+        }
+        return id;
+    }
+
+    private long queryId(String table, String selection, String[] selectionArgs) {
+        Cursor cursor = null;
+        try {
+            cursor = mDb.query(table, new String[]{ID}, selection, selectionArgs, null, null,
+                    null);
+            if (cursor.moveToFirst()) {
+                return cursor.getLong(0);
+            }
+            throw new SQLiteException("Couldn't insert or find row in table " + table);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    private static Map<String, Long> cursorToMap(Cursor cursor) {
+        Map<String, Long> map = new HashMap<>();
         try {
             cursor.moveToFirst();
             if (!cursor.isAfterLast()) {
                 do {
                     map.put(concatKeys(cursor.getString(1), cursor.getString(2)),
-                            cursor.getInt(0));
+                            cursor.getLong(0));
                 } while (cursor.moveToNext());
             }
         } finally {
@@ -447,6 +629,7 @@ public class CollectionDb extends SQLiteOpenHelper {
     }
 
     private void wipe(SQLiteDatabase db) {
+        resetIngestState();
         db.execSQL("DROP TABLE IF EXISTS `" + TABLE_ARTISTS + "`;");
         db.execSQL(CREATE_TABLE_ARTISTS);
         db.execSQL("DROP TABLE IF EXISTS `" + TABLE_ALBUMARTISTS + "`;");
@@ -460,6 +643,140 @@ public class CollectionDb extends SQLiteOpenHelper {
         storeNewRevision(db, String.valueOf(System.currentTimeMillis()), ACTION_WIPE);
     }
 
+    /**
+     * Removes the tracks with the given urls. Albums and artists that don't have any tracks left
+     * afterwards are being removed as well, unless they have been loved by the user. The removed
+     * tracks are also being removed from the {@link FuzzyIndex}, so that the collection can be
+     * updated without having to wipe it.
+     *
+     * @param urls the urls of the tracks that should be removed
+     * @return the number of tracks that have been removed
+     */
+    public synchronized int removeTracks(Collection<String> urls) {
+        if (urls.isEmpty()) {
+            return 0;
+        }
+        long time = System.currentTimeMillis();
+        Set<String> urlSet = new HashSet<>(urls);
+        List<Integer> trackIds = new ArrayList<>();
+        Set<Long> candidateArtistIds = new HashSet<>();
+        Set<Long> candidateAlbumIds = new HashSet<>();
+        Set<String> candidateArtistAlbums = new HashSet<>();
+        Set<Long> usedArtistIds = new HashSet<>();
+        Set<Long> usedAlbumIds = new HashSet<>();
+        Set<String> usedArtistAlbums = new HashSet<>();
+        // Partition all tracks in one pass, so that we don't have to look up every url separately
+        Cursor cursor = mDb.query(TABLE_TRACKS,
+                new String[]{ID, TRACKS_URL, TRACKS_ARTISTID, TRACKS_ALBUMID},
+                null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                long artistId = cursor.getLong(2);
+                long albumId = cursor.getLong(3);
+                if (urlSet.contains(cursor.getString(1))) {
+                    trackIds.add(cursor.getInt(0));
+                    candidateArtistIds.add(artistId);
+                    candidateAlbumIds.add(albumId);
+                    candidateArtistAlbums.add(concatKeys(albumId, artistId));
+                } else {
+                    usedArtistIds.add(artistId);
+                    usedAlbumIds.add(albumId);
+                    usedArtistAlbums.add(concatKeys(albumId, artistId));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        if (trackIds.isEmpty()) {
+            return 0;
+        }
+
+        String typeDefault = String.valueOf(TYPE_DEFAULT);
+        mDb.beginTransaction();
+        try {
+            SQLiteStatement deleteTrackStatement = mDb.compileStatement(
+                    "DELETE FROM " + TABLE_TRACKS + " WHERE " + ID + " = ?");
+            for (int trackId : trackIds) {
+                deleteTrackStatement.bindLong(1, trackId);
+                deleteTrackStatement.executeUpdateDelete();
+            }
+            deleteTrackStatement.close();
+            for (String artistAlbum : candidateArtistAlbums) {
+                if (!usedArtistAlbums.contains(artistAlbum)) {
+                    String[] ids = artistAlbum.split("♣");
+                    mDb.delete(TABLE_ARTISTALBUMS, ARTISTALBUMS_ALBUMID + " = ? AND "
+                            + ARTISTALBUMS_ARTISTID + " = ?", ids);
+                }
+            }
+            for (long albumId : candidateAlbumIds) {
+                if (!usedAlbumIds.contains(albumId)) {
+                    String[] args = new String[]{String.valueOf(albumId), typeDefault};
+                    Cursor albumCursor = mDb.query(TABLE_ALBUMS,
+                            new String[]{ALBUMS_ALBUMARTISTID},
+                            ID + " = ? AND " + ALBUMS_TYPE + " = ?", args, null, null, null);
+                    try {
+                        if (albumCursor.moveToFirst()) {
+                            // The album's artist might be orphaned now (e.g. "Various Artists")
+                            candidateArtistIds.add(albumCursor.getLong(0));
+                        }
+                    } finally {
+                        albumCursor.close();
+                    }
+                    mDb.delete(TABLE_ALBUMS, ID + " = ? AND " + ALBUMS_TYPE + " = ?", args);
+                }
+            }
+            for (long artistId : candidateArtistIds) {
+                if (!usedArtistIds.contains(artistId)) {
+                    String id = String.valueOf(artistId);
+                    Cursor albumCursor = mDb.query(TABLE_ALBUMS, new String[]{ID},
+                            ALBUMS_ALBUMARTISTID + " = ?", new String[]{id}, null, null, null,
+                            "1");
+                    try {
+                        if (albumCursor.moveToFirst()) {
+                            continue;
+                        }
+                    } finally {
+                        albumCursor.close();
+                    }
+                    mDb.delete(TABLE_ARTISTS, ID + " = ? AND " + ARTISTS_TYPE + " = ?",
+                            new String[]{id, typeDefault});
+                }
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+            // Our id dictionaries might contain ids that don't exist anymore
+            mArtistIds = null;
+            mAlbumIds = null;
+        }
+
+        Log.d(TAG, "Removed " + trackIds.size() + " tracks in "
+                + (System.currentTimeMillis() - time) + "ms");
+        storeNewRevision(String.valueOf(System.currentTimeMillis()), ACTION_REMOVETRACKS);
+        mFuzzyIndex.removeFromIndex(trackIds);
+        return trackIds.size();
+    }
+
+    /**
+     * Removes the given album artists. Has to be called if none of the remaining tracks has
+     * been tagged with one of the given album artists anymore.
+     */
+    public synchronized void removeAlbumArtists(Collection<String> albumArtists) {
+        if (albumArtists.isEmpty()) {
+            return;
+        }
+        mDb.beginTransaction();
+        try {
+            for (String albumArtist : albumArtists) {
+                mDb.delete(TABLE_ALBUMARTISTS, ALBUMARTISTS_ALBUMARTIST + " = ?",
+                        new String[]{albumArtist});
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
     /**
      * Convenience method. Uses a default set of fields.
      */
@@ -471,6 +788,22 @@ public class CollectionDb extends SQLiteOpenHelper {
     }
 
     public synchronized Cursor tracks(WhereInfo where, String[] orderBy, String[] fields) {
+        return tracks(where, orderBy, fields, null);
+    }
+
+    /**
+     * @return a Cursor that only contains the artist names of the tracks, in the same order as the
+     * rows of the Cursor that {@link #tracks(WhereInfo, String[])} returns for the same arguments
+     */
+    public synchronized Cursor trackArtists(WhereInfo where, String[] orderBy) {
+        String[] fields = new String[]{ARTISTS_ARTIST, ARTISTS_ARTISTDISAMBIGUATION, ALBUMS_ALBUM,
+                TRACKS_TRACK, TRACKS_DURATION, TRACKS_URL, TRACKS_LINKURL, TRACKS_ALBUMPOS,
+                TRACKS_LASTMODIFIED, TRACKS_ALBUMID};
+        return tracks(where, orderBy, fields, new String[]{ARTISTS_ARTIST});
+    }
+
+    private Cursor tracks(WhereInfo where, String[] orderBy, String[] fields,
+            String[] resultFields) {
         List<JoinInfo> joinInfos = new ArrayList<>();
         JoinInfo joinInfo = new JoinInfo();
         joinInfo.table = TABLE_ARTISTS;
@@ -481,8 +814,22 @@ public class CollectionDb extends SQLiteOpenHelper {
         joinInfo.conditions.put(TABLE_TRACKS + "." + TRACKS_ALBUMID, TABLE_ALBUMS + "." + ID);
         joinInfos.add(joinInfo);
         String[] groupBy = new String[]{TRACKS_TRACK, ARTISTS_ARTIST, ALBUMS_ALBUM};
-        return sqlSelect(TABLE_TRACKS, fields, where, joinInfos, orderBy, groupBy, null,
-                TRACKS_LASTMODIFIED, false);
+        return sqlSelect(TABLE_TRACKS, fields, resultFields, where, joinInfos, orderBy, groupBy,
+                null, TRACKS_LASTMODIFIED, false);
+    }
+
+    /**
+     * @return a Cursor containing the given fields of all tracks whose id is greater than the
+     * given trackId. Used to incrementally update the FuzzyIndex.
+     */
+    public synchronized Cursor tracksAfterId(long trackId, String[] fields) {
+        String statement = "SELECT " + StringUtils.join(", ", fields) + " FROM " + TABLE_TRACKS
+                + " INNER JOIN " + TABLE_ARTISTS + " ON " + TABLE_TRACKS + "." + TRACKS_ARTISTID
+                + " = " + TABLE_ARTISTS + "." + ID
+                + " INNER JOIN " + TABLE_ALBUMS + " ON " + TABLE_TRACKS + "." + TRACKS_ALBUMID
+                + " = " + TABLE_ALBUMS + "." + ID
+                + " WHERE " + TABLE_TRACKS + "." + ID + " > ?";
+        return mDb.rawQuery(statement, new String[]{String.valueOf(trackId)});
     }
 
     public synchronized long tracksCurrentRevision() {
@@ -748,6 +1095,17 @@ public class CollectionDb extends SQLiteOpenHelper {
     private Cursor sqlSelect(String table, String[] fields, WhereInfo where,
             List<JoinInfo> joinInfos, String[] orderBy, String[] groupBy, String typeColumn,
             String lastModifiedColumn, boolean filterAllLoved) {
+        return sqlSelect(table, fields, null, where, joinInfos, orderBy, groupBy, typeColumn,
+                lastModifiedColumn, filterAllLoved);
+    }
+
+    /**
+     * @param resultFields the fields the returned Cursor contains. All fields if null. The other
+     *                     fields can still be used to group and order the rows.
+     */
+    private Cursor sqlSelect(String table, String[] fields, String[] resultFields,
+            WhereInfo where, List<JoinInfo> joinInfos, String[] orderBy, String[] groupBy,
+            String typeColumn, String lastModifiedColumn, boolean filterAllLoved) {
         String whereString = "";
         List<String> allWhereValues = new ArrayList<>();
         if (where != null) {
@@ -824,7 +1182,13 @@ public class CollectionDb extends SQLiteOpenHelper {
             fieldsString = "*";
         }
 
-        String statement = "SELECT * FROM ( SELECT " + fieldsString + " FROM " + table + joinString
+        String resultFieldsString = StringUtils.join(", ", resultFields);
+        if (resultFields == null) {
+            resultFieldsString = "*";
+        }
+
+        String statement = "SELECT " + resultFieldsString + " FROM ( SELECT " + fieldsString
+                + " FROM " + table + joinString
                 + whereString + deduplicationOrderString + " ) " + groupString + orderString;
         String[] allWhereValuesArray = null;
         if (allWhereValues.size() > 0) {
@@ -885,6 +1249,27 @@ public class CollectionDb extends SQLiteOpenHelper {
         }
     }
 
+    /**
+     * @return the timestamp of the last time this CollectionDb has been wiped. -1 if it has never
+     * been wiped.
+     */
+    public long getLastWiped() {
+        Cursor cursor = null;
+        try {
+            cursor = mDb.query(TABLE_REVISIONHISTORY, new String[]{REVISIONHISTORY_TIMESTAMP},
+                    REVISIONHISTORY_ACTION + " = ?", new String[]{String.valueOf(ACTION_WIPE)},
+                    null, null, REVISIONHISTORY_TIMESTAMP + " DESC", "1");
+            if (!cursor.moveToFirst()) {
+                return -1;
+            }
+            return cursor.getLong(0);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
     private static String concatKeys(Object... keys) {
         String result = "";
         for (int i = 0; i < keys.length; i++) {
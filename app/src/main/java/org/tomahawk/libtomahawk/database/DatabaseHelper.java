@@ -25,6 +25,7 @@ import org.tomahawk.libtomahawk.collection.Track;
 import org.tomahawk.libtomahawk.infosystem.InfoRequestData;
 import org.tomahawk.libtomahawk.infosystem.QueryParams;
 import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.Result;
 import org.tomahawk.libtomahawk.utils.GsonHelper;
 import org.tomahawk.tomahawk_android.TomahawkApp;
 import org.tomahawk.tomahawk_android.utils.IdGenerator;
@@ -36,14 +37,17 @@ import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.text.TextUtils;
 import android.util.Log;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import de.greenrobot.event.EventBus;
@@ -62,7 +66,7 @@ public class DatabaseHelper {
 
     public static final int TRUE = 1;
 
-    public static final int CHUNK_SIZE = 50;
+    public static final int CHUNK_SIZE = 500;
 
     private static class Holder {
 
@@ -75,9 +79,38 @@ public class DatabaseHelper {
         public String mPlaylistId;
     }
 
+    /**
+     * The listing of a media directory as it has been seen by the last scan of the local
+     * collection. As long as the directory's lastModified timestamp doesn't change, its listing
+     * can be reused instead of listing the directory again.
+     */
+    public static class ScannedDir {
+
+        public String mPath;
+
+        public long mLastModified;
+
+        public long mScanTime;
+
+        // The names of the accepted media files in this directory
+        public List<String> mFiles = new ArrayList<>();
+
+        // The names of the accepted subdirectories of this directory
+        public List<String> mSubDirs = new ArrayList<>();
+    }
+
     // Database fields
     private final SQLiteDatabase mDatabase;
 
+    private final Object mLovedItemKeysLock = new Object();
+
+    // The track keys of all loved items. null, if they haven't been loaded yet.
+    private Set<String> mLovedItemKeys;
+
+    // Incremented on every change to the loved items, so that a concurrent load of the track keys
+    // can detect that its result is already outdated
+    private int mLovedItemKeysVersion;
+
     private DatabaseHelper() {
         TomahawkSQLiteHelper dbHelper = new TomahawkSQLiteHelper(TomahawkApp.getContext());
         dbHelper.close();
@@ -171,10 +204,14 @@ public class DatabaseHelper {
             }
             values.put(TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTENTRYID,
                     entry.getId());
+            values.put(TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKKEY, getTrackKey(entry.getQuery()));
             mDatabase.insert(TomahawkSQLiteHelper.TABLE_TRACKS, null, values);
         }
         mDatabase.setTransactionSuccessful();
         mDatabase.endTransaction();
+        if (LOVEDITEMS_PLAYLIST_ID.equals(playlistId)) {
+            invalidateLovedItemKeys();
+        }
         PlaylistsUpdatedEvent event = new PlaylistsUpdatedEvent();
         event.mPlaylistId = playlistId;
         EventBus.getDefault().post(event);
@@ -532,6 +569,9 @@ public class DatabaseHelper {
                 new String[]{playlistId});
         mDatabase.setTransactionSuccessful();
         mDatabase.endTransaction();
+        if (LOVEDITEMS_PLAYLIST_ID.equals(playlistId)) {
+            invalidateLovedItemKeys();
+        }
         PlaylistsUpdatedEvent event = new PlaylistsUpdatedEvent();
         event.mPlaylistId = playlistId;
         EventBus.getDefault().post(event);
@@ -555,6 +595,9 @@ public class DatabaseHelper {
                 new String[]{playlistId});
         mDatabase.setTransactionSuccessful();
         mDatabase.endTransaction();
+        if (LOVEDITEMS_PLAYLIST_ID.equals(playlistId)) {
+            invalidateLovedItemKeys();
+        }
         PlaylistsUpdatedEvent event = new PlaylistsUpdatedEvent();
         event.mPlaylistId = playlistId;
         EventBus.getDefault().post(event);
@@ -591,6 +634,7 @@ public class DatabaseHelper {
                 values.put(TomahawkSQLiteHelper.TRACKS_COLUMN_ISFETCHEDVIAHATCHET,
                         FALSE);
             }
+            values.put(TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKKEY, getTrackKey(query));
             if (mDatabase.insert(TomahawkSQLiteHelper.TABLE_TRACKS, null, values) != -1) {
                 trackCount++;
             }
@@ -602,6 +646,9 @@ public class DatabaseHelper {
                 new String[]{playlistId});
         mDatabase.setTransactionSuccessful();
         mDatabase.endTransaction();
+        if (LOVEDITEMS_PLAYLIST_ID.equals(playlistId)) {
+            invalidateLovedItemKeys();
+        }
         PlaylistsUpdatedEvent event = new PlaylistsUpdatedEvent();
         event.mPlaylistId = playlistId;
         EventBus.getDefault().post(event);
@@ -641,6 +688,7 @@ public class DatabaseHelper {
             }
             values.put(TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTENTRYID,
                     entry.getId());
+            values.put(TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKKEY, getTrackKey(entry.getQuery()));
             if (mDatabase.insert(TomahawkSQLiteHelper.TABLE_TRACKS, null, values) != -1) {
                 trackCount++;
             }
@@ -652,6 +700,9 @@ public class DatabaseHelper {
                 new String[]{playlistId});
         mDatabase.setTransactionSuccessful();
         mDatabase.endTransaction();
+        if (LOVEDITEMS_PLAYLIST_ID.equals(playlistId)) {
+            invalidateLovedItemKeys();
+        }
         PlaylistsUpdatedEvent event = new PlaylistsUpdatedEvent();
         event.mPlaylistId = playlistId;
         EventBus.getDefault().post(event);
@@ -664,26 +715,35 @@ public class DatabaseHelper {
      * @return whether or not the given query is loved
      */
     public boolean isItemLoved(Query query) {
-        String[] columns = new String[]{TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKNAME,
-                TomahawkSQLiteHelper.TRACKS_COLUMN_ARTISTNAME};
-
-        Cursor tracksCursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_TRACKS, columns,
+        String trackKey = getLovedItemKey(query);
+        int version;
+        synchronized (mLovedItemKeysLock) {
+            if (mLovedItemKeys != null) {
+                return mLovedItemKeys.contains(trackKey);
+            }
+            version = mLovedItemKeysVersion;
+        }
+        // The track keys haven't been loaded yet. Read them via the index on playlistid/trackkey,
+        // which covers this query, so that the tracks table itself doesn't have to be touched.
+        Set<String> lovedItemKeys = new HashSet<>();
+        Cursor tracksCursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_TRACKS,
+                new String[]{TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKKEY},
                 TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTID + " = ?",
-                new String[]{LOVEDITEMS_PLAYLIST_ID}, null, null, null
-        );
-        tracksCursor.moveToFirst();
-        while (!tracksCursor.isAfterLast()) {
-            String trackName = tracksCursor.getString(0);
-            String artistName = tracksCursor.getString(1);
-            if (query.getName().equalsIgnoreCase(trackName)
-                    && query.getArtist().getName().equalsIgnoreCase(artistName)) {
-                tracksCursor.close();
-                return true;
+                new String[]{LOVEDITEMS_PLAYLIST_ID}, null, null, null);
+        try {
+            while (tracksCursor.moveToNext()) {
+                lovedItemKeys.add(tracksCursor.getString(0));
+            }
+        } finally {
+            tracksCursor.close();
+        }
+        synchronized (mLovedItemKeysLock) {
+            // Only keep the loaded keys if the loved items haven't been changed in the meantime
+            if (version == mLovedItemKeysVersion) {
+                mLovedItemKeys = lovedItemKeys;
             }
-            tracksCursor.moveToNext();
         }
-        tracksCursor.close();
-        return false;
+        return lovedItemKeys.contains(trackKey);
     }
 
     /**
@@ -696,21 +756,53 @@ public class DatabaseHelper {
             queries.add(query);
             addQueriesToPlaylist(LOVEDITEMS_PLAYLIST_ID, queries);
         } else {
+            // Delete via the track key, so that every entry isItemLoved would have matched is
+            // being removed
             mDatabase.beginTransaction();
             mDatabase.delete(TomahawkSQLiteHelper.TABLE_TRACKS,
                     TomahawkSQLiteHelper.TRACKS_COLUMN_PLAYLISTID + " = ? AND "
-                            + TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKNAME + " = ? AND "
-                            + TomahawkSQLiteHelper.TRACKS_COLUMN_ARTISTNAME + " = ?",
-                    new String[]{LOVEDITEMS_PLAYLIST_ID, query.getName(),
-                            query.getArtist().getName()});
+                            + TomahawkSQLiteHelper.TRACKS_COLUMN_TRACKKEY + " = ?",
+                    new String[]{LOVEDITEMS_PLAYLIST_ID, getLovedItemKey(query)});
             mDatabase.setTransactionSuccessful();
             mDatabase.endTransaction();
+            synchronized (mLovedItemKeysLock) {
+                mLovedItemKeysVersion++;
+                if (mLovedItemKeys != null) {
+                    mLovedItemKeys.remove(getLovedItemKey(query));
+                }
+            }
             PlaylistsUpdatedEvent event = new PlaylistsUpdatedEvent();
             event.mPlaylistId = LOVEDITEMS_PLAYLIST_ID;
             EventBus.getDefault().post(event);
         }
     }
 
+    /**
+     * @return the track key of the given {@link Query}'s basic track, as it is being stored
+     */
+    private static String getTrackKey(Query query) {
+        return TomahawkSQLiteHelper.getTrackKey(query.getBasicTrack().getArtist().getName(),
+                query.getBasicTrack().getName());
+    }
+
+    /**
+     * @return the track key the given {@link Query} is being looked up with in the loved items
+     */
+    private static String getLovedItemKey(Query query) {
+        return TomahawkSQLiteHelper.getTrackKey(query.getArtist().getName(), query.getName());
+    }
+
+    /**
+     * Drops the cached track keys of the loved items, so that they are being loaded again by the
+     * next call to {@link #isItemLoved(Query)}
+     */
+    private void invalidateLovedItemKeys() {
+        synchronized (mLovedItemKeysLock) {
+            mLovedItemKeysVersion++;
+            mLovedItemKeys = null;
+        }
+    }
+
     public Cursor getSearchHistoryCursor(String entry) {
         return mDatabase.query(TomahawkSQLiteHelper.TABLE_SEARCHHISTORY, null,
                 TomahawkSQLiteHelper.SEARCHHISTORY_COLUMN_ENTRY + " LIKE ?",
@@ -718,6 +810,150 @@ public class DatabaseHelper {
                 TomahawkSQLiteHelper.SEARCHHISTORY_COLUMN_ID + " DESC");
     }
 
+    /**
+     * Replaces the cached {@link Result}s that the resolver with the given id has found for the
+     * given {@link Query}.
+     *
+     * @param query      the {@link Query} the {@link Result}s belong to
+     * @param resolverId the id of the resolver that has found the {@link Result}s
+     * @param results    the {@link Result}s mapped to their scores
+     */
+    public void storeCachedResults(Query query, String resolverId, Map<Result, Float> results) {
+        long timestamp = System.currentTimeMillis();
+        mDatabase.beginTransaction();
+        try {
+            mDatabase.delete(TomahawkSQLiteHelper.TABLE_RESULTCACHE,
+                    TomahawkSQLiteHelper.RESULTCACHE_COLUMN_QUERYKEY + " = ? AND "
+                            + TomahawkSQLiteHelper.RESULTCACHE_COLUMN_RESOLVERID + " = ?",
+                    new String[]{query.getCacheKey(), resolverId});
+            ContentValues values = new ContentValues();
+            for (Map.Entry<Result, Float> entry : results.entrySet()) {
+                Result result = entry.getKey();
+                Track track = result.getTrack();
+                values.clear();
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_QUERYKEY,
+                        query.getCacheKey());
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_RESOLVERID, resolverId);
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_URL, result.getPath());
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_TRACKNAME, track.getName());
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_ALBUMNAME,
+                        track.getAlbum().getName());
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_ARTISTNAME,
+                        track.getArtist().getName());
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_DURATION, track.getDuration());
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_SCORE, entry.getValue());
+                values.put(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_TIMESTAMP, timestamp);
+                mDatabase.insertWithOnConflict(TomahawkSQLiteHelper.TABLE_RESULTCACHE, null,
+                        values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * @return a {@link Cursor} over all cached {@link Result}s of the given {@link Query}
+     */
+    public Cursor getCachedResults(Query query) {
+        return mDatabase.query(TomahawkSQLiteHelper.TABLE_RESULTCACHE, null,
+                TomahawkSQLiteHelper.RESULTCACHE_COLUMN_QUERYKEY + " = ?",
+                new String[]{query.getCacheKey()}, null, null, null);
+    }
+
+    /**
+     * Removes all cached {@link Result}s that are older than the given timestamp.
+     *
+     * @param timestamp       the timestamp
+     * @param keptResolverIds the ids of the resolvers whose cached {@link Result}s should be kept
+     */
+    public void removeCachedResultsOlderThan(long timestamp, Set<String> keptResolverIds) {
+        String where = TomahawkSQLiteHelper.RESULTCACHE_COLUMN_TIMESTAMP + " < ?";
+        String[] whereArgs = new String[keptResolverIds.size() + 1];
+        whereArgs[0] = String.valueOf(timestamp);
+        if (!keptResolverIds.isEmpty()) {
+            where += " AND " + TomahawkSQLiteHelper.RESULTCACHE_COLUMN_RESOLVERID + " NOT IN ("
+                    + TextUtils.join(",", Collections.nCopies(keptResolverIds.size(), "?"))
+                    + ")";
+            int i = 1;
+            for (String resolverId : keptResolverIds) {
+                whereArgs[i++] = resolverId;
+            }
+        }
+        mDatabase.delete(TomahawkSQLiteHelper.TABLE_RESULTCACHE, where, whereArgs);
+    }
+
+    /**
+     * Stores the given JSON representations of Hatchet entities. Replaces already stored entities
+     * with the same type and id.
+     *
+     * @param type        the type of the entities (e.g. "images")
+     * @param jsonStrings the JSON strings mapped to the ids of the entities
+     */
+    public void storeHatchetEntities(String type, Map<String, String> jsonStrings) {
+        long timestamp = System.currentTimeMillis();
+        mDatabase.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Map.Entry<String, String> entry : jsonStrings.entrySet()) {
+                values.clear();
+                values.put(TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_TYPE, type);
+                values.put(TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_ID, entry.getKey());
+                values.put(TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_JSONSTRING,
+                        entry.getValue());
+                values.put(TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_TIMESTAMP, timestamp);
+                mDatabase.insertWithOnConflict(TomahawkSQLiteHelper.TABLE_HATCHETENTITIES, null,
+                        values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * @param type the type of the entities (e.g. "images")
+     * @param ids  the ids of the entities
+     * @return the JSON strings of all stored entities with the given type and ids, mapped to their
+     * ids
+     */
+    public Map<String, String> getHatchetEntities(String type, List<String> ids) {
+        Map<String, String> jsonStrings = new HashMap<>();
+        String[] columns = new String[]{TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_ID,
+                TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_JSONSTRING};
+        // Stay well below SQLite's limit of 999 bound parameters per statement
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            List<String> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+            String[] selectionArgs = new String[chunk.size() + 1];
+            selectionArgs[0] = type;
+            for (int j = 0; j < chunk.size(); j++) {
+                selectionArgs[j + 1] = chunk.get(j);
+            }
+            Cursor cursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_HATCHETENTITIES, columns,
+                    TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_TYPE + " = ? AND "
+                            + TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_ID + " IN ("
+                            + TextUtils.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                    selectionArgs, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    jsonStrings.put(cursor.getString(0), cursor.getString(1));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return jsonStrings;
+    }
+
+    /**
+     * Removes all stored Hatchet entities that are older than the given timestamp.
+     */
+    public void removeHatchetEntitiesOlderThan(long timestamp) {
+        mDatabase.delete(TomahawkSQLiteHelper.TABLE_HATCHETENTITIES,
+                TomahawkSQLiteHelper.HATCHETENTITIES_COLUMN_TIMESTAMP + " < ?",
+                new String[]{String.valueOf(timestamp)});
+    }
+
     public void addEntryToSearchHistory(String entry) {
         ContentValues values = new ContentValues();
 
@@ -902,39 +1138,37 @@ public class DatabaseHelper {
 
     }
 
+    /**
+     * @return a map of all stored {@link MediaWrapper}s, with their locations as keys
+     */
     public synchronized HashMap<String, MediaWrapper> getMedias() {
-        Cursor cursor;
         HashMap<String, MediaWrapper> medias = new HashMap<>();
-        int chunk_count = 0;
+        String[] columns = new String[]{
+                TomahawkSQLiteHelper.MEDIA_LOCATION, //0 string
+                TomahawkSQLiteHelper.MEDIA_TIME, //1 long
+                TomahawkSQLiteHelper.MEDIA_LENGTH, //2 long
+                TomahawkSQLiteHelper.MEDIA_TYPE, //3 int
+                TomahawkSQLiteHelper.MEDIA_TITLE, //4 string
+                TomahawkSQLiteHelper.MEDIA_ARTIST, //5 string
+                TomahawkSQLiteHelper.MEDIA_GENRE, //6 string
+                TomahawkSQLiteHelper.MEDIA_ALBUM, //7 string
+                TomahawkSQLiteHelper.MEDIA_ALBUMARTIST, //8 string
+                TomahawkSQLiteHelper.MEDIA_WIDTH, //9 int
+                TomahawkSQLiteHelper.MEDIA_HEIGHT, //10 int
+                TomahawkSQLiteHelper.MEDIA_ARTWORKURL, //11 string
+                TomahawkSQLiteHelper.MEDIA_AUDIOTRACK, //12 int
+                TomahawkSQLiteHelper.MEDIA_SPUTRACK, //13 int
+                TomahawkSQLiteHelper.MEDIA_TRACKNUMBER, // 14 int
+                TomahawkSQLiteHelper.MEDIA_DISCNUMBER, //15 int
+                TomahawkSQLiteHelper.MEDIA_LASTMODIFIED //16 long
+        };
+        String lastLocation = null;
         int count;
-
         do {
             count = 0;
-            cursor = mDatabase.rawQuery(String.format(Locale.US,
-                    "SELECT %s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s FROM %s LIMIT %d OFFSET %d",
-                    TomahawkSQLiteHelper.MEDIA_LOCATION, //0 string
-                    TomahawkSQLiteHelper.MEDIA_TIME, //1 long
-                    TomahawkSQLiteHelper.MEDIA_LENGTH, //2 long
-                    TomahawkSQLiteHelper.MEDIA_TYPE, //3 int
-                    TomahawkSQLiteHelper.MEDIA_TITLE, //4 string
-                    TomahawkSQLiteHelper.MEDIA_ARTIST, //5 string
-                    TomahawkSQLiteHelper.MEDIA_GENRE, //6 string
-                    TomahawkSQLiteHelper.MEDIA_ALBUM, //7 string
-                    TomahawkSQLiteHelper.MEDIA_ALBUMARTIST, //8 string
-                    TomahawkSQLiteHelper.MEDIA_WIDTH, //9 int
-                    TomahawkSQLiteHelper.MEDIA_HEIGHT, //10 int
-                    TomahawkSQLiteHelper.MEDIA_ARTWORKURL, //11 string
-                    TomahawkSQLiteHelper.MEDIA_AUDIOTRACK, //12 int
-                    TomahawkSQLiteHelper.MEDIA_SPUTRACK, //13 int
-                    TomahawkSQLiteHelper.MEDIA_TRACKNUMBER, // 14 int
-                    TomahawkSQLiteHelper.MEDIA_DISCNUMBER, //15 int
-                    TomahawkSQLiteHelper.MEDIA_LASTMODIFIED, //16 long
-                    TomahawkSQLiteHelper.TABLE_MEDIA,
-                    CHUNK_SIZE,
-                    chunk_count * CHUNK_SIZE), null);
-
-            if (cursor.moveToFirst()) {
-                try {
+            Cursor cursor = queryMediaChunk(columns, lastLocation);
+            try {
+                if (cursor.moveToFirst()) {
                     do {
                         final Uri uri = AndroidUtil.LocationToUri(cursor.getString(0));
                         MediaWrapper media = new MediaWrapper(uri,
@@ -956,22 +1190,76 @@ public class DatabaseHelper {
                                 cursor.getInt(15),     // MEDIA_DISCNUMBER
                                 cursor.getLong(16));     // MEDIA_LAST_MODIFIED
                         medias.put(media.getUri().toString(), media);
-
+                        lastLocation = cursor.getString(0);
                         count++;
                     } while (cursor.moveToNext());
-                } catch (IllegalStateException e) {
-                    //Google bug causing IllegalStateException, see
-                    //https://code.google.com/p/android/issues/detail?id=32472
                 }
+            } catch (IllegalStateException e) {
+                //Google bug causing IllegalStateException, see
+                //https://code.google.com/p/android/issues/detail?id=32472
+            } finally {
+                cursor.close();
             }
-
-            cursor.close();
-            chunk_count++;
         } while (count == CHUNK_SIZE);
 
         return medias;
     }
 
+    /**
+     * Lightweight alternative to {@link #getMedias()}, which doesn't construct any {@link
+     * MediaWrapper}s. Sufficient to find out which media items have been added, changed or
+     * removed.
+     *
+     * @return a map of the locations of all stored media items to their lastModified timestamps
+     */
+    public synchronized HashMap<String, Long> getMediaLastModifieds() {
+        HashMap<String, Long> lastModifieds = new HashMap<>();
+        String[] columns = new String[]{TomahawkSQLiteHelper.MEDIA_LOCATION,
+                TomahawkSQLiteHelper.MEDIA_LASTMODIFIED};
+        String lastLocation = null;
+        int count;
+        do {
+            count = 0;
+            Cursor cursor = queryMediaChunk(columns, lastLocation);
+            try {
+                if (cursor.moveToFirst()) {
+                    do {
+                        lastLocation = cursor.getString(0);
+                        lastModifieds.put(lastLocation, cursor.getLong(1));
+                        count++;
+                    } while (cursor.moveToNext());
+                }
+            } catch (IllegalStateException e) {
+                //Google bug causing IllegalStateException, see
+                //https://code.google.com/p/android/issues/detail?id=32472
+            } finally {
+                cursor.close();
+            }
+        } while (count == CHUNK_SIZE);
+
+        return lastModifieds;
+    }
+
+    /**
+     * Queries the next chunk of the media table. The chunks are paginated by location (keyset
+     * pagination), so that every query can seek directly to its first row via the primary key
+     * index instead of having to skip all previous rows like an OFFSET clause would.
+     *
+     * @param afterLocation the location of the last row of the previous chunk. null to query the
+     *                      first chunk
+     */
+    private Cursor queryMediaChunk(String[] columns, String afterLocation) {
+        String selection = null;
+        String[] selectionArgs = null;
+        if (afterLocation != null) {
+            selection = TomahawkSQLiteHelper.MEDIA_LOCATION + " > ?";
+            selectionArgs = new String[]{afterLocation};
+        }
+        return mDatabase.query(TomahawkSQLiteHelper.TABLE_MEDIA, columns, selection,
+                selectionArgs, null, null, TomahawkSQLiteHelper.MEDIA_LOCATION,
+                String.valueOf(CHUNK_SIZE));
+    }
+
     public synchronized void removeMedias(Set<String> locations) {
         mDatabase.beginTransaction();
         try {
@@ -995,6 +1283,73 @@ public class DatabaseHelper {
         }
     }
 
+    /**
+     * @return a map of all {@link ScannedDir}s that have been stored by the last scan of the local
+     * collection, with their paths as keys
+     */
+    public synchronized HashMap<String, ScannedDir> getScannedDirs() {
+        HashMap<String, ScannedDir> scannedDirs = new HashMap<>();
+        Cursor cursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_SCANNEDDIRS,
+                new String[]{TomahawkSQLiteHelper.SCANNEDDIRS_PATH,
+                        TomahawkSQLiteHelper.SCANNEDDIRS_LASTMODIFIED,
+                        TomahawkSQLiteHelper.SCANNEDDIRS_SCANTIME,
+                        TomahawkSQLiteHelper.SCANNEDDIRS_FILES,
+                        TomahawkSQLiteHelper.SCANNEDDIRS_SUBDIRS},
+                null, null, null, null, null);
+        try {
+            if (cursor.moveToFirst()) {
+                do {
+                    ScannedDir scannedDir = new ScannedDir();
+                    scannedDir.mPath = cursor.getString(0);
+                    scannedDir.mLastModified = cursor.getLong(1);
+                    scannedDir.mScanTime = cursor.getLong(2);
+                    splitFileNames(cursor.getString(3), scannedDir.mFiles);
+                    splitFileNames(cursor.getString(4), scannedDir.mSubDirs);
+                    scannedDirs.put(scannedDir.mPath, scannedDir);
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            cursor.close();
+        }
+        return scannedDirs;
+    }
+
+    /**
+     * Replaces all stored {@link ScannedDir}s with the given ones.
+     */
+    public synchronized void storeScannedDirs(Collection<ScannedDir> scannedDirs) {
+        ContentValues values = new ContentValues();
+        mDatabase.beginTransaction();
+        try {
+            mDatabase.delete(TomahawkSQLiteHelper.TABLE_SCANNEDDIRS, "1", null);
+            for (ScannedDir scannedDir : scannedDirs) {
+                values.put(TomahawkSQLiteHelper.SCANNEDDIRS_PATH, scannedDir.mPath);
+                values.put(TomahawkSQLiteHelper.SCANNEDDIRS_LASTMODIFIED,
+                        scannedDir.mLastModified);
+                values.put(TomahawkSQLiteHelper.SCANNEDDIRS_SCANTIME, scannedDir.mScanTime);
+                // File names can't contain a slash, so it's safe to use it as a separator
+                values.put(TomahawkSQLiteHelper.SCANNEDDIRS_FILES,
+                        TextUtils.join("/", scannedDir.mFiles));
+                values.put(TomahawkSQLiteHelper.SCANNEDDIRS_SUBDIRS,
+                        TextUtils.join("/", scannedDir.mSubDirs));
+                mDatabase.insert(TomahawkSQLiteHelper.TABLE_SCANNEDDIRS, null, values);
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    public synchronized void removeAllScannedDirs() {
+        mDatabase.delete(TomahawkSQLiteHelper.TABLE_SCANNEDDIRS, "1", null);
+    }
+
+    private static void splitFileNames(String joinedNames, List<String> names) {
+        if (!TextUtils.isEmpty(joinedNames)) {
+            Collections.addAll(names, joinedNames.split("/"));
+        }
+    }
+
     public synchronized boolean isMediaDirComplete(String path) {
         Cursor cursor = mDatabase.query(TomahawkSQLiteHelper.TABLE_MEDIADIRS,
                 new String[]{TomahawkSQLiteHelper.MEDIADIRS_PATH},
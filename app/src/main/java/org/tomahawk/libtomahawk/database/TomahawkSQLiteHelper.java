@@ -18,11 +18,15 @@
 package org.tomahawk.libtomahawk.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.provider.BaseColumns;
 import android.util.Log;
 
+import java.util.Locale;
+
 /**
  * This is a helper class to declare the different column names inside our database, and to create
  * and call the proper SQL commands onCreate and onUpgrade
@@ -77,6 +81,10 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
 
     public static final String TRACKS_COLUMN_PLAYLISTENTRYINDEX = "playlistentryindex";
 
+    public static final String TRACKS_COLUMN_TRACKKEY = "trackkey";
+
+    public static final String INDEX_TRACKS_TRACKKEY = "tracks_trackkey";
+
     public static final String TABLE_SEARCHHISTORY = "searchhistory";
 
     public static final String SEARCHHISTORY_COLUMN_ID = BaseColumns._ID;
@@ -168,11 +176,53 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
     public static final String MEDIADIRS_BLACKLISTED = "blacklisted";
 
 
+    public static final String TABLE_RESULTCACHE = "resultcache";
+
+    public static final String RESULTCACHE_COLUMN_QUERYKEY = "querykey";
+
+    public static final String RESULTCACHE_COLUMN_RESOLVERID = "resolverid";
+
+    public static final String RESULTCACHE_COLUMN_URL = "url";
+
+    public static final String RESULTCACHE_COLUMN_TRACKNAME = "trackname";
+
+    public static final String RESULTCACHE_COLUMN_ALBUMNAME = "albumname";
+
+    public static final String RESULTCACHE_COLUMN_ARTISTNAME = "artistname";
+
+    public static final String RESULTCACHE_COLUMN_DURATION = "duration";
+
+    public static final String RESULTCACHE_COLUMN_SCORE = "score";
+
+    public static final String RESULTCACHE_COLUMN_TIMESTAMP = "timestamp";
+
+    public static final String TABLE_SCANNEDDIRS = "scanneddirs";
+
+    public static final String SCANNEDDIRS_PATH = "path";
+
+    public static final String SCANNEDDIRS_LASTMODIFIED = "lastmodified";
+
+    public static final String SCANNEDDIRS_SCANTIME = "scantime";
+
+    public static final String SCANNEDDIRS_FILES = "files";
+
+    public static final String SCANNEDDIRS_SUBDIRS = "subdirs";
+
+    public static final String TABLE_HATCHETENTITIES = "hatchetentities";
+
+    public static final String HATCHETENTITIES_COLUMN_TYPE = "type";
+
+    public static final String HATCHETENTITIES_COLUMN_ID = "id";
+
+    public static final String HATCHETENTITIES_COLUMN_JSONSTRING = "jsonstring";
+
+    public static final String HATCHETENTITIES_COLUMN_TIMESTAMP = "timestamp";
+
     public static final String TABLE_ALBUMS = "albums"; //Legacy
 
     private static final String DATABASE_NAME = "userplaylists.db";
 
-    private static final int DATABASE_VERSION = 20;
+    private static final int DATABASE_VERSION = 24;
 
     // Database creation sql statements
     private static final String CREATE_TABLE_PLAYLISTS =
@@ -195,11 +245,17 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
                     + TRACKS_COLUMN_RESULTHINT + "` TEXT ,`"
                     + TRACKS_COLUMN_ISFETCHEDVIAHATCHET + "` INTEGER ,`"
                     + TRACKS_COLUMN_PLAYLISTENTRYID + "` TEXT ,`"
-                    + TRACKS_COLUMN_PLAYLISTENTRYINDEX + "` INTEGER ,"
+                    + TRACKS_COLUMN_PLAYLISTENTRYINDEX + "` INTEGER ,`"
+                    + TRACKS_COLUMN_TRACKKEY + "` TEXT ,"
                     + " FOREIGN KEY (`" + TRACKS_COLUMN_PLAYLISTID + "`)"
                     + " REFERENCES `" + TABLE_PLAYLISTS + "` (`" + PLAYLISTS_COLUMN_ID
                     + "`));";
 
+    private static final String CREATE_INDEX_TRACKS_TRACKKEY =
+            "CREATE INDEX IF NOT EXISTS `" + INDEX_TRACKS_TRACKKEY + "` ON `" + TABLE_TRACKS
+                    + "` (`" + TRACKS_COLUMN_PLAYLISTID + "`, `" + TRACKS_COLUMN_TRACKKEY
+                    + "`);";
+
     private static final String CREATE_TABLE_SEARCHHISTORY =
             "CREATE TABLE `" + TABLE_SEARCHHISTORY + "` (  `"
                     + SEARCHHISTORY_COLUMN_ID + "` INTEGER PRIMARY KEY AUTOINCREMENT, `"
@@ -264,6 +320,38 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
                     + STATIONS_COLUMN_CREATEDTIMESTAMP + "` INTEGER, `"
                     + STATIONS_COLUMN_PLAYEDTIMESTAMP + "` TEXT );";
 
+    private static final String CREATE_TABLE_RESULTCACHE =
+            "CREATE TABLE `" + TABLE_RESULTCACHE + "` (  `"
+                    + RESULTCACHE_COLUMN_QUERYKEY + "` TEXT NOT NULL, `"
+                    + RESULTCACHE_COLUMN_RESOLVERID + "` TEXT NOT NULL, `"
+                    + RESULTCACHE_COLUMN_URL + "` TEXT NOT NULL, `"
+                    + RESULTCACHE_COLUMN_TRACKNAME + "` TEXT, `"
+                    + RESULTCACHE_COLUMN_ALBUMNAME + "` TEXT, `"
+                    + RESULTCACHE_COLUMN_ARTISTNAME + "` TEXT, `"
+                    + RESULTCACHE_COLUMN_DURATION + "` INTEGER, `"
+                    + RESULTCACHE_COLUMN_SCORE + "` REAL, `"
+                    + RESULTCACHE_COLUMN_TIMESTAMP + "` INTEGER, "
+                    + " PRIMARY KEY (`" + RESULTCACHE_COLUMN_QUERYKEY + "`, `"
+                    + RESULTCACHE_COLUMN_RESOLVERID + "`, `" + RESULTCACHE_COLUMN_URL + "`));";
+
+    private static final String CREATE_TABLE_HATCHETENTITIES =
+            "CREATE TABLE `" + TABLE_HATCHETENTITIES + "` (  `"
+                    + HATCHETENTITIES_COLUMN_TYPE + "` TEXT NOT NULL, `"
+                    + HATCHETENTITIES_COLUMN_ID + "` TEXT NOT NULL, `"
+                    + HATCHETENTITIES_COLUMN_JSONSTRING + "` TEXT, `"
+                    + HATCHETENTITIES_COLUMN_TIMESTAMP + "` INTEGER, "
+                    + " PRIMARY KEY (`" + HATCHETENTITIES_COLUMN_TYPE + "`, `"
+                    + HATCHETENTITIES_COLUMN_ID + "`));";
+
+    private static final String CREATE_TABLE_SCANNEDDIRS = "CREATE TABLE "
+            + TABLE_SCANNEDDIRS + " ("
+            + SCANNEDDIRS_PATH + " TEXT PRIMARY KEY NOT NULL, "
+            + SCANNEDDIRS_LASTMODIFIED + " INTEGER, "
+            + SCANNEDDIRS_SCANTIME + " INTEGER, "
+            + SCANNEDDIRS_FILES + " TEXT, "
+            + SCANNEDDIRS_SUBDIRS + " TEXT "
+            + ");";
+
     public TomahawkSQLiteHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -275,6 +363,7 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase database) {
         database.execSQL(CREATE_TABLE_PLAYLISTS);
         database.execSQL(CREATE_TABLE_TRACKS);
+        database.execSQL(CREATE_INDEX_TRACKS_TRACKKEY);
         database.execSQL(CREATE_TABLE_SEARCHHISTORY);
         database.execSQL(CREATE_TABLE_INFOSYSTEMOPLOGINFO);
         database.execSQL(CREATE_TABLE_INFOSYSTEMOPLOG);
@@ -283,6 +372,9 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
         database.execSQL(CREATE_TABLE_MEDIA);
         database.execSQL(CREATE_TABLE_MEDIADIRS);
         database.execSQL(CREATE_TABLE_STATIONS);
+        database.execSQL(CREATE_TABLE_RESULTCACHE);
+        database.execSQL(CREATE_TABLE_SCANNEDDIRS);
+        database.execSQL(CREATE_TABLE_HATCHETENTITIES);
     }
 
     @Override
@@ -323,7 +415,51 @@ public class TomahawkSQLiteHelper extends SQLiteOpenHelper {
             if (oldVersion < 20) {
                 db.execSQL(CREATE_TABLE_STATIONS);
             }
+            if (oldVersion < 21) {
+                db.execSQL(CREATE_TABLE_RESULTCACHE);
+            }
+            if (oldVersion < 22) {
+                db.execSQL(CREATE_TABLE_SCANNEDDIRS);
+            }
+            if (oldVersion < 23) {
+                db.execSQL("ALTER TABLE `" + TABLE_TRACKS + "` ADD COLUMN `"
+                        + TRACKS_COLUMN_TRACKKEY + "` TEXT");
+                fillTrackKeys(db);
+                db.execSQL(CREATE_INDEX_TRACKS_TRACKKEY);
+            }
+            if (oldVersion < 24) {
+                db.execSQL(CREATE_TABLE_HATCHETENTITIES);
+            }
         }
     }
 
+    /**
+     * Builds the normalized key of the given track, which is being stored in the {@link
+     * #TRACKS_COLUMN_TRACKKEY} column. Two tracks have the same key if their artist and track
+     * names are equal when ignoring case.
+     */
+    public static String getTrackKey(String artistName, String trackName) {
+        return (artistName == null ? "" : artistName.toLowerCase(Locale.ENGLISH)) + "\t"
+                + (trackName == null ? "" : trackName.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Fills the {@link #TRACKS_COLUMN_TRACKKEY} column of all rows in the tracks table
+     */
+    private static void fillTrackKeys(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE `" + TABLE_TRACKS + "` SET `"
+                + TRACKS_COLUMN_TRACKKEY + "` = ? WHERE `" + TRACKS_COLUMN_ID + "` = ?");
+        Cursor cursor = db.query(TABLE_TRACKS, new String[]{TRACKS_COLUMN_ID,
+                TRACKS_COLUMN_ARTISTNAME, TRACKS_COLUMN_TRACKNAME}, null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                update.bindString(1, getTrackKey(cursor.getString(1), cursor.getString(2)));
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            update.close();
+        }
+    }
 }
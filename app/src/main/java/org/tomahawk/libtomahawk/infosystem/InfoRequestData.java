@@ -90,6 +90,8 @@ public class InfoRequestData {
 
     private boolean mIsBackgroundRequest;
 
+    private volatile boolean mCancelled;
+
     /**
      * Storage member-variable. Used if one or several list of objects are the result.
      */
@@ -229,4 +231,16 @@ public class InfoRequestData {
     public boolean isBackgroundRequest() {
         return mIsBackgroundRequest;
     }
+
+    /**
+     * Cancels this request. If it hasn't been sent yet, it won't be sent anymore. Its results
+     * won't be reported in any case.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
 }
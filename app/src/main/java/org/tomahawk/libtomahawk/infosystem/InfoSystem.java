@@ -123,10 +123,24 @@ public class InfoSystem {
      * @return the created InfoRequestData's requestId
      */
     public String resolve(String keyword) {
+        InfoRequestData infoRequestData = resolveSearch(keyword);
+        return infoRequestData != null ? infoRequestData.getRequestId() : null;
+    }
+
+    /**
+     * HatchetSearch the added InfoPlugins with the given keyword
+     *
+     * @return the created InfoRequestData, which can be used to cancel the search
+     */
+    public InfoRequestData resolveSearch(String keyword) {
         if (!TextUtils.isEmpty(keyword)) {
             QueryParams params = new QueryParams();
             params.term = keyword;
-            return resolve(InfoRequestData.INFOREQUESTDATA_TYPE_SEARCHES, params);
+            InfoRequestData infoRequestData = new InfoRequestData(
+                    IdGenerator.getSessionUniqueStringId(),
+                    InfoRequestData.INFOREQUESTDATA_TYPE_SEARCHES, params, false);
+            resolve(infoRequestData);
+            return infoRequestData;
         }
         return null;
     }
@@ -622,6 +636,15 @@ public class InfoSystem {
         }
     }
 
+    /**
+     * Cancels the given InfoRequestData and forgets about it, so that it isn't being kept in the
+     * map of sent requests
+     */
+    public void cancel(InfoRequestData infoRequestData) {
+        infoRequestData.cancel();
+        mSentRequests.remove(infoRequestData.getRequestId());
+    }
+
     /**
      * Get the InfoRequestData with the given Id
      */
@@ -634,6 +657,10 @@ public class InfoSystem {
      * requestIds have received their results
      */
     public void reportResults(InfoRequestData infoRequestData, boolean success) {
+        if (infoRequestData.isCancelled()) {
+            mSentRequests.remove(infoRequestData.getRequestId());
+            return;
+        }
         ResultsEvent event = new ResultsEvent();
         event.mInfoRequestData = infoRequestData;
         event.mSuccess = success;
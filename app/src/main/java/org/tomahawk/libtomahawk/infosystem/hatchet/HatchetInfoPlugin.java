@@ -118,6 +118,9 @@ public class HatchetInfoPlugin implements InfoPlugin {
         TomahawkRunnable runnable = new TomahawkRunnable(priority) {
             @Override
             public void run() {
+                if (infoRequestData.isCancelled()) {
+                    return;
+                }
                 try {
                     boolean success = getParseConvert(infoRequestData);
                     InfoSystem.get().reportResults(infoRequestData, success);
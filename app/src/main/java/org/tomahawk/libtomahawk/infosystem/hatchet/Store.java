@@ -35,6 +35,7 @@ import org.tomahawk.libtomahawk.collection.ListItemString;
 import org.tomahawk.libtomahawk.collection.Playlist;
 import org.tomahawk.libtomahawk.collection.PlaylistComparator;
 import org.tomahawk.libtomahawk.collection.PlaylistEntry;
+import org.tomahawk.libtomahawk.database.DatabaseHelper;
 import org.tomahawk.libtomahawk.infosystem.InfoRequestData;
 import org.tomahawk.libtomahawk.infosystem.QueryParams;
 import org.tomahawk.libtomahawk.infosystem.Relationship;
@@ -45,21 +46,30 @@ import org.tomahawk.libtomahawk.utils.GsonHelper;
 import org.tomahawk.libtomahawk.utils.ISO8601Utils;
 import org.tomahawk.libtomahawk.utils.NetworkUtils;
 import org.tomahawk.tomahawk_android.TomahawkApp;
+import org.tomahawk.tomahawk_android.utils.ThreadManager;
+import org.tomahawk.tomahawk_android.utils.TomahawkRunnable;
 
 import android.util.Log;
+import android.util.LruCache;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import retrofit.RequestInterceptor;
 import retrofit.RestAdapter;
@@ -77,27 +87,88 @@ public class Store {
 
     public static final String HATCHET_API_VERSION = "/v2";
 
+    // The maximum number of ids that are being fetched with a single request
+    private static final int FETCH_BATCH_SIZE = 50;
+
+    // Stored entities older than this are being pruned, so that changes on the server eventually
+    // make it into the app
+    private static final long PERSISTED_RECORDS_MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+    // The types of the entities that can't change on the server, mapped to the name of their
+    // records in the API's responses. Only these are being persisted in the database.
+    private static final Map<Class, String> PERSISTED_TYPES = new HashMap<>();
+
+    static {
+        PERSISTED_TYPES.put(Image.class, "images");
+        PERSISTED_TYPES.put(Artist.class, "artists");
+        PERSISTED_TYPES.put(Album.class, "albums");
+        PERSISTED_TYPES.put(Query.class, "tracks");
+    }
+
     private final Cache mCache = new Cache();
 
+    private final AtomicLong mRestoredRecords = new AtomicLong();
+
+    private final AtomicLong mFetchedRecords = new AtomicLong();
+
+    private final AtomicLong mFetchRequests = new AtomicLong();
+
+    /**
+     * Caches the records of every type in a separate {@link LruCache}. Can safely be accessed from
+     * multiple threads.
+     */
     private static class Cache {
 
-        private Map<Class, Map> mCaches = new HashMap<>();
+        private final Map<Class, LruCache<String, Object>> mCaches = new ConcurrentHashMap<>();
 
-        public Cache() {
-        }
+        private final AtomicLong mHits = new AtomicLong();
 
-        public <T> void addCache(Class<T> clss) {
-            mCaches.put(clss, new HashMap<String, T>());
+        private final AtomicLong mMisses = new AtomicLong();
+
+        public <T> void addCache(Class<T> clss, int maxSize) {
+            mCaches.put(clss, new LruCache<String, Object>(maxSize));
         }
 
         public <T> void put(Class<T> clss, String id, T object) {
-            mCaches.get(clss).put(id, object);
+            if (id != null && object != null) {
+                mCaches.get(clss).put(id, object);
+            }
         }
 
+        /**
+         * Gets the cached record and counts the lookup as a hit or a miss
+         */
         public <T> T get(Class<T> clss, String id) {
+            T object = peek(clss, id);
+            if (object != null) {
+                mHits.incrementAndGet();
+            } else {
+                mMisses.incrementAndGet();
+            }
+            return object;
+        }
+
+        /**
+         * Gets the cached record without counting the lookup
+         */
+        public <T> T peek(Class<T> clss, String id) {
+            if (id == null) {
+                return null;
+            }
             return (T) mCaches.get(clss).get(id);
         }
 
+        @Override
+        public String toString() {
+            int size = 0;
+            int evictions = 0;
+            for (LruCache<String, Object> cache : mCaches.values()) {
+                size += cache.size();
+                evictions += cache.evictionCount();
+            }
+            return "size: " + size + ", hits: " + mHits.get() + ", misses: " + mMisses.get()
+                    + ", evictions: " + evictions;
+        }
     }
 
     private final OkHttpClient mOkHttpClient;
@@ -152,54 +223,209 @@ public class Store {
                 .build();
         mHatchetBackground = restAdapter.create(Hatchet.class);
 
-        mCache.addCache(Image.class);
-        mCache.addCache(Artist.class);
-        mCache.addCache(Album.class);
-        mCache.addCache(Query.class);
-        mCache.addCache(ChartItem.class);
-        mCache.addCache(Chart.class);
-        mCache.addCache(PlaybackLogEntry.class);
-        mCache.addCache(PlaylistEntry.class);
-        mCache.addCache(User.class);
-        mCache.addCache(Playlist.class);
-        mCache.addCache(SocialAction.class);
-        mCache.addCache(Search.class);
-        mCache.addCache(SearchResult.class);
-        mCache.addCache(Relationship.class);
+        mCache.addCache(Image.class, 2000);
+        mCache.addCache(Artist.class, 1000);
+        mCache.addCache(Album.class, 1000);
+        mCache.addCache(Query.class, 2000);
+        mCache.addCache(ChartItem.class, 500);
+        mCache.addCache(Chart.class, 20);
+        mCache.addCache(PlaybackLogEntry.class, 500);
+        mCache.addCache(PlaylistEntry.class, 2000);
+        mCache.addCache(User.class, 200);
+        mCache.addCache(Playlist.class, 200);
+        mCache.addCache(SocialAction.class, 500);
+        mCache.addCache(Search.class, 20);
+        mCache.addCache(SearchResult.class, 500);
+        mCache.addCache(Relationship.class, 1000);
+
+        ThreadManager.get().execute(
+                new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_DATABASEACTION) {
+                    @Override
+                    public void run() {
+                        DatabaseHelper.get().removeHatchetEntitiesOlderThan(
+                                System.currentTimeMillis() - PERSISTED_RECORDS_MAX_AGE);
+                    }
+                });
     }
 
     public Hatchet getImplementation(boolean isBackgroundRequest) {
         return isBackgroundRequest ? mHatchetBackground : mHatchet;
     }
 
+    /**
+     * @return a String containing the hit/miss metrics of the cache
+     */
+    public String getCacheStats() {
+        return mCache + ", restored from database: " + mRestoredRecords.get()
+                + ", fetched: " + mFetchedRecords.get() + " in " + mFetchRequests.get()
+                + " requests";
+    }
+
     public <T> T findRecord(String id, Class<T> resultType, boolean isBackgroundRequest)
             throws IOException {
         T record = mCache.get(resultType, id);
         if (record == null) {
-            Hatchet hatchet = getImplementation(isBackgroundRequest);
-            List<String> ids = new ArrayList<>();
-            ids.add(String.valueOf(id));
+            fetchRecords(Collections.singletonList(id), resultType, isBackgroundRequest);
+            record = mCache.peek(resultType, id);
+            if (record == null) {
+                throw new IOException("Couldn't fetch entity from server.");
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Makes sure that the records with the given ids are cached. Records that aren't cached yet
+     * are being restored from the database, if possible. All others are being fetched from the
+     * server with one request per {@link #FETCH_BATCH_SIZE} ids.
+     */
+    private <T> void fetchRecords(Collection<String> ids, Class<T> resultType,
+            boolean isBackgroundRequest) throws IOException {
+        Set<String> missingIdSet = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && mCache.peek(resultType, id) == null) {
+                missingIdSet.add(id);
+            }
+        }
+        if (missingIdSet.isEmpty()) {
+            return;
+        }
+        List<String> missingIds = new ArrayList<>(missingIdSet);
+        String type = PERSISTED_TYPES.get(resultType);
+        if (type != null) {
+            Map<String, String> jsonStrings =
+                    DatabaseHelper.get().getHatchetEntities(type, missingIds);
+            if (!jsonStrings.isEmpty()) {
+                JsonArray records = new JsonArray();
+                for (String jsonString : jsonStrings.values()) {
+                    try {
+                        records.add(GsonHelper.get().fromJson(jsonString, JsonObject.class));
+                    } catch (JsonSyntaxException e) {
+                        Log.e(TAG, "fetchRecords: " + e.getClass() + ": "
+                                + e.getLocalizedMessage());
+                    }
+                }
+                JsonObject object = new JsonObject();
+                object.add(type, records);
+                storeRecords(object, resultType, -1, isBackgroundRequest, null, false);
+                mRestoredRecords.addAndGet(records.size());
+                missingIds.clear();
+                for (String id : missingIdSet) {
+                    if (mCache.peek(resultType, id) == null) {
+                        missingIds.add(id);
+                    }
+                }
+            }
+        }
+        Hatchet hatchet = getImplementation(isBackgroundRequest);
+        for (int i = 0; i < missingIds.size(); i += FETCH_BATCH_SIZE) {
+            List<String> batch =
+                    new ArrayList<>(missingIds.subList(i, Math.min(i + FETCH_BATCH_SIZE,
+                            missingIds.size())));
+            JsonObject object;
             if (resultType == Image.class) {
-                storeRecords(hatchet.getImages(ids), resultType, isBackgroundRequest);
+                object = hatchet.getImages(batch);
             } else if (resultType == Artist.class) {
-                storeRecords(hatchet.getArtists(ids, null), resultType, isBackgroundRequest);
+                object = hatchet.getArtists(batch, null);
             } else if (resultType == Album.class) {
-                storeRecords(hatchet.getAlbums(ids, null, null), resultType, isBackgroundRequest);
+                object = hatchet.getAlbums(batch, null, null);
             } else if (resultType == PlaylistEntry.class) {
-                storeRecords(hatchet.getTracks(ids, null, null), resultType, isBackgroundRequest);
+                object = hatchet.getTracks(batch, null, null);
             } else if (resultType == User.class) {
-                storeRecords(hatchet.getUsers(ids, null, null, null), resultType,
-                        isBackgroundRequest);
+                object = hatchet.getUsers(batch, null, null, null);
             } else if (resultType == Playlist.class) {
-                storeRecords(hatchet.getPlaylists(ids), resultType, isBackgroundRequest);
+                object = hatchet.getPlaylists(batch);
+            } else {
+                return;
             }
-            record = mCache.get(resultType, id);
-            if (record == null) {
-                throw new IOException("Couldn't fetch entity from server.");
+            mFetchRequests.incrementAndGet();
+            mFetchedRecords.addAndGet(batch.size());
+            storeRecords(object, resultType, isBackgroundRequest);
+        }
+        if (!missingIds.isEmpty()) {
+            Log.d(TAG, "Fetched " + missingIds.size() + " " + resultType.getSimpleName()
+                    + " records - " + getCacheStats());
+        }
+    }
+
+    /**
+     * Fetches all artists and images that are referenced by the records in the given object and
+     * aren't cached yet, so that they don't have to be fetched one by one while the records are
+     * being stored.
+     */
+    private void prefetchReferencedRecords(JsonObject object, boolean isBackgroundRequest)
+            throws IOException {
+        Set<String> artistIds = new LinkedHashSet<>();
+        Set<String> imageIds = new LinkedHashSet<>();
+        collectIds(object, "artists", "images", true, imageIds);
+        collectIds(object, "albums", "artist", false, artistIds);
+        collectIds(object, "albums", "images", true, imageIds);
+        collectIds(object, "tracks", "artist", false, artistIds);
+        collectIds(object, "users", "avatar", false, imageIds);
+        collectIds(object, "playlists", "popularArtists", false, artistIds);
+        collectIds(object, "socialActions", "artist", false, artistIds);
+        collectIds(object, "searchResults", "artist", false, artistIds);
+        // Artists first, because storing them might already fetch some of the images
+        fetchRecords(artistIds, Artist.class, isBackgroundRequest);
+        fetchRecords(imageIds, Image.class, isBackgroundRequest);
+    }
+
+    /**
+     * Adds the ids that the given member of every record contains. Links aren't being followed.
+     *
+     * @param object      the object containing the records
+     * @param recordsName the name of the records (e.g. "albums")
+     * @param memberName  the name of the member containing the ids (e.g. "images")
+     * @param firstOnly   whether or not only the first id of an array of ids should be added
+     * @param ids         the Set the ids are being added to
+     */
+    private static void collectIds(JsonObject object, String recordsName, String memberName,
+            boolean firstOnly, Set<String> ids) {
+        JsonElement elements = object.get(recordsName);
+        if (!(elements instanceof JsonArray)) {
+            return;
+        }
+        for (JsonElement element : (JsonArray) elements) {
+            if (element instanceof JsonObject) {
+                JsonElement member = ((JsonObject) element).get(memberName);
+                if (member instanceof JsonArray) {
+                    for (JsonElement id : (JsonArray) member) {
+                        if (id.isJsonPrimitive()) {
+                            ids.add(id.getAsString());
+                            if (firstOnly) {
+                                break;
+                            }
+                        }
+                    }
+                } else if (member != null && member.isJsonPrimitive()) {
+                    ids.add(member.getAsString());
+                }
             }
-            mCache.put(resultType, id, record);
         }
-        return record;
+    }
+
+    /**
+     * Stores the JSON strings of the given records in the database, so that they can be restored
+     * after a restart. Embedded objects are being left out, except for the links.
+     */
+    private static void persistRecords(String type, Map<String, JsonObject> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<String, String> jsonStrings = new HashMap<>();
+        for (Map.Entry<String, JsonObject> record : records.entrySet()) {
+            if (record.getKey() == null) {
+                continue;
+            }
+            JsonObject stripped = new JsonObject();
+            for (Map.Entry<String, JsonElement> entry : record.getValue().entrySet()) {
+                if (!entry.getValue().isJsonObject() || entry.getKey().equals("links")) {
+                    stripped.add(entry.getKey(), entry.getValue());
+                }
+            }
+            jsonStrings.put(record.getKey(), stripped.toString());
+        }
+        DatabaseHelper.get().storeHatchetEntities(type, jsonStrings);
     }
 
     public <T> List<T> storeRecords(JsonObject object, Class<T> resultType,
@@ -217,7 +443,19 @@ public class Store {
     public <T> List<T> storeRecords(JsonObject object, Class<T> resultType, int requestType,
             boolean isBackgroundRequest, QueryParams params)
             throws IOException {
+        return storeRecords(object, resultType, requestType, isBackgroundRequest, params, true);
+    }
+
+    /**
+     * @param persist whether or not new records of the {@link #PERSISTED_TYPES} should be stored
+     *                in the database. false, if they are being restored from there.
+     */
+    private <T> List<T> storeRecords(JsonObject object, Class<T> resultType, int requestType,
+            boolean isBackgroundRequest, QueryParams params, boolean persist)
+            throws IOException {
+        prefetchReferencedRecords(object, isBackgroundRequest);
         List<T> results = new ArrayList<>();
+        Map<String, JsonObject> newRecords = new HashMap<>();
         JsonElement elements = object.get("images");
         if (elements instanceof JsonArray) {
             for (JsonElement element : (JsonArray) elements) {
@@ -231,12 +469,17 @@ public class Store {
                         int height = getAsInt(o, "height");
                         image = Image.get(url, true, width, height);
                         mCache.put(Image.class, id, image);
+                        newRecords.put(id, o);
                     }
                     if (resultType == Image.class) {
                         results.add((T) image);
                     }
                 }
             }
+            if (persist) {
+                persistRecords("images", newRecords);
+            }
+            newRecords.clear();
         }
         elements = object.get("artists");
         if (elements instanceof JsonArray) {
@@ -257,6 +500,7 @@ public class Store {
                             artist.setImage(image);
                         }
                         mCache.put(Artist.class, id, artist);
+                        newRecords.put(id, o);
                     }
 
                     if (requestType
@@ -285,6 +529,10 @@ public class Store {
                     }
                 }
             }
+            if (persist) {
+                persistRecords("artists", newRecords);
+            }
+            newRecords.clear();
         }
         elements = object.get("albums");
         if (elements instanceof JsonArray) {
@@ -307,6 +555,7 @@ public class Store {
                         String releaseType = getAsString(o, "releaseType");
                         album.setReleaseType(releaseType);
                         mCache.put(Album.class, id, album);
+                        newRecords.put(id, o);
                     }
 
                     if (requestType == InfoRequestData.INFOREQUESTDATA_TYPE_ALBUMS_TRACKS) {
@@ -321,6 +570,10 @@ public class Store {
                     }
                 }
             }
+            if (persist) {
+                persistRecords("albums", newRecords);
+            }
+            newRecords.clear();
         }
         elements = object.get("tracks");
         if (elements instanceof JsonArray) {
@@ -335,12 +588,17 @@ public class Store {
                         Artist artist = findRecord(artistId, Artist.class, isBackgroundRequest);
                         query = Query.get(name, null, artist.getName(), false, true);
                         mCache.put(Query.class, id, query);
+                        newRecords.put(id, o);
                     }
                     if (resultType == Query.class) {
                         results.add((T) query);
                     }
                 }
             }
+            if (persist) {
+                persistRecords("tracks", newRecords);
+            }
+            newRecords.clear();
         }
         elements = object.get("users");
         if (elements instanceof JsonArray) {
@@ -19,6 +19,7 @@ package org.tomahawk.libtomahawk.resolver;/*
 * Major modifications in 2015 by Enno Gottschalk <mrmaffen@googlemail.com>
 */
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -88,6 +89,153 @@ public class Bitap {
         return result;
     }
 
+    /**
+     * A pattern whose alphabet has been computed in advance, so that it can be matched against any
+     * number of texts without having to be initialised again.
+     */
+    public static class Pattern {
+
+        private final char[] mChars;
+
+        private final int mMatchMask;
+
+        // Masks of all ASCII chars, indexed by char
+        private final int[] mAsciiMasks = new int[128];
+
+        // Sorted non-ASCII chars of the pattern and their masks
+        private final char[] mOtherChars;
+
+        private final int[] mOtherMasks;
+
+        public Pattern(String pattern) {
+            mChars = pattern.toCharArray();
+            mMatchMask = 1 << (mChars.length - 1);
+            int otherCount = 0;
+            char[] otherChars = new char[mChars.length];
+            for (char c : mChars) {
+                if (c >= 128 && Arrays.binarySearch(otherChars, 0, otherCount, c) < 0) {
+                    otherChars[otherCount++] = c;
+                    Arrays.sort(otherChars, 0, otherCount);
+                }
+            }
+            mOtherChars = Arrays.copyOf(otherChars, otherCount);
+            mOtherMasks = new int[otherCount];
+            for (int i = 0; i < mChars.length; i++) {
+                char c = mChars[i];
+                int mask = 1 << (mChars.length - i - 1);
+                if (c < 128) {
+                    mAsciiMasks[c] |= mask;
+                } else {
+                    mOtherMasks[Arrays.binarySearch(mOtherChars, c)] |= mask;
+                }
+            }
+        }
+
+        public int length() {
+            return mChars.length;
+        }
+
+        private int charMask(char c) {
+            if (c < 128) {
+                return mAsciiMasks[c];
+            }
+            int index = Arrays.binarySearch(mOtherChars, c);
+            return index >= 0 ? mOtherMasks[index] : 0;
+        }
+    }
+
+    /**
+     * Matches {@link Pattern}s against texts. Reuses its bit arrays and its {@link Result}, so a
+     * {@link Matcher} must not be shared between threads.
+     */
+    public static class Matcher {
+
+        private final Result mResult = new Result();
+
+        private int[] mRd = new int[64];
+
+        private int[] mLastRd = new int[64];
+
+        /**
+         * Locate the best instance of the given {@link Pattern} in the given region of 'text'.
+         * Behaves exactly like {@link #indexOf(String, String, int)}, with the region's start as
+         * index 0.
+         *
+         * @param text      The text to search.
+         * @param start     The start of the region to search (inclusive).
+         * @param end       The end of the region to search (exclusive).
+         * @param pattern   The pattern to search for.
+         * @param tolerance The number of errors that are allowed.
+         * @return The {@link Result}, which is only valid until this method is called again.
+         */
+        public Result indexOf(char[] text, int start, int end, Pattern pattern, int tolerance) {
+            Result result = mResult;
+            result.index = -1;
+            result.errors = -1;
+
+            // Is there an exact match? (speedup)
+            int exactIndex = exactIndexOf(text, start, end, pattern.mChars);
+            if (exactIndex != -1) {
+                result.index = exactIndex;
+                result.errors = 0;
+                return result;
+            }
+
+            int textLength = end - start;
+            int patternLength = pattern.mChars.length;
+            int size = textLength + patternLength + 2;
+            if (mRd.length < size) {
+                mRd = new int[size * 2];
+                mLastRd = new int[size * 2];
+            }
+            int[] rd = mRd;
+            int[] lastRd = mLastRd;
+            for (int d = 0; d <= tolerance; d++) {
+                rd[textLength + patternLength + 1] = (1 << d) - 1;
+                for (int j = textLength + patternLength; j > 0; j--) {
+                    int charMatch;
+                    if (textLength <= j - 1) {
+                        // Out of range.
+                        charMatch = 0;
+                    } else {
+                        charMatch = pattern.charMask(text[start + j - 1]);
+                    }
+                    if (d == 0) {
+                        // First pass: exact match.
+                        rd[j] = ((rd[j + 1] << 1) | 1) & charMatch;
+                    } else {
+                        // Subsequent passes: fuzzy match.
+                        rd[j] = (((rd[j + 1] << 1) | 1) & charMatch)
+                                | (((lastRd[j + 1] | lastRd[j]) << 1) | 1) | lastRd[j + 1];
+                    }
+                    if ((rd[j] & pattern.mMatchMask) != 0) {
+                        result.index = j - 1;
+                        result.errors = d;
+                        return result;
+                    }
+                }
+                int[] swap = lastRd;
+                lastRd = rd;
+                rd = swap;
+            }
+            return result;
+        }
+
+        private static int exactIndexOf(char[] text, int start, int end, char[] pattern) {
+            int last = end - pattern.length;
+            outer:
+            for (int i = start; i <= last; i++) {
+                for (int j = 0; j < pattern.length; j++) {
+                    if (text[i + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return i - start;
+            }
+            return -1;
+        }
+    }
+
     /**
      * Initialise the alphabet for the Bitap algorithm.
      *
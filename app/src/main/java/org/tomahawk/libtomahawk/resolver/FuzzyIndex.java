@@ -23,6 +23,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
@@ -34,8 +35,11 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.Version;
 import org.tomahawk.libtomahawk.database.CollectionDb;
 import org.tomahawk.tomahawk_android.TomahawkApp;
@@ -47,6 +51,7 @@ import android.util.Log;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class FuzzyIndex {
@@ -59,15 +64,23 @@ public class FuzzyIndex {
 
     private static final String LAST_FUZZY_INDEX_UPDATE_SUFFIX = "_last_fuzzy_index_update";
 
+    private static final String LAST_FUZZY_INDEX_TRACKID_SUFFIX = "_last_fuzzy_index_trackid";
+
+    private static final String[] INDEX_FIELDS = new String[]{
+            CollectionDb.TABLE_TRACKS + "." + CollectionDb.ID, CollectionDb.ARTISTS_ARTIST,
+            CollectionDb.ALBUMS_ALBUM, CollectionDb.TRACKS_TRACK};
+
     private final String mLastUpdateStorageKey;
 
+    private final String mLastTrackIdStorageKey;
+
     private CollectionDb mCollectionDb;
 
     private String mLucenePath;
 
     private IndexWriter mLuceneWriter;
 
-    private SearcherManager mSearcherManager;
+    private volatile SearcherManager mSearcherManager;
 
     public static class IndexResult {
 
@@ -81,75 +94,142 @@ public class FuzzyIndex {
         mCollectionDb = collectionDb;
         mLucenePath = LUCENE_ROOT_FOLDER + collectionDb.getCollectionId();
         mLastUpdateStorageKey = collectionDb.getCollectionId() + LAST_FUZZY_INDEX_UPDATE_SUFFIX;
+        mLastTrackIdStorageKey = collectionDb.getCollectionId() + LAST_FUZZY_INDEX_TRACKID_SUFFIX;
         ensureIndex();
     }
 
     /**
      * Make sure that the FuzzyIndex contains all tracks that are stored in the CollectionDb.
      *
-     * @return whether or not the process has been successful
+     * If the CollectionDb has only received new tracks since the last time the index has been
+     * updated, only those tracks are being added to the index. The index is only being recreated
+     * from scratch if the CollectionDb has been wiped in the meantime.
      */
     public synchronized void ensureIndex() {
-        Log.d(TAG, "addToIndex - using CollectionDb " + mCollectionDb.hashCode() + " with id "
+        Log.d(TAG, "ensureIndex - using CollectionDb " + mCollectionDb.hashCode() + " with id "
                 + mCollectionDb.getCollectionId());
         long lastDbUpdate = mCollectionDb.getLastUpdated();
         long lastIndexUpdate = PreferenceUtils.getLong(mLastUpdateStorageKey, -2);
-        Log.d(TAG, "addToIndex - recreate: " + (lastDbUpdate > lastIndexUpdate));
+        long lastIndexedTrackId = PreferenceUtils.getLong(mLastTrackIdStorageKey, -1);
         if (lastDbUpdate > lastIndexUpdate) {
+            boolean recreate = lastIndexedTrackId < 0
+                    || mCollectionDb.getLastWiped() > lastIndexUpdate;
+            Log.d(TAG, "ensureIndex - recreate: " + recreate + ", lastIndexedTrackId: "
+                    + lastIndexedTrackId);
+            long time = System.currentTimeMillis();
             Cursor cursor = null;
             try {
-                String[] fields = new String[]{CollectionDb.TABLE_TRACKS + "." + CollectionDb.ID,
-                        CollectionDb.ARTISTS_ARTIST, CollectionDb.ALBUMS_ALBUM,
-                        CollectionDb.TRACKS_TRACK};
-                cursor = mCollectionDb.tracks(null, null, fields);
-                beginIndexing(true);
-                Log.d(TAG, "addToIndex - Adding tracks to index - count: " + cursor.getCount());
+                if (recreate) {
+                    cursor = mCollectionDb.tracks(null, null, INDEX_FIELDS);
+                } else {
+                    cursor = mCollectionDb.tracksAfterId(lastIndexedTrackId, INDEX_FIELDS);
+                }
+                beginIndexing(recreate);
+                Log.d(TAG, "ensureIndex - Adding tracks to index - count: " + cursor.getCount());
+                long maxTrackId = lastIndexedTrackId;
                 cursor.moveToFirst();
                 if (!cursor.isAfterLast()) {
                     do {
+                        int id = cursor.getInt(0);
                         Document document = new Document();
-                        document.add(new IntField("id", cursor.getInt(0),
-                                Field.Store.YES));
+                        document.add(new IntField("id", id, Field.Store.YES));
                         document.add(new StringField("artist", cursor.getString(1),
                                 Field.Store.YES));
                         document.add(new StringField("album", cursor.getString(2),
                                 Field.Store.YES));
                         document.add(new StringField("track", cursor.getString(3),
                                 Field.Store.YES));
-                        mLuceneWriter.addDocument(document);
+                        if (recreate) {
+                            mLuceneWriter.addDocument(document);
+                        } else {
+                            mLuceneWriter.updateDocument(idTerm(id), document);
+                        }
+                        maxTrackId = Math.max(maxTrackId, id);
                     } while (cursor.moveToNext());
                 }
-                PreferenceUtils.edit().putLong(mLastUpdateStorageKey, System.currentTimeMillis())
+                mLuceneWriter.commit();
+                PreferenceUtils.edit()
+                        .putLong(mLastUpdateStorageKey, System.currentTimeMillis())
+                        .putLong(mLastTrackIdStorageKey, Math.max(maxTrackId, 0))
                         .commit();
+                Log.d(TAG, "ensureIndex - indexing took " + (System.currentTimeMillis() - time)
+                        + "ms");
             } catch (IOException e) {
-                Log.e(TAG, "addToIndex - " + e.getClass() + ": " + e.getLocalizedMessage());
+                Log.e(TAG, "ensureIndex - " + e.getClass() + ": " + e.getLocalizedMessage());
             } finally {
                 if (cursor != null) {
                     cursor.close();
                 }
-                endIndexing();
             }
         }
-        updateSearcherManager();
+        refreshSearcherManager();
     }
 
-    private void updateSearcherManager() {
-        Log.d(TAG, "updateSearcherManager");
+    /**
+     * Removes the tracks with the given ids from the index without touching any other entries.
+     *
+     * @param trackIds the ids of the tracks in the CollectionDb that should be removed
+     */
+    public synchronized void removeFromIndex(Collection<Integer> trackIds) {
+        if (trackIds.isEmpty()) {
+            return;
+        }
         try {
-            if (mSearcherManager != null) {
-                mSearcherManager.close();
+            beginIndexing(false);
+            Term[] terms = new Term[trackIds.size()];
+            int i = 0;
+            for (Integer trackId : trackIds) {
+                terms[i++] = idTerm(trackId);
+            }
+            mLuceneWriter.deleteDocuments(terms);
+            mLuceneWriter.commit();
+            Log.d(TAG, "removeFromIndex - removed " + trackIds.size() + " tracks");
+        } catch (IOException e) {
+            Log.e(TAG, "removeFromIndex - " + e.getClass() + ": " + e.getLocalizedMessage());
+        }
+        refreshSearcherManager();
+    }
+
+    /**
+     * @return the Term that matches exactly the document with the given id. The id is stored as
+     * an {@link IntField}, so we have to match its prefix-coded representation.
+     */
+    private static Term idTerm(int id) {
+        BytesRef bytes = new BytesRef(NumericUtils.BUF_SIZE_INT);
+        NumericUtils.intToPrefixCoded(id, 0, bytes);
+        return new Term("id", bytes);
+    }
+
+    /**
+     * Makes all changes of the IndexWriter visible to searches. If the IndexWriter is open, the
+     * SearcherManager is a near-real-time one and only has to reopen the changed segments.
+     */
+    private void refreshSearcherManager() {
+        try {
+            if (mSearcherManager == null) {
+                Log.d(TAG, "refreshSearcherManager - creating SearcherManager");
+                if (mLuceneWriter != null) {
+                    mSearcherManager =
+                            new SearcherManager(mLuceneWriter, true, new SearcherFactory());
+                } else {
+                    Directory dir = FSDirectory.open(new File(mLucenePath));
+                    if (!DirectoryReader.indexExists(dir)) {
+                        Log.d(TAG, "refreshSearcherManager - no index found");
+                        return;
+                    }
+                    mSearcherManager = new SearcherManager(dir, new SearcherFactory());
+                }
+            } else {
+                mSearcherManager.maybeRefresh();
             }
-            File indexDirFile = new File(mLucenePath);
-            Directory dir = FSDirectory.open(indexDirFile);
-            mSearcherManager = new SearcherManager(dir, new SearcherFactory());
         } catch (IOException e) {
-            Log.e(TAG, "updateSearcherManager - " + e.getClass() + ": " + e.getLocalizedMessage());
+            Log.e(TAG, "refreshSearcherManager - " + e.getClass() + ": "
+                    + e.getLocalizedMessage());
         }
     }
 
-    public void close() {
+    public synchronized void close() {
         Log.d(TAG, "close");
-        endIndexing();
         if (mSearcherManager != null) {
             try {
                 mSearcherManager.close();
@@ -158,10 +238,16 @@ public class FuzzyIndex {
             }
             mSearcherManager = null;
         }
+        endIndexing();
     }
 
-    public synchronized List<IndexResult> searchIndex(Query query) {
+    public List<IndexResult> searchIndex(Query query) {
         List<IndexResult> indexResults = new ArrayList<>();
+        SearcherManager searcherManager = mSearcherManager;
+        if (searcherManager == null) {
+            Log.d(TAG, "searchIndex - index hasn't been built yet");
+            return indexResults;
+        }
         try {
             BooleanQuery qry = new BooleanQuery();
             if (query.isFullTextQuery()) {
@@ -190,44 +276,61 @@ public class FuzzyIndex {
                 Log.d(TAG, "searchIndex - non-fulltext: " + escapedArtistName + ", "
                         + escapedTrackName);
             }
-            IndexSearcher searcher = mSearcherManager.acquire();
-            long time = System.currentTimeMillis();
-            ScoreDoc[] hits = searcher.search(qry, 50).scoreDocs;
-            Log.d(TAG,
-                    "searchIndex - searching took " + (System.currentTimeMillis() - time) + "ms");
-            for (ScoreDoc doc : hits) {
-                Document document = searcher.doc(doc.doc);
-                IndexResult indexResult = new IndexResult();
-                indexResult.id = document.getField("id").numericValue().intValue();
-                indexResult.score = doc.score;
-                indexResults.add(indexResult);
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                long time = System.currentTimeMillis();
+                ScoreDoc[] hits = searcher.search(qry, 50).scoreDocs;
+                Log.d(TAG, "searchIndex - searching took " + (System.currentTimeMillis() - time)
+                        + "ms");
+                for (ScoreDoc doc : hits) {
+                    Document document = searcher.doc(doc.doc);
+                    IndexResult indexResult = new IndexResult();
+                    indexResult.id = document.getField("id").numericValue().intValue();
+                    indexResult.score = doc.score;
+                    indexResults.add(indexResult);
+                }
+            } finally {
+                searcherManager.release(searcher);
             }
-            mSearcherManager.release(searcher);
         } catch (IOException e) {
             Log.e(TAG, "searchIndex - " + e.getClass() + ": " + e.getLocalizedMessage());
+        } catch (AlreadyClosedException e) {
+            // The SearcherManager has been closed by close() or beginIndexing() while searching
+            Log.d(TAG, "searchIndex - index has been closed while searching");
+            indexResults.clear();
         }
         return indexResults;
     }
 
     /**
-     * Initializes the IndexWriter to be able to add entries to the index.
+     * Initializes the IndexWriter to be able to add entries to the index. The IndexWriter is kept
+     * open afterwards so that the SearcherManager can pick up changes in near-real-time.
      *
      * @param recreate whether or not to wipe any previously existing index
      */
     private void beginIndexing(boolean recreate) throws IOException {
         Log.d(TAG, "beginIndexing - recreate: " + recreate);
-        endIndexing();
-        File indexDirFile = new File(mLucenePath);
-        Directory dir = FSDirectory.open(indexDirFile);
-        Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_47);
-        IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_47, analyzer);
+        if (mLuceneWriter == null) {
+            File indexDirFile = new File(mLucenePath);
+            Directory dir = FSDirectory.open(indexDirFile);
+            Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_47);
+            IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_47, analyzer);
+            iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            mLuceneWriter = new IndexWriter(dir, iwc);
+            // The current SearcherManager isn't attached to a writer. Replace it with a
+            // near-real-time one, but keep serving searches from the old one until the new one
+            // has been created.
+            SearcherManager oldSearcherManager = mSearcherManager;
+            mSearcherManager = new SearcherManager(mLuceneWriter, true, new SearcherFactory());
+            if (oldSearcherManager != null) {
+                oldSearcherManager.close();
+            }
+        }
         if (recreate) {
-            PreferenceUtils.edit().putLong(mLastUpdateStorageKey, -2).commit();
-            iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        } else {
-            iwc.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            PreferenceUtils.edit().putLong(mLastUpdateStorageKey, -2)
+                    .putLong(mLastTrackIdStorageKey, -1).commit();
+            mLuceneWriter.deleteAll();
         }
-        mLuceneWriter = new IndexWriter(dir, iwc);
     }
 
     private void endIndexing() {
@@ -236,10 +339,10 @@ public class FuzzyIndex {
             try {
                 mLuceneWriter.commit();
                 mLuceneWriter.close(true);
-                mLuceneWriter = null;
             } catch (IOException e) {
                 Log.e(TAG, "endIndexing - " + e.getClass() + ": " + e.getLocalizedMessage());
             }
+            mLuceneWriter = null;
         }
     }
 }
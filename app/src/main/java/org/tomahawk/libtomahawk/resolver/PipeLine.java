@@ -26,6 +26,9 @@ import org.tomahawk.tomahawk_android.TomahawkApp;
 import org.tomahawk.tomahawk_android.utils.ThreadManager;
 import org.tomahawk.tomahawk_android.utils.TomahawkRunnable;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -33,9 +36,14 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.greenrobot.event.EventBus;
 
@@ -62,6 +70,28 @@ public class PipeLine {
 
     private static final float FULLTEXT_MINSCORE = 0f;
 
+    // The number of queries a DbCollection is allowed to resolve at the same time
+    private static final int COLLECTION_CONCURRENCY = 4;
+
+    private static final int MIN_RESOLVER_CONCURRENCY = 2;
+
+    private static final int MAX_RESOLVER_CONCURRENCY = 8;
+
+    // Resolvers with a higher timeout (in ms) are considered to be slow
+    private static final int SLOW_RESOLVER_TIMEOUT = 10000;
+
+    private static final float DEFAULT_GOOD_ENOUGH_SCORE = 0.95f;
+
+    private static final int DEFAULT_GOOD_ENOUGH_WEIGHT = 90;
+
+    // Result lists are being split into chunks of at least this size to be scored in parallel
+    private static final int MIN_SCORING_CHUNK_SIZE = 32;
+
+    private static final int MAX_SCORING_CHUNK_COUNT = Runtime.getRuntime().availableProcessors();
+
+    // Queries are being replayed to late resolvers for at most this long (in ms) after startup
+    private static final long DEFAULT_STARTUP_DEADLINE = 20000;
+
     private static class Holder {
 
         private static final PipeLine instance = new PipeLine();
@@ -97,23 +127,69 @@ public class PipeLine {
     private final Set<ScriptResolver> mResolvers =
             Collections.newSetFromMap(new ConcurrentHashMap<ScriptResolver, Boolean>());
 
-    private final Set<String> mWaitingUrlLookups =
-            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /**
+     * A {@link Query} that has been resolved during startup. It is being replayed to every resolver
+     * that registers before the startup has finished.
+     */
+    private static class WaitingQuery {
+
+        private final boolean mForceOnlyLocal;
 
-    private final Set<Query> mWaitingQueries =
-            Collections.newSetFromMap(new ConcurrentHashMap<Query, Boolean>());
+        // The resolvers and collections this query has already been dispatched to
+        private final Set<Object> mDispatchedTo =
+                Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+        private WaitingQuery(boolean forceOnlyLocal) {
+            mForceOnlyLocal = forceOnlyLocal;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Set<ScriptResolver>> mWaitingUrlLookups =
+            new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Query, WaitingQuery> mWaitingQueries =
+            new ConcurrentHashMap<>();
 
     private final Set<ScriptAccount> mLoadingPlugins =
             Collections.newSetFromMap(new ConcurrentHashMap<ScriptAccount, Boolean>());
 
+    // Plugins with a disabled resolver, which are only being loaded once they are needed in the
+    // settings
+    private final Set<ScriptAccount> mDeferredPlugins =
+            Collections.newSetFromMap(new ConcurrentHashMap<ScriptAccount, Boolean>());
+
+    private final ResolverScheduler mScheduler = new ResolverScheduler();
+
+    private volatile float mGoodEnoughScore = DEFAULT_GOOD_ENOUGH_SCORE;
+
+    private volatile int mGoodEnoughWeight = DEFAULT_GOOD_ENOUGH_WEIGHT;
+
+    private final AtomicLong mSavedResolverCalls = new AtomicLong();
+
+    private final long mStartupTime = SystemClock.elapsedRealtime();
+
+    private volatile boolean mStartupFinished;
+
+    private long mStartupDeadline = DEFAULT_STARTUP_DEADLINE;
+
+    private final Handler mStartupDeadlineHandler = new Handler(Looper.getMainLooper());
+
+    private final Runnable mStartupDeadlineRunnable = new Runnable() {
+        @Override
+        public void run() {
+            finishStartup();
+        }
+    };
+
+    // The time (in ms after startup) at which each resolver has become ready
+    private final Map<String, Long> mResolverReadyTimes = new ConcurrentHashMap<>();
+
     private PipeLine() {
         try {
             String[] plugins = TomahawkApp.getContext().getAssets().list("js/resolvers");
             for (String plugin : plugins) {
                 String path = "/js/resolvers/" + plugin;
-                ScriptAccount account = new ScriptAccount(path, false);
-                mScriptAccounts.add(account);
-                mLoadingPlugins.add(account);
+                addPlugin(new ScriptAccount(path, false));
             }
             String manualResolverDirPath = TomahawkApp.getContext().getFilesDir().getAbsolutePath()
                     + File.separator + "manualresolvers";
@@ -125,9 +201,7 @@ public class PipeLine {
                         String pluginPath = manualResolverDirPath + File.separator + plugin;
                         File pluginFile = new File(pluginPath);
                         if (pluginFile.isDirectory()) {
-                            ScriptAccount account = new ScriptAccount(pluginPath, true);
-                            mScriptAccounts.add(account);
-                            mLoadingPlugins.add(account);
+                            addPlugin(new ScriptAccount(pluginPath, true));
                         }
                     }
                 }
@@ -135,43 +209,183 @@ public class PipeLine {
         } catch (IOException e) {
             Log.e(TAG, "PipeLine<init>: " + e.getClass() + ": " + e.getLocalizedMessage());
         }
+        for (ScriptAccount account : mLoadingPlugins) {
+            account.load();
+        }
+        if (mLoadingPlugins.isEmpty()) {
+            finishStartup();
+        } else {
+            mStartupDeadlineHandler.postDelayed(mStartupDeadlineRunnable, mStartupDeadline);
+        }
+        ThreadManager.get().execute(
+                new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_DATABASEACTION) {
+                    @Override
+                    public void run() {
+                        ResultCache.get().prune();
+                    }
+                });
     }
 
     public static PipeLine get() {
         return Holder.instance;
     }
 
+    /**
+     * Adds the given plugin. Plugins with a disabled resolver aren't being loaded, so that they
+     * neither delay the loading of the plugins that are actually being used to resolve nor occupy
+     * a frame in a {@link ScriptRuntime}.
+     */
+    private void addPlugin(ScriptAccount account) {
+        if (account.getMetaData() == null) {
+            return;
+        }
+        mScriptAccounts.add(account);
+        if (account.isResolverEnabled() || isAlwaysLoaded(account)) {
+            mLoadingPlugins.add(account);
+        } else {
+            mDeferredPlugins.add(account);
+        }
+    }
+
+    /**
+     * @return whether or not the given plugin has to be loaded even though its resolver is
+     * disabled. That's the case for the plugins that provide charts or URL lookups, since they
+     * aren't being listed in the settings, so they couldn't be loaded on demand.
+     */
+    private static boolean isAlwaysLoaded(ScriptAccount account) {
+        String name = account.getName();
+        return name.endsWith("-metadata") || name.equals("itunes") || name.equals("echonest");
+    }
+
+    /**
+     * Loads the plugins with a disabled resolver. Has to be called before they are being listed
+     * in the settings, where they can be configured and enabled.
+     */
+    public void loadDeferredPlugins() {
+        for (ScriptAccount account : mDeferredPlugins) {
+            if (mDeferredPlugins.remove(account)) {
+                account.load();
+            }
+        }
+    }
+
     public void onPluginLoaded(ScriptAccount account) {
         mLoadingPlugins.remove(account);
         if (mLoadingPlugins.isEmpty()) {
-            Log.d(TAG, "All plugins loaded. Resolving "
-                    + mWaitingQueries.size() + " waiting queries. Looking up "
-                    + mWaitingUrlLookups.size() + " waiting URLs.");
-            for (Query query : mWaitingQueries) {
-                resolve(query);
-            }
-            mWaitingQueries.clear();
-            for (String url : mWaitingUrlLookups) {
-                lookupUrl(url);
+            finishStartup();
+        }
+    }
+
+    /**
+     * Sets the time (in ms after startup) after which queries and URL lookups aren't being replayed
+     * to resolvers that are still loading anymore.
+     */
+    public void setStartupDeadline(long startupDeadline) {
+        mStartupDeadline = startupDeadline;
+        if (!mStartupFinished) {
+            long remaining = mStartupTime + startupDeadline - SystemClock.elapsedRealtime();
+            mStartupDeadlineHandler.removeCallbacks(mStartupDeadlineRunnable);
+            mStartupDeadlineHandler.postDelayed(mStartupDeadlineRunnable, Math.max(0, remaining));
+        }
+    }
+
+    /**
+     * Called once all plugins have been loaded or once the startup deadline has passed. From now
+     * on queries are only being dispatched to the resolvers that are registered at that time.
+     */
+    private synchronized void finishStartup() {
+        if (mStartupFinished) {
+            return;
+        }
+        mStartupFinished = true;
+        mStartupDeadlineHandler.removeCallbacks(mStartupDeadlineRunnable);
+        long startupDuration = SystemClock.elapsedRealtime() - mStartupTime;
+        if (mLoadingPlugins.isEmpty()) {
+            Log.d(TAG, "All plugins loaded after " + startupDuration + "ms.");
+        } else {
+            for (ScriptAccount account : mLoadingPlugins) {
+                Log.e(TAG, "Plugin " + account.getName() + " didn't load within the startup "
+                        + "deadline of " + mStartupDeadline + "ms.");
             }
-            mWaitingUrlLookups.clear();
         }
+        mWaitingQueries.clear();
+        mWaitingUrlLookups.clear();
+        ResultCache.get().clearPending();
+    }
+
+    /**
+     * Has to be called by every {@link ScriptResolver} once it has been initialized. Records the
+     * time at which it has become ready.
+     */
+    public void onResolverReady(ScriptResolver resolver) {
+        long readyTime = SystemClock.elapsedRealtime() - mStartupTime;
+        mResolverReadyTimes.put(resolver.getId(), readyTime);
+        Log.d(TAG, "ScriptResolver " + resolver.getId() + " ready after " + readyTime + "ms.");
+    }
+
+    /**
+     * @return the time (in ms after startup) at which the resolver with the given id has become
+     * ready. -1 if it isn't ready yet.
+     */
+    public long getResolverReadyTime(String resolverId) {
+        Long readyTime = mResolverReadyTimes.get(resolverId);
+        return readyTime != null ? readyTime : -1;
     }
 
     public void addScriptAccount(ScriptAccount scriptAccount) {
         mManualScriptAccounts.add(scriptAccount);
         mScriptAccounts.add(scriptAccount);
         mLoadingPlugins.add(scriptAccount);
+        scriptAccount.load();
     }
 
-    public void addResolver(ScriptResolver resolver) {
+    public void addResolver(final ScriptResolver resolver) {
         mResolvers.add(resolver);
+        ThreadManager.get().execute(
+                new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_REPORTING, true) {
+                    @Override
+                    public void run() {
+                        // Serve the cached results that have been restored before this resolver
+                        // has been registered
+                        for (Query query : ResultCache.get().restorePending(resolver)) {
+                            ResultsEvent event = new ResultsEvent();
+                            event.mQuery = query;
+                            EventBus.getDefault().post(event);
+                        }
+                    }
+                });
+        if (!mStartupFinished) {
+            Log.d(TAG, "Replaying " + mWaitingQueries.size() + " waiting queries and "
+                    + mWaitingUrlLookups.size() + " waiting URLs to " + resolver.getId());
+            for (Map.Entry<Query, WaitingQuery> entry : mWaitingQueries.entrySet()) {
+                if (shouldResolve(resolver, entry.getKey(), entry.getValue().mForceOnlyLocal)) {
+                    dispatchResolve(resolver, entry.getKey());
+                }
+            }
+            for (String url : mWaitingUrlLookups.keySet()) {
+                dispatchLookupUrl(resolver, url);
+            }
+        }
         ResolversChangedEvent event = new ResolversChangedEvent();
         event.mScriptResolver = resolver;
         event.mManuallyAdded = mManualScriptAccounts.contains(resolver.getScriptAccount());
         EventBus.getDefault().post(event);
     }
 
+    /**
+     * Replays the queries that have been resolved during startup to the given {@link
+     * DbCollection}, which has just been added.
+     */
+    public void addCollection(DbCollection collection) {
+        if (!mStartupFinished) {
+            for (Map.Entry<Query, WaitingQuery> entry : mWaitingQueries.entrySet()) {
+                if (shouldResolve(collection, entry.getKey(), entry.getValue().mForceOnlyLocal)) {
+                    dispatchResolve(collection, entry.getKey());
+                }
+            }
+        }
+    }
+
     public void removeResolver(ScriptResolver resolver) {
         mResolvers.remove(resolver);
         EventBus.getDefault().post(new ResolversChangedEvent());
@@ -237,19 +451,30 @@ public class PipeLine {
         final TomahawkRunnable r = new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_RESOLVING) {
             @Override
             public void run() {
-                if (!mLoadingPlugins.isEmpty()) {
-                    mWaitingQueries.add(q);
-                } else {
-                    for (ScriptResolver resolver : mResolvers) {
-                        if (shouldResolve(resolver, q, forceOnlyLocal)) {
-                            resolver.resolve(q);
-                        }
+                if (isCancelled()) {
+                    return;
+                }
+                if (!mStartupFinished) {
+                    // Remember the query, so that it can be replayed to the resolvers that
+                    // haven't been registered yet
+                    mWaitingQueries.putIfAbsent(q, new WaitingQuery(forceOnlyLocal));
+                }
+                // Serve the cached results right away. All resolvers are still being invoked
+                // below, so that the cached results are being refreshed in the background.
+                if (!q.isFullTextQuery() && !q.isPlayable() && ResultCache.get().restore(q)) {
+                    ResultsEvent event = new ResultsEvent();
+                    event.mQuery = q;
+                    EventBus.getDefault().post(event);
+                }
+                for (ScriptResolver resolver : mResolvers) {
+                    if (shouldResolve(resolver, q, forceOnlyLocal)) {
+                        dispatchResolve(resolver, q);
                     }
-                    for (Collection collection : CollectionManager.get().getCollections()) {
-                        if (!(collection instanceof UserCollection)
-                                && shouldResolve(collection, q, forceOnlyLocal)) {
-                            ((DbCollection) collection).resolve(q);
-                        }
+                }
+                for (Collection collection : CollectionManager.get().getCollections()) {
+                    if (!(collection instanceof UserCollection)
+                            && shouldResolve(collection, q, forceOnlyLocal)) {
+                        dispatchResolve((DbCollection) collection, q);
                     }
                 }
                 if (shouldResolve(CollectionManager.get().getUserCollection(), q, forceOnlyLocal)) {
@@ -261,6 +486,97 @@ public class PipeLine {
         return q;
     }
 
+    /**
+     * Marks the given {@link Query} as dispatched to the given resolver or collection, if it is
+     * still waiting to be replayed.
+     *
+     * @return false, if it has already been dispatched to it before
+     */
+    private boolean markDispatched(Query query, Object resolver) {
+        WaitingQuery waitingQuery = mWaitingQueries.get(query);
+        return waitingQuery == null || waitingQuery.mDispatchedTo.add(resolver);
+    }
+
+    private void dispatchResolve(ScriptResolver resolver, Query query) {
+        if (markDispatched(query, resolver)) {
+            if (resolver.getWeight() < query.getGoodEnoughWeight()) {
+                mSavedResolverCalls.incrementAndGet();
+            } else {
+                scheduleResolve(resolver, query);
+            }
+        }
+    }
+
+    private void dispatchResolve(DbCollection collection, Query query) {
+        if (markDispatched(query, collection)) {
+            if (collection.getResolver().getWeight() < query.getGoodEnoughWeight()) {
+                mSavedResolverCalls.incrementAndGet();
+            } else {
+                scheduleResolve(collection, query);
+            }
+        }
+    }
+
+    /**
+     * Enqueues the given {@link Query} in the given {@link ScriptResolver}'s queue. The number of
+     * queries a resolver may resolve at the same time depends on its weight and timeout, so that
+     * slow resolvers don't hog the JS bridge while fast ones are waiting.
+     */
+    public void scheduleResolve(final ScriptResolver resolver, Query query) {
+        int limit = Math.round(resolver.getWeight() / 12.5f);
+        limit = Math.max(MIN_RESOLVER_CONCURRENCY, Math.min(MAX_RESOLVER_CONCURRENCY, limit));
+        if (resolver.getTimeout() > SLOW_RESOLVER_TIMEOUT) {
+            limit = Math.max(MIN_RESOLVER_CONCURRENCY, limit / 2);
+        }
+        mScheduler.schedule(resolver, limit, query, new ResolverScheduler.Dispatcher() {
+            @Override
+            public void dispatch(Query query) {
+                resolver.resolve(query);
+            }
+        });
+    }
+
+    /**
+     * Enqueues the given {@link Query} in the given {@link DbCollection}'s queue.
+     */
+    public void scheduleResolve(final DbCollection collection, Query query) {
+        mScheduler.schedule(collection, COLLECTION_CONCURRENCY, query,
+                new ResolverScheduler.Dispatcher() {
+                    @Override
+                    public void dispatch(Query query) {
+                        collection.resolve(query);
+                    }
+                });
+    }
+
+    /**
+     * Has to be called by every {@link ScriptResolver} and {@link DbCollection} once it has
+     * finished resolving the given {@link Query}, so that the next queued {@link Query} can be
+     * dispatched.
+     *
+     * @param resolver the {@link ScriptResolver} or {@link DbCollection} that has finished
+     * @param query    the {@link Query} that has been resolved
+     */
+    public void onResolveFinished(Object resolver, Query query) {
+        mScheduler.onFinished(resolver, query);
+    }
+
+    /**
+     * Sets the {@link Query}s that should be resolved before all other queued {@link Query}s
+     * (e.g. the ones close to the currently playing track).
+     */
+    public void setPriorityQueries(java.util.Collection<Query> queries) {
+        mScheduler.setPriorityQueries(queries);
+    }
+
+    /**
+     * @return the {@link ResolverScheduler.Stats} of the given {@link ScriptResolver} or {@link
+     * DbCollection}. null if nothing has been scheduled for it yet.
+     */
+    public ResolverScheduler.Stats getResolverStats(Object resolver) {
+        return mScheduler.getStats(resolver);
+    }
+
     /**
      * Method to determine if a given Resolver should resolve the query or not
      */
@@ -301,13 +617,17 @@ public class PipeLine {
     /**
      * If the {@link ScriptResolver} has resolved the {@link Query}, this method will be called.
      * This method will then calculate a score and assign it to every {@link Result}. If the score
-     * is higher than MINSCORE the {@link Result} is added to the output resultList.
+     * is higher than MINSCORE the {@link Result} is added to the output resultList. Large lists
+     * are being split into chunks, which are being scored on the CPU pool in parallel.
      *
      * @param query   the {@link Query} that results are being reported for
      * @param results the unfiltered {@link ArrayList} of {@link Result}s
      */
     public void reportResults(final Query query, final ArrayList<Result> results,
             final String resolverId) {
+        if (query == null) {
+            return;
+        }
         int priority;
         if (TomahawkApp.PLUGINNAME_USERCOLLECTION.equals(resolverId)) {
             priority = TomahawkRunnable.PRIORITY_IS_REPORTING_LOCALSOURCE;
@@ -318,48 +638,169 @@ public class PipeLine {
         } else {
             priority = TomahawkRunnable.PRIORITY_IS_REPORTING;
         }
-        ThreadManager.get().execute(
-                new TomahawkRunnable(priority) {
-                    @Override
-                    public void run() {
-                        if (query != null) {
-                            boolean shouldReport = query.isFullTextQuery();
-                            for (Result r : results) {
-                                if (r != null) {
-                                    float trackScore = query.howSimilar(r);
-                                    float goalScore = query.isFullTextQuery()
-                                            ? FULLTEXT_MINSCORE : MINSCORE;
-                                    if (trackScore > goalScore) {
-                                        Result before = query.getPreferredTrackResult();
-                                        query.addTrackResult(r, trackScore);
-                                        if (before != query.getPreferredTrackResult()) {
-                                            shouldReport = true;
-                                        }
-                                    }
-                                }
-                            }
-                            if (shouldReport) {
-                                ResultsEvent event = new ResultsEvent();
-                                event.mQuery = query;
-                                EventBus.getDefault().post(event);
+        final float[] scores = new float[results.size()];
+        int chunkCount = Math.max(1, Math.min(MAX_SCORING_CHUNK_COUNT,
+                (results.size() + MIN_SCORING_CHUNK_SIZE - 1) / MIN_SCORING_CHUNK_SIZE));
+        int chunkSize = (results.size() + chunkCount - 1) / chunkCount;
+        final AtomicInteger remainingChunks = new AtomicInteger(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            final int start = i * chunkSize;
+            final int end = Math.min(results.size(), start + chunkSize);
+            ThreadManager.get().execute(
+                    new TomahawkRunnable(priority, true) {
+                        @Override
+                        public void run() {
+                            scoreResults(query, results, scores, start, end);
+                            // The last chunk to finish merges all scores into the Query
+                            if (remainingChunks.decrementAndGet() == 0 && !isCancelled()) {
+                                addScoredResults(query, results, scores, resolverId);
                             }
                         }
-                    }
-                }
-        );
+                    }, query
+            );
+        }
+    }
+
+    /**
+     * Scores the {@link Result}s from start (inclusive) to end (exclusive) in the given list.
+     * Null {@link Result}s get a score of -1.
+     */
+    private static void scoreResults(Query query, List<Result> results, float[] scores,
+            int start, int end) {
+        for (int i = start; i < end; i++) {
+            Result r = results.get(i);
+            scores[i] = r != null ? query.howSimilar(r) : -1f;
+        }
+    }
+
+    /**
+     * Adds all scored {@link Result}s, whose score is higher than MINSCORE, to the given {@link
+     * Query} in one step, stores them in the {@link ResultCache} and reports the {@link Query} if
+     * its preferred {@link Result} has changed.
+     */
+    private void addScoredResults(Query query, List<Result> results, float[] scores,
+            String resolverId) {
+        boolean shouldReport = query.isFullTextQuery();
+        float goalScore = query.isFullTextQuery() ? FULLTEXT_MINSCORE : MINSCORE;
+        Map<Result, Float> scoredResults = new HashMap<>();
+        Result[] accepted = new Result[results.size()];
+        float[] acceptedScores = new float[results.size()];
+        int acceptedCount = 0;
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            if (r != null && scores[i] > goalScore) {
+                scoredResults.put(r, scores[i]);
+                accepted[acceptedCount] = r;
+                acceptedScores[acceptedCount] = scores[i];
+                acceptedCount++;
+            }
+        }
+        if (acceptedCount > 0) {
+            Result before = query.getPreferredTrackResult();
+            query.addTrackResults(accepted, acceptedScores, acceptedCount);
+            if (before != query.getPreferredTrackResult()) {
+                shouldReport = true;
+            }
+        }
+        if (!query.isFullTextQuery()) {
+            ResultCache.get().store(query, resolverId, scoredResults);
+            checkGoodEnough(query);
+        }
+        if (shouldReport) {
+            ResultsEvent event = new ResultsEvent();
+            event.mQuery = query;
+            EventBus.getDefault().post(event);
+        }
+    }
+
+    /**
+     * Checks whether or not the preferred {@link Result} of the given {@link Query} is good enough,
+     * meaning its score and its resolver's weight are above the configured thresholds. If so, all
+     * resolvers with a lower weight stop resolving the {@link Query}: queued calls are being
+     * dropped and pending {@link ScriptJob}s are being cancelled.
+     */
+    private void checkGoodEnough(Query query) {
+        Result result = query.getPreferredTrackResult();
+        if (result == null) {
+            return;
+        }
+        int weight = result.getResolvedBy().getWeight();
+        if (weight <= query.getGoodEnoughWeight() || weight < mGoodEnoughWeight
+                || query.getTrackResultScore(result) < mGoodEnoughScore) {
+            return;
+        }
+        query.setGoodEnoughWeight(weight);
+        int saved = 0;
+        for (ScriptResolver resolver : mResolvers) {
+            if (resolver.getWeight() < weight) {
+                saved += mScheduler.cancel(query, resolver);
+                saved += resolver.getScriptAccount().cancelJobs(query);
+            }
+        }
+        for (Collection collection : CollectionManager.get().getCollections()) {
+            if (collection instanceof DbCollection && !(collection instanceof UserCollection)
+                    && ((DbCollection) collection).getResolver().getWeight() < weight) {
+                saved += mScheduler.cancel(query, collection);
+            }
+        }
+        if (saved > 0) {
+            mSavedResolverCalls.addAndGet(saved);
+            Log.d(TAG, "Found good enough result for " + query.toShortString() + " - saved "
+                    + saved + " resolver calls (" + mSavedResolverCalls.get() + " in total)");
+        }
+    }
+
+    /**
+     * Configures when a {@link Result} is good enough, so that resolvers with a lower weight don't
+     * have to resolve the {@link Query} anymore.
+     *
+     * @param minScore  the minimum score a {@link Result} must have
+     * @param minWeight the minimum weight the {@link Result}'s resolver must have
+     */
+    public void setGoodEnoughPolicy(float minScore, int minWeight) {
+        mGoodEnoughScore = minScore;
+        mGoodEnoughWeight = minWeight;
+    }
+
+    /**
+     * @return the number of resolver calls that haven't been made or have been cancelled, because
+     * a good enough {@link Result} had already been found
+     */
+    public long getSavedResolverCallCount() {
+        return mSavedResolverCalls.get();
+    }
+
+    /**
+     * Cancels all pending {@link ScriptJob}s that belong to the given {@link Query} and removes
+     * it from all resolver queues.
+     *
+     * @return the number of cancelled {@link ScriptJob}s
+     */
+    public int cancelScriptJobs(Query query) {
+        mScheduler.cancel(query);
+        int count = 0;
+        for (ScriptAccount account : mScriptAccounts) {
+            count += account.cancelJobs(query);
+        }
+        return count;
     }
 
     public void lookupUrl(final String url) {
         Log.d(TAG, "lookupUrl - looking up url: " + url);
-        if (!mLoadingPlugins.isEmpty()) {
-            mWaitingUrlLookups.add(url);
-        } else {
-            for (Resolver resolver : mResolvers) {
-                if (resolver instanceof ScriptResolver) {
-                    ScriptResolver scriptResolver = (ScriptResolver) resolver;
-                    scriptResolver.lookupUrl(url);
-                }
-            }
+        if (!mStartupFinished) {
+            Set<ScriptResolver> dispatchedTo =
+                    Collections.newSetFromMap(new ConcurrentHashMap<ScriptResolver, Boolean>());
+            mWaitingUrlLookups.putIfAbsent(url, dispatchedTo);
+        }
+        for (ScriptResolver resolver : mResolvers) {
+            dispatchLookupUrl(resolver, url);
+        }
+    }
+
+    private void dispatchLookupUrl(ScriptResolver resolver, String url) {
+        Set<ScriptResolver> dispatchedTo = mWaitingUrlLookups.get(url);
+        if (dispatchedTo == null || dispatchedTo.add(resolver)) {
+            resolver.lookupUrl(url);
         }
     }
 
@@ -21,6 +21,7 @@ import org.tomahawk.libtomahawk.collection.Album;
 import org.tomahawk.libtomahawk.collection.AlphaComparable;
 import org.tomahawk.libtomahawk.collection.Artist;
 import org.tomahawk.libtomahawk.collection.ArtistAlphaComparable;
+import org.tomahawk.libtomahawk.collection.CacheKey;
 import org.tomahawk.libtomahawk.collection.Cacheable;
 import org.tomahawk.libtomahawk.collection.Image;
 import org.tomahawk.libtomahawk.collection.Playlist;
@@ -32,10 +33,11 @@ import org.tomahawk.tomahawk_android.utils.IdGenerator;
 import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.Map;
 
 /**
  * This class represents a query which is passed to a resolver. It contains all the information
@@ -59,68 +61,72 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
 
     private boolean mIsFetchedViaHatchet;
 
-    private final ConcurrentSkipListSet<Result> mTrackResults
-            = new ConcurrentSkipListSet<>(new ResultComparator());
+    private final Object mTrackResultsLock = new Object();
 
-    private final ConcurrentHashMap<Result, Float> mTrackResultScores
-            = new ConcurrentHashMap<>();
+    // Sorted snapshot of all Results, which is being replaced as a whole on every change
+    private volatile ScoredResult[] mTrackResults = new ScoredResult[0];
 
-    public class ResultComparator implements Comparator<Result> {
+    // Lazily compiled matcher that is being used to score Results
+    private volatile QueryMatcher mMatcher;
 
+    // The weight of the resolver that has delivered a good enough result. -1 if there's none yet.
+    private volatile int mGoodEnoughWeight = -1;
+
+    /**
+     * A {@link Result} together with everything that's needed to sort it.
+     */
+    private static class ScoredResult {
+
+        private final Result mResult;
+
+        private final float mScore;
+
+        private final int mWeight;
+
+        private final boolean mIsHinted;
+
+        private ScoredResult(Result result, float score, String resultHint) {
+            mResult = result;
+            mScore = score;
+            mWeight = result.getResolvedBy().getWeight();
+            mIsHinted = resultHint != null && result.getCacheKey().equals(resultHint);
+        }
+    }
+
+    private static final Comparator<ScoredResult> sResultComparator
+            = new Comparator<ScoredResult>() {
         /**
          * The actual comparison method
          *
-         * @param r1 First {@link org.tomahawk.libtomahawk.resolver.Result} object
-         * @param r2 Second {@link org.tomahawk.libtomahawk.resolver.Result} Object
+         * @param r1 First {@link ScoredResult} object
+         * @param r2 Second {@link ScoredResult} Object
          * @return int containing comparison score
          */
-        public int compare(Result r1, Result r2) {
-            if (mResultHint != null) {
-                // We have a result hint. If the cacheKey matches we automatically put the matching
-                // Result at the top of the sorted list.
-                if (r1.getCacheKey().equals(mResultHint)) {
-                    return -1;
-                } else if (r2.getCacheKey().equals(mResultHint)) {
-                    return 1;
-                }
+        @Override
+        public int compare(ScoredResult r1, ScoredResult r2) {
+            // If we have a result hint and the cacheKey matches we automatically put the matching
+            // Result at the top of the sorted list.
+            if (r1.mIsHinted != r2.mIsHinted) {
+                return r1.mIsHinted ? -1 : 1;
             }
-            if (r1 == r2) {
+            if (r1.mResult == r2.mResult) {
                 return 0;
             }
-            Float score1 = mTrackResultScores.get(r1);
-            Float score2 = mTrackResultScores.get(r2);
-            int scoreResult = score2.compareTo(score1);
-            if (scoreResult > 0) {
-                return 1;
-            } else if (scoreResult < 0) {
-                return -1;
-            } else {
-                // We have two identical trackScores.
-                // Now we take the Resolver's weight into account.
-                Integer weight1 = r1.getResolvedBy().getWeight();
-                Integer weight2 = r2.getResolvedBy().getWeight();
-                int weightResult = weight2.compareTo(weight1);
-                if (weightResult > 0) {
-                    return 1;
-                } else if (weightResult < 0) {
-                    return -1;
-                } else {
-                    // We have two identical trackScores and Resolver weights.
-                    Integer hashCode1 = r1.hashCode();
-                    Integer hashCode2 = r2.hashCode();
-                    int hashCodeResult = hashCode1.compareTo(hashCode2);
-                    if (hashCodeResult > 0) {
-                        return 1;
-                    } else if (hashCodeResult < 0) {
-                        return -1;
-                    } else {
-                        // should never happen
-                        return 0;
-                    }
-                }
+            int scoreResult = Float.compare(r2.mScore, r1.mScore);
+            if (scoreResult != 0) {
+                return scoreResult;
+            }
+            // We have two identical trackScores.
+            // Now we take the Resolver's weight into account.
+            if (r1.mWeight != r2.mWeight) {
+                return r2.mWeight > r1.mWeight ? 1 : -1;
             }
+            // We have two identical trackScores and Resolver weights.
+            int hashCode1 = r1.mResult.hashCode();
+            int hashCode2 = r2.mResult.hashCode();
+            return hashCode1 < hashCode2 ? -1 : (hashCode1 == hashCode2 ? 0 : 1);
         }
-    }
+    };
 
     /**
      * Constructs a new Query.
@@ -164,7 +170,7 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * Queries being unique by trackname/artistname/albumname/resulthint/onlyLocal
      */
     public static Query get(String fullTextQuery, boolean onlyLocal) {
-        Cacheable cacheable = get(Query.class, getCacheKey(fullTextQuery, onlyLocal));
+        Cacheable cacheable = get(Query.class, CacheKey.obtain(fullTextQuery, onlyLocal));
         return cacheable != null ? (Query) cacheable : new Query(fullTextQuery, onlyLocal);
     }
 
@@ -175,7 +181,7 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
     public static Query get(String trackName, String albumName, String artistName,
             String resultHint, boolean onlyLocal, boolean isFetchedViaHatchet) {
         Cacheable cacheable = get(Query.class,
-                getCacheKey(trackName, albumName, artistName, resultHint, onlyLocal));
+                CacheKey.obtain(trackName, albumName, artistName, resultHint, onlyLocal));
         return cacheable != null ? (Query) cacheable :
                 new Query(trackName, albumName, artistName, resultHint, onlyLocal,
                         isFetchedViaHatchet);
@@ -243,10 +249,11 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      */
     public Playlist getResultPlaylist() {
         ArrayList<Query> queries = new ArrayList<>();
-        for (Result result : mTrackResults) {
+        for (ScoredResult scoredResult : mTrackResults) {
+            Result result = scoredResult.mResult;
             if (!isOnlyLocal() || result.isLocal()) {
                 Query query = Query.get(result, isOnlyLocal());
-                query.addTrackResult(result, mTrackResultScores.get(result));
+                query.addTrackResult(result, scoredResult.mScore);
                 queries.add(query);
             }
         }
@@ -256,10 +263,23 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
         return playlist;
     }
 
+    /**
+     * @return all {@link Result}s of this {@link Query} that are local, sorted by score
+     */
+    public ArrayList<Result> getLocalTrackResults() {
+        ArrayList<Result> results = new ArrayList<>();
+        for (ScoredResult scoredResult : mTrackResults) {
+            if (scoredResult.mResult.isLocal()) {
+                results.add(scoredResult.mResult);
+            }
+        }
+        return results;
+    }
+
     public Result getPreferredTrackResult() {
-        for (Result trackResult : mTrackResults) {
-            if (trackResult.getResolvedBy().isEnabled()) {
-                return trackResult;
+        for (ScoredResult trackResult : mTrackResults) {
+            if (trackResult.mResult.getResolvedBy().isEnabled()) {
+                return trackResult.mResult;
             }
         }
         return null;
@@ -280,20 +300,101 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * @param trackScore the trackScore for the given {@link Result}
      */
     public void addTrackResult(Result result, float trackScore) {
-        String cacheKey = result.getCacheKey();
-        if (!sBlacklistedResults.contains(cacheKey)) {
-            mTrackResultScores.put(result, trackScore);
-            mTrackResults.add(result);
+        addTrackResults(new Result[]{result}, new float[]{trackScore}, 1);
+    }
+
+    /**
+     * Add the given {@link Result}s to this {@link Query} in a single step. The given {@link
+     * Result}s are being sorted once and then merged into the already sorted {@link Result}s. A
+     * {@link Result} that has already been added before is being replaced.
+     *
+     * @param results the {@link Result}s which should be added
+     * @param scores  the trackScores of the given {@link Result}s
+     * @param count   the number of {@link Result}s to add from the given arrays
+     */
+    public void addTrackResults(Result[] results, float[] scores, int count) {
+        synchronized (mTrackResultsLock) {
+            Map<Result, ScoredResult> added = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                if (!sBlacklistedResults.contains(results[i].getCacheKey())) {
+                    added.put(results[i], new ScoredResult(results[i], scores[i], mResultHint));
+                }
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+            ScoredResult[] addedSorted = added.values().toArray(new ScoredResult[added.size()]);
+            Arrays.sort(addedSorted, sResultComparator);
+            ScoredResult[] current = mTrackResults;
+            ScoredResult[] merged = new ScoredResult[current.length + addedSorted.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < current.length || j < addedSorted.length) {
+                if (i < current.length && added.containsKey(current[i].mResult)) {
+                    // This Result is being replaced
+                    i++;
+                } else if (j >= addedSorted.length || i < current.length
+                        && sResultComparator.compare(current[i], addedSorted[j]) <= 0) {
+                    merged[k++] = current[i++];
+                } else {
+                    merged[k++] = addedSorted[j++];
+                }
+            }
+            mTrackResults = k == merged.length ? merged : Arrays.copyOf(merged, k);
         }
     }
 
     public void blacklistTrackResult(Result result) {
         sBlacklistedResults.add(result.getCacheKey());
-        if (result.getCacheKey().equals(mResultHint)) {
-            mResultHint = null;
+        synchronized (mTrackResultsLock) {
+            boolean hintChanged = false;
+            if (result.getCacheKey().equals(mResultHint)) {
+                mResultHint = null;
+                hintChanged = true;
+            }
+            ArrayList<ScoredResult> remaining = new ArrayList<>(mTrackResults.length);
+            for (ScoredResult scoredResult : mTrackResults) {
+                if (scoredResult.mResult != result) {
+                    remaining.add(hintChanged ? new ScoredResult(scoredResult.mResult,
+                            scoredResult.mScore, mResultHint) : scoredResult);
+                }
+            }
+            ScoredResult[] sorted = remaining.toArray(new ScoredResult[remaining.size()]);
+            if (hintChanged) {
+                Arrays.sort(sorted, sResultComparator);
+            }
+            mTrackResults = sorted;
+        }
+        // The good enough result might have been blacklisted, so every resolver has to be asked
+        // again
+        mGoodEnoughWeight = -1;
+    }
+
+    /**
+     * @return the trackScore of the given {@link Result}. 0 if the {@link Result} hasn't been
+     * added to this {@link Query}.
+     */
+    public float getTrackResultScore(Result result) {
+        for (ScoredResult scoredResult : mTrackResults) {
+            if (scoredResult.mResult == result) {
+                return scoredResult.mScore;
+            }
         }
-        mTrackResults.remove(result);
-        mTrackResultScores.remove(result);
+        return 0f;
+    }
+
+    /**
+     * @return the weight of the resolver that has delivered a good enough {@link Result} for this
+     * {@link Query}. Resolvers with a lower weight don't have to resolve this {@link Query}
+     * anymore. -1 if there's no good enough {@link Result} yet.
+     */
+    public int getGoodEnoughWeight() {
+        return mGoodEnoughWeight;
+    }
+
+    public void setGoodEnoughWeight(int goodEnoughWeight) {
+        mGoodEnoughWeight = goodEnoughWeight;
     }
 
     public String getResultHint() {
@@ -337,48 +438,12 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
      * This method determines how similar the given result is to the search string.
      */
     public float howSimilar(Result r) {
-        String resultArtistName = ResultScoring.cleanUpString(r.getArtist().getName(), false);
-        String resultAlbumName = ResultScoring.cleanUpString(r.getAlbum().getName(), false);
-        String resultTrackName = ResultScoring.cleanUpString(r.getTrack().getName(), false);
-        if (isFullTextQuery()) {
-            String fullTextQuery = ResultScoring.cleanUpString(mFullTextQuery, true);
-            float maxResult = 0f;
-            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
-                    resultTrackName + " " + resultAlbumName + " " + resultArtistName,
-                    fullTextQuery));
-            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
-                    resultTrackName + " " + resultArtistName + " " + resultAlbumName,
-                    fullTextQuery));
-            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
-                    resultArtistName + " " + resultTrackName + " " + resultAlbumName,
-                    fullTextQuery));
-            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
-                    resultArtistName + " " + resultAlbumName + " " + resultTrackName,
-                    fullTextQuery));
-            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
-                    resultAlbumName + " " + resultArtistName + " " + resultTrackName,
-                    fullTextQuery));
-            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
-                    resultAlbumName + " " + resultTrackName + " " + resultArtistName,
-                    fullTextQuery));
-            return maxResult;
-        } else {
-            String queryArtistName =
-                    ResultScoring.cleanUpString(mBasicTrack.getArtist().getName(), false);
-            float artistScore = ResultScoring.calculateScore(resultArtistName, queryArtistName);
-            String queryTrackName =
-                    ResultScoring.cleanUpString(mBasicTrack.getName(), false);
-            float trackScore = ResultScoring.calculateScore(resultTrackName, queryTrackName);
-            String queryAlbumName =
-                    ResultScoring.cleanUpString(mBasicTrack.getAlbum().getName(), false);
-            float albumScore;
-            if (queryAlbumName.isEmpty()) {
-                return (artistScore + trackScore) / 2;
-            } else {
-                albumScore = ResultScoring.calculateScore(resultAlbumName, queryAlbumName);
-                return (artistScore * 3 + albumScore + trackScore * 4) / 8;
-            }
+        QueryMatcher matcher = mMatcher;
+        if (matcher == null) {
+            matcher = new QueryMatcher(this);
+            mMatcher = matcher;
         }
+        return matcher.score(r);
     }
 
     public String getName() {
@@ -431,7 +496,7 @@ public class Query extends Cacheable implements AlphaComparable, ArtistAlphaComp
             desc = "basic: " + mBasicTrack.toShortString()
                     + " - preferred: " + getPreferredTrack().toShortString();
         }
-        return desc + ", resultCount: " + mTrackResults.size();
+        return desc + ", resultCount: " + mTrackResults.length;
     }
 
     @Override
@@ -0,0 +1,101 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+/**
+ * A {@link Query} that has been compiled for scoring. The {@link Query}'s Strings are being
+ * normalized and compiled into {@link ResultScoring.Pattern}s only once, so that scoring a {@link
+ * Result} doesn't allocate anything.
+ */
+public class QueryMatcher {
+
+    private final boolean mIsFullTextQuery;
+
+    private final ResultScoring.Pattern mFullTextPattern;
+
+    private final ResultScoring.Pattern mArtistPattern;
+
+    private final ResultScoring.Pattern mAlbumPattern;
+
+    private final ResultScoring.Pattern mTrackPattern;
+
+    public QueryMatcher(Query query) {
+        mIsFullTextQuery = query.isFullTextQuery();
+        if (mIsFullTextQuery) {
+            mFullTextPattern = new ResultScoring.Pattern(
+                    ResultScoring.cleanUpString(query.getFullTextQuery(), true));
+            mArtistPattern = null;
+            mAlbumPattern = null;
+            mTrackPattern = null;
+        } else {
+            mFullTextPattern = null;
+            mArtistPattern = new ResultScoring.Pattern(ResultScoring.cleanUpString(
+                    query.getBasicTrack().getArtist().getName(), false));
+            String albumName = ResultScoring.cleanUpString(
+                    query.getBasicTrack().getAlbum().getName(), false);
+            mAlbumPattern = albumName.isEmpty() ? null : new ResultScoring.Pattern(albumName);
+            mTrackPattern = new ResultScoring.Pattern(
+                    ResultScoring.cleanUpString(query.getBasicTrack().getName(), false));
+        }
+    }
+
+    /**
+     * This method determines how similar the given {@link Result} is to the compiled {@link
+     * Query}.
+     */
+    public float score(Result r) {
+        String artist = r.getCleanArtistName();
+        String album = r.getCleanAlbumName();
+        String track = r.getCleanTrackName();
+        ResultScoring.Scratch scratch = ResultScoring.getScratch();
+        if (mIsFullTextQuery) {
+            float maxResult = 0f;
+            scratch.setText(track, album, artist);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(track, artist, album);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(artist, track, album);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(artist, album, track);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(album, artist, track);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(album, track, artist);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            return maxResult;
+        } else {
+            scratch.setText(artist);
+            float artistScore = ResultScoring.calculateScore(scratch, mArtistPattern);
+            scratch.setText(track);
+            float trackScore = ResultScoring.calculateScore(scratch, mTrackPattern);
+            if (mAlbumPattern == null) {
+                return (artistScore + trackScore) / 2;
+            } else {
+                scratch.setText(album);
+                float albumScore = ResultScoring.calculateScore(scratch, mAlbumPattern);
+                return (artistScore * 3 + albumScore + trackScore * 4) / 8;
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schedules the resolving of {@link Query}s on the individual resolvers ({@link ScriptResolver}s
+ * and {@link org.tomahawk.libtomahawk.collection.DbCollection}s). Every resolver has its own queue
+ * and a limit of how many {@link Query}s it may resolve at the same time, so that a slow resolver
+ * only delays its own queue. {@link Query}s set via {@link #setPriorityQueries(Collection)} are
+ * being dispatched before all others.
+ */
+public class ResolverScheduler {
+
+    public interface Dispatcher {
+
+        /**
+         * Start resolving the given {@link Query}. The resolver has to call {@link
+         * #onFinished(Object, Query)} once it is done.
+         */
+        void dispatch(Query query);
+    }
+
+    public static class Stats {
+
+        public int queueDepth;
+
+        public int inFlight;
+
+        public int limit;
+
+        public long dispatched;
+
+        public long finished;
+
+        public long averageWaitTime;
+
+        public long averageLatency;
+
+        @Override
+        public String toString() {
+            return "queueDepth: " + queueDepth + ", inFlight: " + inFlight + "/" + limit
+                    + ", dispatched: " + dispatched + ", finished: " + finished
+                    + ", avgWaitTime: " + averageWaitTime + "ms, avgLatency: " + averageLatency
+                    + "ms";
+        }
+    }
+
+    private static class ResolverQueue {
+
+        private Dispatcher mDispatcher;
+
+        private int mLimit;
+
+        // Queued queries mapped to the time at which they've been enqueued
+        private final LinkedHashMap<Query, Long> mQueued = new LinkedHashMap<>();
+
+        // In-flight queries mapped to the time at which they've been dispatched
+        private final Map<Query, Long> mInFlight = new HashMap<>();
+
+        private long mDispatched;
+
+        private long mFinished;
+
+        private long mTotalWaitTime;
+
+        private long mTotalLatency;
+    }
+
+    private final Map<Object, ResolverQueue> mQueues = new HashMap<>();
+
+    private Set<Query> mPriorityQueries = Collections.emptySet();
+
+    /**
+     * Enqueues the given {@link Query} for the given resolver and dispatches it right away if the
+     * resolver has a free slot.
+     *
+     * @param resolver   the resolver, which later has to call {@link #onFinished(Object, Query)}
+     * @param limit      the maximum number of queries the resolver may resolve at the same time
+     * @param query      the {@link Query} to resolve
+     * @param dispatcher the {@link Dispatcher} that actually invokes the resolver
+     */
+    public void schedule(Object resolver, int limit, Query query, Dispatcher dispatcher) {
+        synchronized (this) {
+            ResolverQueue queue = mQueues.get(resolver);
+            if (queue == null) {
+                queue = new ResolverQueue();
+                mQueues.put(resolver, queue);
+            }
+            queue.mDispatcher = dispatcher;
+            queue.mLimit = Math.max(1, limit);
+            if (!queue.mInFlight.containsKey(query) && !queue.mQueued.containsKey(query)) {
+                queue.mQueued.put(query, SystemClock.elapsedRealtime());
+            }
+        }
+        dispatchNext(resolver);
+    }
+
+    /**
+     * Has to be called by a resolver once it has finished resolving the given {@link Query}, no
+     * matter if it succeeded or not. Calls for queries which haven't been dispatched by this
+     * scheduler are ignored.
+     */
+    public void onFinished(Object resolver, Query query) {
+        synchronized (this) {
+            ResolverQueue queue = mQueues.get(resolver);
+            if (queue == null) {
+                return;
+            }
+            Long dispatchTime = queue.mInFlight.remove(query);
+            if (dispatchTime == null) {
+                return;
+            }
+            queue.mFinished++;
+            queue.mTotalLatency += SystemClock.elapsedRealtime() - dispatchTime;
+        }
+        dispatchNext(resolver);
+    }
+
+    /**
+     * Removes the given {@link Query} from all queues and frees the slots it has occupied.
+     */
+    public void cancel(Query query) {
+        List<Object> resolvers = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Object, ResolverQueue> entry : mQueues.entrySet()) {
+                ResolverQueue queue = entry.getValue();
+                queue.mQueued.remove(query);
+                if (queue.mInFlight.remove(query) != null) {
+                    resolvers.add(entry.getKey());
+                }
+            }
+        }
+        for (Object resolver : resolvers) {
+            dispatchNext(resolver);
+        }
+    }
+
+    /**
+     * Removes the given {@link Query} from the given resolver's queue and frees the slot it has
+     * occupied.
+     *
+     * @return the number of resolver calls that have been saved, meaning 1 if the {@link Query}
+     * had been queued but not yet dispatched, otherwise 0
+     */
+    public int cancel(Query query, Object resolver) {
+        boolean wasQueued;
+        boolean wasInFlight;
+        synchronized (this) {
+            ResolverQueue queue = mQueues.get(resolver);
+            if (queue == null) {
+                return 0;
+            }
+            wasQueued = queue.mQueued.remove(query) != null;
+            wasInFlight = queue.mInFlight.remove(query) != null;
+        }
+        if (wasInFlight) {
+            dispatchNext(resolver);
+        }
+        return wasQueued ? 1 : 0;
+    }
+
+    /**
+     * Sets the {@link Query}s that should be dispatched before all others (e.g. the {@link
+     * Query}s close to the current playback position).
+     */
+    public synchronized void setPriorityQueries(Collection<Query> queries) {
+        mPriorityQueries = new HashSet<>(queries);
+    }
+
+    private void dispatchNext(Object resolver) {
+        while (true) {
+            Query next = null;
+            Dispatcher dispatcher;
+            synchronized (this) {
+                ResolverQueue queue = mQueues.get(resolver);
+                if (queue == null || queue.mQueued.isEmpty()
+                        || queue.mInFlight.size() >= queue.mLimit) {
+                    return;
+                }
+                for (Query query : mPriorityQueries) {
+                    if (queue.mQueued.containsKey(query)) {
+                        next = query;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    next = queue.mQueued.keySet().iterator().next();
+                }
+                long now = SystemClock.elapsedRealtime();
+                queue.mTotalWaitTime += now - queue.mQueued.remove(next);
+                queue.mInFlight.put(next, now);
+                queue.mDispatched++;
+                dispatcher = queue.mDispatcher;
+            }
+            dispatcher.dispatch(next);
+        }
+    }
+
+    /**
+     * @return the current {@link Stats} of the given resolver's queue. null if nothing has been
+     * scheduled for the given resolver yet.
+     */
+    public synchronized Stats getStats(Object resolver) {
+        ResolverQueue queue = mQueues.get(resolver);
+        if (queue == null) {
+            return null;
+        }
+        Stats stats = new Stats();
+        stats.queueDepth = queue.mQueued.size();
+        stats.inFlight = queue.mInFlight.size();
+        stats.limit = queue.mLimit;
+        stats.dispatched = queue.mDispatched;
+        stats.finished = queue.mFinished;
+        stats.averageWaitTime =
+                queue.mDispatched > 0 ? queue.mTotalWaitTime / queue.mDispatched : 0;
+        stats.averageLatency = queue.mFinished > 0 ? queue.mTotalLatency / queue.mFinished : 0;
+        return stats;
+    }
+}
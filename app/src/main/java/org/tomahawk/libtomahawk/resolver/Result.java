@@ -19,6 +19,7 @@ package org.tomahawk.libtomahawk.resolver;
 
 import org.tomahawk.libtomahawk.collection.Album;
 import org.tomahawk.libtomahawk.collection.Artist;
+import org.tomahawk.libtomahawk.collection.CacheKey;
 import org.tomahawk.libtomahawk.collection.Cacheable;
 import org.tomahawk.libtomahawk.collection.Track;
 import org.tomahawk.tomahawk_android.TomahawkApp;
@@ -55,6 +56,13 @@ public class Result extends Cacheable {
 
     private String mLinkUrl;
 
+    // Normalized names, which are being cached for scoring
+    private volatile String mCleanArtistName;
+
+    private volatile String mCleanAlbumName;
+
+    private volatile String mCleanTrackName;
+
     private String mPurchaseUrl;
 
     private boolean isResolved;
@@ -109,19 +117,19 @@ public class Result extends Cacheable {
     }
 
     public static Result get(String url, Track track, Resolver resolvedBy) {
-        Cacheable cacheable = get(Result.class, getCacheKey(url, track.getName(),
+        Cacheable cacheable = get(Result.class, CacheKey.obtain(url, track.getName(),
                 track.getAlbum().getName(), track.getArtist().getName()));
         return cacheable != null ? (Result) cacheable : new Result(url, track, resolvedBy);
     }
 
     public static Result get(Artist artist) {
-        Cacheable cacheable = get(Result.class, getCacheKey(artist.getName()));
+        Cacheable cacheable = get(Result.class, CacheKey.obtain(artist.getName()));
         return cacheable != null ? (Result) cacheable : new Result(artist);
     }
 
     public static Result get(Album album) {
         Cacheable cacheable = get(Result.class,
-                getCacheKey(album.getName(), album.getArtist().getName()));
+                CacheKey.obtain(album.getName(), album.getArtist().getName()));
         return cacheable != null ? (Result) cacheable : new Result(album);
     }
 
@@ -141,6 +149,7 @@ public class Result extends Cacheable {
      */
     public void setTrack(Track mTrack) {
         this.mTrack = mTrack;
+        mCleanTrackName = null;
     }
 
     /**
@@ -155,6 +164,7 @@ public class Result extends Cacheable {
      */
     public void setArtist(Artist mArtist) {
         this.mArtist = mArtist;
+        mCleanArtistName = null;
     }
 
     /**
@@ -169,6 +179,43 @@ public class Result extends Cacheable {
      */
     public void setAlbum(Album mAlbum) {
         this.mAlbum = mAlbum;
+        mCleanAlbumName = null;
+    }
+
+    /**
+     * @return the normalized name of this {@link Result}'s {@link Artist}
+     */
+    public String getCleanArtistName() {
+        String name = mCleanArtistName;
+        if (name == null) {
+            name = ResultScoring.cleanUpString(mArtist.getName(), false);
+            mCleanArtistName = name;
+        }
+        return name;
+    }
+
+    /**
+     * @return the normalized name of this {@link Result}'s {@link Album}
+     */
+    public String getCleanAlbumName() {
+        String name = mCleanAlbumName;
+        if (name == null) {
+            name = ResultScoring.cleanUpString(mAlbum.getName(), false);
+            mCleanAlbumName = name;
+        }
+        return name;
+    }
+
+    /**
+     * @return the normalized name of this {@link Result}'s {@link Track}
+     */
+    public String getCleanTrackName() {
+        String name = mCleanTrackName;
+        if (name == null) {
+            name = ResultScoring.cleanUpString(mTrack.getName(), false);
+            mCleanTrackName = name;
+        }
+        return name;
     }
 
     /**
@@ -0,0 +1,355 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import org.tomahawk.libtomahawk.collection.Album;
+import org.tomahawk.libtomahawk.collection.Artist;
+import org.tomahawk.libtomahawk.collection.Track;
+import org.tomahawk.libtomahawk.database.DatabaseHelper;
+import org.tomahawk.libtomahawk.database.TomahawkSQLiteHelper;
+import org.tomahawk.tomahawk_android.TomahawkApp;
+import org.tomahawk.tomahawk_android.utils.ThreadManager;
+import org.tomahawk.tomahawk_android.utils.TomahawkRunnable;
+
+import android.database.Cursor;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists the {@link Result}s that have been found for a {@link Query}, so that they can be
+ * served right away after a restart, instead of having to wait for every resolver again. Every
+ * resolver has its own time-to-live, since stream urls expire but local file paths don't.
+ */
+public class ResultCache {
+
+    private final static String TAG = ResultCache.class.getSimpleName();
+
+    public static final long TTL_FOREVER = Long.MAX_VALUE;
+
+    private static final long DEFAULT_TTL = TimeUnit.DAYS.toMillis(1);
+
+    private static final long SUBSCRIPTION_TTL = TimeUnit.DAYS.toMillis(30);
+
+    private static final int MAX_STORED_SIGNATURES = 2000;
+
+    private static class Holder {
+
+        private static final ResultCache instance = new ResultCache();
+
+    }
+
+    private final Map<String, Long> mTtls = new ConcurrentHashMap<>();
+
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    /**
+     * Signatures of the result sets that are currently in the database, mapped to their query key
+     * and resolver id. Used to skip writing result sets that haven't changed.
+     */
+    private final LruCache<String, Long> mStoredSignatures =
+            new LruCache<>(MAX_STORED_SIGNATURES);
+
+    /**
+     * Cached results whose resolver hasn't been registered yet, mapped to the resolver's id. These
+     * are being added to their {@link Query} as soon as the resolver registers.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Query, List<PendingResult>>>
+            mPendingResults = new ConcurrentHashMap<>();
+
+    private volatile boolean mKeepPendingResults = true;
+
+    private static class PendingResult {
+
+        private final String mUrl;
+
+        private final Track mTrack;
+
+        private final float mScore;
+
+        private PendingResult(String url, Track track, float score) {
+            mUrl = url;
+            mTrack = track;
+            mScore = score;
+        }
+    }
+
+    private ResultCache() {
+        mTtls.put(TomahawkApp.PLUGINNAME_USERCOLLECTION, TTL_FOREVER);
+        mTtls.put(TomahawkApp.PLUGINNAME_SPOTIFY, SUBSCRIPTION_TTL);
+        mTtls.put(TomahawkApp.PLUGINNAME_DEEZER, SUBSCRIPTION_TTL);
+    }
+
+    public static ResultCache get() {
+        return Holder.instance;
+    }
+
+    /**
+     * Sets the time-to-live of the {@link Result}s that have been found by the resolver with the
+     * given id.
+     *
+     * @param resolverId the id of the resolver
+     * @param ttl        the time-to-live in ms or {@link #TTL_FOREVER}
+     */
+    public void setTtl(String resolverId, long ttl) {
+        mTtls.put(resolverId, ttl);
+    }
+
+    public long getTtl(String resolverId) {
+        Long ttl = mTtls.get(resolverId);
+        return ttl != null ? ttl : DEFAULT_TTL;
+    }
+
+    /**
+     * Stores the given {@link Result}s. Replaces all {@link Result}s that the resolver with the
+     * given id has previously found for the given {@link Query}. Nothing is being written if the
+     * same {@link Result}s with the same scores have already been stored or restored. The write
+     * itself is being executed on the I/O pool.
+     *
+     * @param query      the {@link Query} the {@link Result}s belong to
+     * @param resolverId the id of the resolver that has found the {@link Result}s
+     * @param results    the {@link Result}s mapped to their scores
+     */
+    public void store(final Query query, final String resolverId,
+            final Map<Result, Float> results) {
+        if (query.isFullTextQuery()) {
+            return;
+        }
+        long signature = 0;
+        for (Map.Entry<Result, Float> entry : results.entrySet()) {
+            signature += signature(entry.getKey().getPath(), entry.getValue());
+        }
+        String key = query.getCacheKey() + "\t" + resolverId;
+        synchronized (mStoredSignatures) {
+            Long storedSignature = mStoredSignatures.get(key);
+            if (storedSignature != null && storedSignature == signature) {
+                return;
+            }
+            mStoredSignatures.put(key, signature);
+        }
+        ThreadManager.get().execute(
+                new TomahawkRunnable(TomahawkRunnable.PRIORITY_IS_DATABASEACTION) {
+                    @Override
+                    public void run() {
+                        DatabaseHelper.get().storeCachedResults(query, resolverId, results);
+                    }
+                });
+    }
+
+    /**
+     * Adds all cached {@link Result}s of the given {@link Query} that haven't expired yet. Has to
+     * be called off the main thread.
+     *
+     * @return whether or not at least one cached {@link Result} has been added
+     */
+    public boolean restore(Query query) {
+        if (query.isFullTextQuery()) {
+            return false;
+        }
+        int restored = 0;
+        Map<String, Long> signatures = new HashMap<>();
+        Set<String> pendingResolverIds = new HashSet<>();
+        long now = System.currentTimeMillis();
+        Cursor cursor = DatabaseHelper.get().getCachedResults(query);
+        try {
+            int resolverIdIndex =
+                    cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_RESOLVERID);
+            int urlIndex = cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_URL);
+            int trackNameIndex =
+                    cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_TRACKNAME);
+            int albumNameIndex =
+                    cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_ALBUMNAME);
+            int artistNameIndex =
+                    cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_ARTISTNAME);
+            int durationIndex =
+                    cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_DURATION);
+            int scoreIndex = cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_SCORE);
+            int timestampIndex =
+                    cursor.getColumnIndex(TomahawkSQLiteHelper.RESULTCACHE_COLUMN_TIMESTAMP);
+            while (cursor.moveToNext()) {
+                String resolverId = cursor.getString(resolverIdIndex);
+                long age = now - cursor.getLong(timestampIndex);
+                if (age > getTtl(resolverId)) {
+                    continue;
+                }
+                Resolver resolver = getResolver(resolverId);
+                if (resolver != null && !resolver.isEnabled()) {
+                    continue;
+                }
+                if (resolver == null && !mKeepPendingResults) {
+                    continue;
+                }
+                String url = cursor.getString(urlIndex);
+                float score = cursor.getFloat(scoreIndex);
+                Artist artist = Artist.get(cursor.getString(artistNameIndex));
+                Album album = Album.get(cursor.getString(albumNameIndex), artist);
+                Track track = Track.get(cursor.getString(trackNameIndex), album, artist);
+                if (track.getDuration() == 0) {
+                    track.setDuration(cursor.getLong(durationIndex));
+                }
+                Long signature = signatures.get(resolverId);
+                signatures.put(resolverId,
+                        (signature != null ? signature : 0) + signature(url, score));
+                if (resolver == null) {
+                    // The resolver hasn't been registered yet. Keep the result until it registers.
+                    addPendingResult(resolverId, query, new PendingResult(url, track, score));
+                    pendingResolverIds.add(resolverId);
+                    continue;
+                }
+                query.addTrackResult(Result.get(url, track, resolver), score);
+                restored++;
+            }
+        } finally {
+            cursor.close();
+        }
+        synchronized (mStoredSignatures) {
+            for (Map.Entry<String, Long> entry : signatures.entrySet()) {
+                mStoredSignatures.put(query.getCacheKey() + "\t" + entry.getKey(),
+                        entry.getValue());
+            }
+        }
+        for (String resolverId : pendingResolverIds) {
+            // The resolver might have been registered while the cursor has been read
+            Resolver resolver = getResolver(resolverId);
+            if (resolver != null && restorePending(resolver).contains(query)) {
+                restored++;
+            }
+        }
+        if (restored > 0) {
+            mHitCount.incrementAndGet();
+            Log.d(TAG, "Restored " + restored + " cached results for " + query.toShortString());
+        } else {
+            mMissCount.incrementAndGet();
+        }
+        return restored > 0;
+    }
+
+    /**
+     * Adds the cached {@link Result}s that have been restored before the given resolver has been
+     * registered to their {@link Query}s.
+     *
+     * @return the {@link Query}s that {@link Result}s have been added to
+     */
+    public Set<Query> restorePending(Resolver resolver) {
+        Set<Query> queries = new HashSet<>();
+        Map<Query, List<PendingResult>> pending = mPendingResults.remove(resolver.getId());
+        if (pending == null || !resolver.isEnabled()) {
+            return queries;
+        }
+        for (Map.Entry<Query, List<PendingResult>> entry : pending.entrySet()) {
+            synchronized (entry.getValue()) {
+                for (PendingResult pendingResult : entry.getValue()) {
+                    Result result = Result.get(pendingResult.mUrl, pendingResult.mTrack, resolver);
+                    entry.getKey().addTrackResult(result, pendingResult.mScore);
+                }
+            }
+            queries.add(entry.getKey());
+        }
+        Log.d(TAG, "Restored pending cached results of " + queries.size() + " queries for "
+                + resolver.getId());
+        return queries;
+    }
+
+    /**
+     * Drops all cached {@link Result}s whose resolver hasn't been registered yet. Called once the
+     * startup has finished, since no more resolvers are expected to be registered afterwards.
+     */
+    public void clearPending() {
+        mKeepPendingResults = false;
+        mPendingResults.clear();
+    }
+
+    private void addPendingResult(String resolverId, Query query, PendingResult result) {
+        ConcurrentHashMap<Query, List<PendingResult>> pending = mPendingResults.get(resolverId);
+        if (pending == null) {
+            ConcurrentHashMap<Query, List<PendingResult>> newPending = new ConcurrentHashMap<>();
+            pending = mPendingResults.putIfAbsent(resolverId, newPending);
+            if (pending == null) {
+                pending = newPending;
+            }
+        }
+        List<PendingResult> results = pending.get(query);
+        if (results == null) {
+            List<PendingResult> newResults = new ArrayList<>();
+            results = pending.putIfAbsent(query, newResults);
+            if (results == null) {
+                results = newResults;
+            }
+        }
+        synchronized (results) {
+            results.add(result);
+        }
+    }
+
+    private static long signature(String url, float score) {
+        return (url != null ? url.hashCode() : 0) * 31L + Float.floatToIntBits(score);
+    }
+
+    /**
+     * Removes the cached {@link Result}s that can't be served anymore, because they are older than
+     * every finite time-to-live. Has to be called off the main thread.
+     */
+    public void prune() {
+        long maxTtl = DEFAULT_TTL;
+        Set<String> keptResolverIds = new HashSet<>();
+        for (Map.Entry<String, Long> entry : mTtls.entrySet()) {
+            if (entry.getValue() == TTL_FOREVER) {
+                keptResolverIds.add(entry.getKey());
+            } else {
+                maxTtl = Math.max(maxTtl, entry.getValue());
+            }
+        }
+        DatabaseHelper.get().removeCachedResultsOlderThan(System.currentTimeMillis() - maxTtl,
+                keptResolverIds);
+    }
+
+    private Resolver getResolver(String resolverId) {
+        if (TomahawkApp.PLUGINNAME_USERCOLLECTION.equals(resolverId)) {
+            return UserCollectionStubResolver.get();
+        }
+        return PipeLine.get().getResolver(resolverId);
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * @return the ratio of {@link Query}s that could be served from this cache
+     */
+    public float getHitRatio() {
+        long hits = mHitCount.get();
+        long total = hits + mMissCount.get();
+        return total > 0 ? (float) hits / total : 0f;
+    }
+}
@@ -27,18 +27,107 @@ public class ResultScoring {
     private static final char[] sDelimiters =
             new char[]{'(', '[', '{', ' ', '\n', '-', '/', '\\', ' ', ')', '[', '}'};
 
+    /**
+     * A query String that has been split up into parts of at most 32 chars, which have been
+     * compiled into {@link Bitap.Pattern}s. Can be matched against any number of results.
+     */
+    public static class Pattern {
+
+        private final Bitap.Pattern[] mParts;
+
+        private final int[] mTolerances;
+
+        public Pattern(String query) {
+            // bitap only allows a max of 32 chars per run
+            List<String> queryParts = splitUp(query, 32);
+            mParts = new Bitap.Pattern[queryParts.size()];
+            mTolerances = new int[queryParts.size()];
+            for (int i = 0; i < mParts.length; i++) {
+                mParts[i] = new Bitap.Pattern(queryParts.get(i));
+                // how many errors do we allow
+                mTolerances[i] = queryParts.get(i).length() / ERROR_TOLERANCE_RATIO;
+            }
+        }
+    }
+
+    /**
+     * Per-thread buffers, so that scoring doesn't have to allocate anything.
+     */
+    public static class Scratch {
+
+        private final Bitap.Matcher mMatcher = new Bitap.Matcher();
+
+        private char[] mText = new char[128];
+
+        private int mTextLength;
+
+        /**
+         * Sets the text of this {@link Scratch} to the given String.
+         */
+        public void setText(String text) {
+            if (mText.length < text.length()) {
+                mText = new char[text.length() * 2];
+            }
+            text.getChars(0, text.length(), mText, 0);
+            mTextLength = text.length();
+        }
+
+        /**
+         * Sets the text of this {@link Scratch} to the given Strings, separated by a space.
+         */
+        public void setText(String first, String second, String third) {
+            int length = first.length() + second.length() + third.length() + 2;
+            if (mText.length < length) {
+                mText = new char[length * 2];
+            }
+            first.getChars(0, first.length(), mText, 0);
+            int offset = first.length();
+            mText[offset++] = ' ';
+            second.getChars(0, second.length(), mText, offset);
+            offset += second.length();
+            mText[offset++] = ' ';
+            third.getChars(0, third.length(), mText, offset);
+            mTextLength = offset + third.length();
+        }
+    }
+
+    private static final ThreadLocal<Scratch> sScratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * @return the {@link Scratch} of the calling thread
+     */
+    public static Scratch getScratch() {
+        return sScratch.get();
+    }
+
     /**
      * This method determines how similar the given result is to the search string.
      */
     public static float calculateScore(String result, String query) {
+        Scratch scratch = getScratch();
+        scratch.setText(result);
+        return calculateScore(scratch, new Pattern(query));
+    }
+
+    /**
+     * This method determines how similar the text of the given {@link Scratch} is to the given
+     * compiled query {@link Pattern}. Doesn't allocate anything.
+     */
+    public static float calculateScore(Scratch scratch, Pattern query) {
+        char[] result = scratch.mText;
+        int resultLength = scratch.mTextLength;
         float totalScore = 0f;
         int lastIndex = 0;
-        List<String> queryParts = splitUp(query, 32); // bitap only allows a max of 32 chars per run
-        for (String queryPart : queryParts) {
-            // how many errors do we allow
-            int tolerance = queryPart.length() / ERROR_TOLERANCE_RATIO;
-            String partialResult = result.substring(lastIndex, result.length());
-            Bitap.Result r = Bitap.indexOf(partialResult, queryPart, tolerance);
+        for (int i = 0; i < query.mParts.length; i++) {
+            Bitap.Pattern queryPart = query.mParts[i];
+            int tolerance = query.mTolerances[i];
+            Bitap.Result r = scratch.mMatcher.indexOf(result, lastIndex, resultLength, queryPart,
+                    tolerance);
             if (r.index >= 0) {
                 float errorPenalty = 0f;
                 if (tolerance > 0) {
@@ -46,17 +135,17 @@ public class ResultScoring {
                     errorPenalty = (float) r.errors / tolerance * .3f;
                 }
                 float patternRatio;
-                float denominator = (float) Math.max(result.length(), queryPart.length());
+                float denominator = (float) Math.max(resultLength, queryPart.length());
                 if (denominator > 0) {
                     patternRatio =
-                            (float) Math.min(result.length(), queryPart.length()) / denominator;
+                            (float) Math.min(resultLength, queryPart.length()) / denominator;
                 } else {
                     // both query and result are empty Strings
                     patternRatio = 1f;
                 }
                 totalScore += patternRatio * (1f - errorPenalty); // apply the error penalty
                 lastIndex = r.index + queryPart.length();
-                if (lastIndex >= result.length()) {
+                if (lastIndex >= resultLength) {
                     // nothing to search for anymore
                     break;
                 }
@@ -112,11 +201,37 @@ public class ResultScoring {
      * @return the clean String
      */
     public static String cleanUpString(String in, boolean replaceArticle) {
-        String out = in.toLowerCase().trim().replaceAll("[\\s]{2,}", " ");
-        if (replaceArticle && out.startsWith("the ")) {
-            out = out.substring(4);
+        String trimmed = in.toLowerCase().trim();
+        // Collapse every run of at least two whitespace chars into a single space
+        StringBuilder out = null;
+        int length = trimmed.length();
+        for (int i = 0; i < length; i++) {
+            char c = trimmed.charAt(i);
+            if (isWhitespace(c) && i + 1 < length && isWhitespace(trimmed.charAt(i + 1))) {
+                if (out == null) {
+                    out = new StringBuilder(length);
+                    out.append(trimmed, 0, i);
+                }
+                out.append(' ');
+                while (i + 1 < length && isWhitespace(trimmed.charAt(i + 1))) {
+                    i++;
+                }
+            } else if (out != null) {
+                out.append(c);
+            }
         }
-        return out;
+        String result = out != null ? out.toString() : trimmed;
+        if (replaceArticle && result.startsWith("the ")) {
+            result = result.substring(4);
+        }
+        return result;
+    }
+
+    /**
+     * @return whether or not the given char is matched by the regex character class "\\s"
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
     }
 
 }
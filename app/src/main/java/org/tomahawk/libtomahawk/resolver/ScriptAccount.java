@@ -17,11 +17,17 @@
  */
 package org.tomahawk.libtomahawk.resolver;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import com.squareup.okhttp.MediaType;
 import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
@@ -30,6 +36,7 @@ import org.tomahawk.libtomahawk.database.CollectionDbManager;
 import org.tomahawk.libtomahawk.resolver.models.ScriptInterfaceRequestOptions;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverMetaData;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTypeAdapters;
 import org.tomahawk.libtomahawk.resolver.plugins.ScriptChartProviderPluginFactory;
 import org.tomahawk.libtomahawk.resolver.plugins.ScriptCollectionPluginFactory;
 import org.tomahawk.libtomahawk.resolver.plugins.ScriptInfoPluginFactory;
@@ -44,28 +51,32 @@ import org.tomahawk.tomahawk_android.activities.TomahawkMainActivity;
 import org.tomahawk.tomahawk_android.utils.IdGenerator;
 import org.tomahawk.tomahawk_android.utils.PreferenceUtils;
 
-import android.annotation.SuppressLint;
-import android.content.Context;
-import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
-import android.webkit.CookieManager;
-import android.webkit.WebSettings;
-import android.webkit.WebView;
 import android.widget.ImageView;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.greenrobot.event.EventBus;
 
-public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyListener {
+public class ScriptAccount {
 
     private final static String TAG = ScriptAccount.class.getSimpleName();
 
@@ -81,9 +92,65 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
 
     private String mName;
 
-    private WebView mWebView;
+    // A unique key that identifies this ScriptAccount's frame in its ScriptRuntime
+    private final String mFrameKey = IdGenerator.getSessionUniqueStringId();
 
-    private HashMap<String, ScriptJob> mJobs = new HashMap<>();
+    private final ScriptInterface mScriptInterface = new ScriptInterface(this);
+
+    private volatile ScriptRuntime mRuntime;
+
+    private volatile long mLoadTime = -1;
+
+    private volatile int mMemoryUsage = -1;
+
+    // Resolving jobs without an explicit timeout are being discarded after this time at the
+    // earliest
+    private static final long MIN_DEFAULT_JOB_TIMEOUT = 30000;
+
+    // The only jobs that are being discarded after the resolver's timeout by default. All other
+    // jobs (init, settings, login, config UI, charts, stations, ...) may legitimately wait for the
+    // network or for user input and therefore have no deadline unless they provide one.
+    private static final Set<String> TIMED_METHOD_NAMES = new HashSet<>(Arrays.asList(
+            "_adapter_resolve", "_adapter_search", "lookupUrl", "getStreamUrl"));
+
+    private final ConcurrentHashMap<String, ScriptJob> mJobs = new ConcurrentHashMap<>();
+
+    private final Handler mJobTimeoutHandler = new Handler(Looper.getMainLooper());
+
+    // Jobs that are being started within this time window are being invoked in one batch
+    private static final long JOB_BATCH_DELAY = 5;
+
+    private final Handler mJobBatchHandler = new Handler(Looper.getMainLooper());
+
+    // Tracks of a collection are being decoded and analyzed in chunks of this size
+    private static final int TRACK_CHUNK_SIZE = 1000;
+
+    // Response bodies of native http requests that are longer than this (in chars) aren't being
+    // inlined into the result, but pulled by JS through readHttpResponse
+    private static final int HTTP_RESPONSE_INLINE_LIMIT = 64 * 1024;
+
+    private final ConcurrentHashMap<Integer, String> mHttpResponses = new ConcurrentHashMap<>();
+
+    private final AtomicInteger mHttpResponseCounter = new AtomicInteger();
+
+    private final AtomicLong mHttpBytesTransferred = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<ScriptJob> mPendingJobs = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean mJobBatchScheduled = new AtomicBoolean(false);
+
+    private final Runnable mJobBatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            invokePendingJobs();
+        }
+    };
+
+    private long mJobBatchCount;
+
+    private long mBatchedJobCount;
+
+    private long mJobBatchTime;
 
     private HashMap<String, ScriptObject> mObjects = new HashMap<>();
 
@@ -106,7 +173,10 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
 
     private ScriptResolverMetaData mMetaData;
 
-    @SuppressLint({"AddJavascriptInterface", "SetJavaScriptEnabled"})
+    /**
+     * Construct a new {@link ScriptAccount}. Only reads its metadata. Its scripts are being loaded
+     * by calling {@link #load()}.
+     */
     public ScriptAccount(String path, boolean manuallyInstalled) {
         String prefix = manuallyInstalled ? "file://" : "file:///android_asset";
         mPath = prefix + path;
@@ -142,86 +212,53 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
                 }
             }
         }
+    }
 
-        CookieManager.setAcceptFileSchemeCookies(true);
-
-        mWebView = new WebView(TomahawkApp.getContext());
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            CookieManager.getInstance().setAcceptThirdPartyCookies(mWebView, true);
-        }
-        WebSettings settings = mWebView.getSettings();
-        settings.setJavaScriptEnabled(true);
-        settings.setDatabaseEnabled(true);
-        if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.JELLY_BEAN_MR2) {
-            //noinspection deprecation
-            settings.setDatabasePath(
-                    TomahawkApp.getContext().getDir("databases", Context.MODE_PRIVATE)
-                            .getPath());
-        }
-        settings.setDomStorageEnabled(true);
-        mWebView.setWebChromeClient(new TomahawkWebChromeClient());
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-            mWebView.getSettings().setAllowUniversalAccessFromFileURLs(true);
-        }
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            WebView.setWebContentsDebuggingEnabled(true);
+    /**
+     * Loads this {@link ScriptAccount}'s scripts into one of the shared {@link ScriptRuntime}s.
+     * Does nothing if they have already been loaded.
+     */
+    public synchronized void load() {
+        if (mMetaData == null || mRuntime != null) {
+            return;
         }
+        ScriptRuntimeHost.get().attach(this);
+    }
 
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                //initalize WebView
-                String data = "<!DOCTYPE html>" + "<html>"
-                        + "<head><title>" + mName + "</title></head>"
-                        + "<body>"
-                        + "<script src=\"file:///android_asset/js/rsvp-latest.min.js"
-                        + "\" type=\"text/javascript\"></script>"
-                        + "<script src=\"file:///android_asset/js/cryptojs-core.js"
-                        + "\" type=\"text/javascript\"></script>";
-                if (mMetaData.manifest.scripts != null) {
-                    for (String scriptPath : mMetaData.manifest.scripts) {
-                        data += "<script src=\"" + mPath + "/content/" + scriptPath
-                                + "\" type=\"text/javascript\"></script>";
-                    }
-                }
-                try {
-                    String[] cryptoJsScripts =
-                            TomahawkApp.getContext().getAssets().list("js/cryptojs");
-                    for (String scriptPath : cryptoJsScripts) {
-                        data += "<script src=\"file:///android_asset/js/cryptojs/"
-                                + scriptPath
-                                + "\" type=\"text/javascript\"></script>";
-                    }
-                } catch (IOException e) {
-                    Log.e(TAG,
-                            "ScriptResolver: " + e.getClass() + ": " + e.getLocalizedMessage());
-                }
-                data += "<script src=\"file:///android_asset/js/tomahawk_android_pre.js"
-                        + "\" type=\"text/javascript\"></script>"
-                        + "<script src=\"file:///android_asset/js/tomahawk.js"
-                        + "\" type=\"text/javascript\"></script>"
-                        + "<script src=\"file:///android_asset/js/tomahawk-infosystem.js"
-                        + "\" type=\"text/javascript\"></script>"
-                        + "<script src=\"file:///android_asset/js/tomahawk_android_post.js"
-                        + "\" type=\"text/javascript\"></script>"
-                        + "<script src=\"" + mPath + "/content/" + mMetaData.manifest.main
-                        + "\" type=\"text/javascript\"></script>"
-                        + "</body></html>";
-                mWebView.setWebViewClient(new ScriptWebViewClient(ScriptAccount.this));
-                mWebView.addJavascriptInterface(new ScriptInterface(ScriptAccount.this),
-                        SCRIPT_INTERFACE_NAME);
-                mWebView.loadDataWithBaseURL("file:///android_asset/test.html", data,
-                        "text/html", null, null);
+    void setRuntime(ScriptRuntime runtime) {
+        mRuntime = runtime;
+    }
+
+    /**
+     * @return the urls of all scripts that have to be loaded into this {@link ScriptAccount}'s
+     * frame. The libraries that are being shared by all plugins aren't included.
+     */
+    List<String> getFrameScripts() {
+        List<String> scripts = new ArrayList<>();
+        if (mMetaData.manifest.scripts != null) {
+            for (String scriptPath : mMetaData.manifest.scripts) {
+                scripts.add(mPath + "/content/" + scriptPath);
             }
-        });
+        }
+        scripts.add("file:///android_asset/js/tomahawk_android_pre.js");
+        scripts.add("file:///android_asset/js/tomahawk.js");
+        scripts.add("file:///android_asset/js/tomahawk-infosystem.js");
+        scripts.add("file:///android_asset/js/tomahawk_android_post.js");
+        scripts.add(mPath + "/content/" + mMetaData.manifest.main);
+        return scripts;
     }
 
     /**
-     * This method is being called, when the {@link ScriptWebViewClient} has completely loaded the
-     * given .js script.
+     * This method is being called by the {@link ScriptRuntime}, when it has completely loaded this
+     * {@link ScriptAccount}'s scripts.
+     *
+     * @param loadTime    the time in ms it took to load the scripts
+     * @param memoryUsage the amount of JS heap in KB that has been allocated while loading the
+     *                    scripts, -1 if unknown
      */
-    @Override
-    public void onWebViewClientReady() {
+    void onFrameLoaded(long loadTime, int memoryUsage) {
+        mLoadTime = loadTime;
+        mMemoryUsage = memoryUsage;
         //TODO: Remove this hack once we can get rid of Tomahawk.resolver.instance completely
         evaluateJavaScript("Tomahawk.resolver.instance = Tomahawk.resolver.instance "
                 + "|| Tomahawk.extend(Tomahawk.Resolver, {});"
@@ -229,6 +266,51 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
                 + "', Tomahawk.resolver.instance);");
     }
 
+    /**
+     * @return the time in ms it took to load this {@link ScriptAccount}'s scripts, -1 if they
+     * haven't been loaded yet
+     */
+    public long getLoadTime() {
+        return mLoadTime;
+    }
+
+    /**
+     * @return the amount of JS heap in KB that has been allocated while loading this {@link
+     * ScriptAccount}'s scripts, -1 if unknown or not loaded yet
+     */
+    public int getMemoryUsage() {
+        return mMemoryUsage;
+    }
+
+    /**
+     * @return the number of bytes of response bodies that this {@link ScriptAccount}'s native http
+     * requests have received and handed over to JS
+     */
+    public long getHttpBytesTransferred() {
+        return mHttpBytesTransferred.get();
+    }
+
+    String getFrameKey() {
+        return mFrameKey;
+    }
+
+    ScriptInterface getScriptInterface() {
+        return mScriptInterface;
+    }
+
+    /**
+     * @return whether or not the resolver of this {@link ScriptAccount} is enabled in its config
+     */
+    public boolean isResolverEnabled() {
+        Object enabled = getConfig().get(ENABLED_KEY);
+        if (enabled instanceof Boolean) {
+            return (Boolean) enabled;
+        }
+        // Enable soundcloud and jamendo by default
+        return TomahawkApp.PLUGINNAME_JAMENDO.equals(mName)
+                || TomahawkApp.PLUGINNAME_SOUNDCLOUD.equals(mName);
+    }
+
     public ScriptResolver getScriptResolver() {
         return mScriptResolver;
     }
@@ -322,52 +404,248 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
 
     public void startJob(final ScriptJob job) {
         final String requestId = IdGenerator.getSessionUniqueStringId();
-        mJobs.put(requestId, job);
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
+        job.setRequestId(requestId);
+        Runnable timeoutRunnable = new Runnable() {
             @Override
             public void run() {
-                evaluateJavaScript("Tomahawk.PluginManager.invoke("
-                        + "'" + requestId + "',"
-                        + "'" + job.getScriptObject().getId() + "',"
-                        + "'" + job.getMethodName() + "',"
-                        + GsonHelper.get().toJson(job.getArguments()) + ")");
+                if (mJobs.remove(requestId) != null && job.finish()) {
+                    Log.d(TAG, "ScriptJob timed out - ScriptAccount: " + mName
+                            + ", methodName: " + job.getMethodName());
+                    job.reportFailure("Timed out");
+                }
             }
-        });
+        };
+        job.setTimeoutRunnable(timeoutRunnable);
+        mJobs.put(requestId, job);
+        long timeout = getJobTimeout(job);
+        if (timeout > 0) {
+            mJobTimeoutHandler.postDelayed(timeoutRunnable, timeout);
+        }
+        mPendingJobs.add(job);
+        if (mJobBatchScheduled.compareAndSet(false, true)) {
+            mJobBatchHandler.postDelayed(mJobBatchRunnable, JOB_BATCH_DELAY);
+        }
+    }
+
+    /**
+     * Invokes all pending jobs with a single call to Tomahawk.PluginManager.invokeBatch. Must be
+     * called on the main thread.
+     */
+    private void invokePendingJobs() {
+        long startTime = SystemClock.elapsedRealtime();
+        mJobBatchScheduled.set(false);
+        ScriptRuntime runtime = mRuntime;
+        JsonArray invocations = new JsonArray();
+        ScriptJob job;
+        while ((job = mPendingJobs.poll()) != null) {
+            if (!mJobs.containsKey(job.getRequestId())) {
+                // The job has already been cancelled or has timed out
+                continue;
+            }
+            if (runtime == null) {
+                // This ScriptAccount's scripts haven't been loaded, so the job can't be invoked
+                if (removeJob(job.getRequestId()) != null) {
+                    job.reportFailure("ScriptAccount " + mName + " hasn't been loaded");
+                }
+                continue;
+            }
+            JsonObject invocation = new JsonObject();
+            invocation.addProperty("requestId", job.getRequestId());
+            invocation.addProperty("objectId", job.getScriptObject().getId());
+            invocation.addProperty("methodName", job.getMethodName());
+            invocation.add("params", GsonHelper.get().toJsonTree(job.getArguments()));
+            invocations.add(invocation);
+        }
+        if (invocations.size() == 0) {
+            return;
+        }
+        runtime.evaluateJavaScript(this,
+                "Tomahawk.PluginManager.invokeBatch(" + invocations.toString() + ");");
+        long time = SystemClock.elapsedRealtime() - startTime;
+        mJobBatchCount++;
+        mBatchedJobCount += invocations.size();
+        mJobBatchTime += time;
+        Log.d(TAG, "invokePendingJobs - ScriptAccount: " + mName + ", invoked "
+                + invocations.size() + " jobs in " + time + "ms on the main thread");
+    }
+
+    /**
+     * @return the average number of jobs that have been invoked per batch
+     */
+    public float getAverageJobBatchSize() {
+        return mJobBatchCount > 0 ? (float) mBatchedJobCount / mJobBatchCount : 0f;
+    }
+
+    /**
+     * @return the average time in ms the main thread has spent to invoke a batch of jobs
+     */
+    public float getAverageJobBatchTime() {
+        return mJobBatchCount > 0 ? (float) mJobBatchTime / mJobBatchCount : 0f;
+    }
+
+    /**
+     * @return the time in ms after which the given job is being discarded. Jobs with an explicit
+     * timeout use that one. Resolving, searching and URL jobs default to the timeout given in the
+     * resolver's settings, but never less than MIN_DEFAULT_JOB_TIMEOUT. 0 if the job has no
+     * deadline.
+     */
+    private long getJobTimeout(ScriptJob job) {
+        if (job.getTimeout() > 0) {
+            return job.getTimeout();
+        }
+        if (!TIMED_METHOD_NAMES.contains(job.getMethodName())) {
+            return 0;
+        }
+        long timeout = mScriptResolver != null ? mScriptResolver.getTimeout() : 0;
+        return Math.max(timeout, MIN_DEFAULT_JOB_TIMEOUT);
+    }
+
+    /**
+     * Removes the job with the given requestId from the job table.
+     *
+     * @return the removed job, or null if it has already been completed, cancelled or discarded
+     */
+    private ScriptJob removeJob(String requestId) {
+        ScriptJob job = mJobs.remove(requestId);
+        if (job != null) {
+            mJobTimeoutHandler.removeCallbacks(job.getTimeoutRunnable());
+            if (!job.finish()) {
+                return null;
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Cancels all pending jobs that belong to the given {@link Query}. Their callbacks won't be
+     * invoked anymore.
+     *
+     * @return the number of cancelled jobs
+     */
+    public int cancelJobs(Query query) {
+        int count = 0;
+        for (ScriptJob job : mJobs.values()) {
+            if (job.getQuery() == query && removeJob(job.getRequestId()) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Called by the {@link ScriptRuntime}, if code couldn't be evaluated, because this {@link
+     * ScriptAccount}'s frame doesn't exist. None of the started jobs can be completed in that case,
+     * so all of them are being failed right away instead of waiting for their timeout.
+     */
+    void onEvaluateFailed() {
+        Log.e(TAG, "onEvaluateFailed - ScriptAccount: " + mName + ", frame doesn't exist");
+        for (ScriptJob job : mJobs.values()) {
+            if (removeJob(job.getRequestId()) != null) {
+                job.reportFailure("ScriptAccount " + mName + " hasn't been loaded");
+            }
+        }
+    }
+
+    /**
+     * @return the number of jobs that have been started but haven't been completed, cancelled or
+     * discarded yet
+     */
+    public int getInFlightJobCount() {
+        return mJobs.size();
     }
 
     private void evaluateJavaScript(final String code) {
         new Handler(Looper.getMainLooper()).post(new Runnable() {
             @Override
             public void run() {
-                mWebView.loadUrl("javascript: " + code);
+                ScriptRuntime runtime = mRuntime;
+                if (runtime == null) {
+                    Log.e(TAG, "evaluateJavaScript - ScriptAccount: " + mName
+                            + " hasn't been loaded");
+                    return;
+                }
+                runtime.loadJavaScriptUrl(ScriptAccount.this, code);
             }
         });
     }
 
-    public void reportScriptJobResult(JsonObject result) {
-        JsonElement requestIdNode = result.get("requestId");
+    /**
+     * Decodes the given result of a {@link ScriptJob} and reports it to the job. The result's data
+     * is being decoded directly from the JSON string, without building a tree of {@link
+     * JsonElement}s first, as long as the requestId precedes it (which is the case for all results
+     * that are being reported by tomahawk.js).
+     */
+    public void reportScriptJobResult(String resultString) {
+        JsonReader reader = ScriptResultDecoder.newReader(resultString);
         String requestId = null;
-        if (requestIdNode != null && requestIdNode.isJsonPrimitive()) {
-            requestId = result.get("requestId").getAsString();
-        }
-        if (requestId != null && !requestId.isEmpty()) {
-            ScriptJob job = mJobs.get(requestId);
-            if (job != null) {
-                JsonElement errorNode = result.get("error");
-                if (errorNode == null) {
-                    job.reportResults(result.get("data"));
-                } else if (errorNode.isJsonPrimitive()) {
-                    job.reportFailure(result.get("error").getAsString());
+        ScriptJob job = null;
+        JsonElement bufferedData = null;
+        boolean reported = false;
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return;
+            }
+            String errorMessage = null;
+            boolean hasError = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if (name.equals("requestId")
+                        && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                    requestId = reader.nextString();
+                    if (!requestId.isEmpty()) {
+                        job = removeJob(requestId);
+                    }
+                } else if (name.equals("data")) {
+                    if (job != null) {
+                        // Only mark the job as reported once it has consumed the whole result, so
+                        // that a decoding error half way through still fails the job
+                        job.reportResults(reader);
+                        reported = true;
+                    } else if (requestId == null) {
+                        bufferedData = new JsonParser().parse(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                } else if (name.equals("error")) {
+                    hasError = true;
+                    if (token == JsonToken.STRING || token == JsonToken.NUMBER
+                            || token == JsonToken.BOOLEAN) {
+                        errorMessage = new JsonParser().parse(reader).getAsString();
+                    } else {
+                        reader.skipValue();
+                    }
                 } else {
-                    job.reportFailure("no error message provided");
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (requestId != null && !requestId.isEmpty()) {
+                if (job != null) {
+                    if (hasError) {
+                        job.reportFailure(errorMessage != null
+                                ? errorMessage : "no error message provided");
+                    } else if (!reported) {
+                        job.reportResults(bufferedData);
+                        reported = true;
+                    }
+                } else {
+                    Log.e(TAG, "reportScriptJobResult - ScriptAccount:" + mName
+                            + ", couldn't find ScriptJob with given requestId. It might have been"
+                            + " cancelled or timed out.");
                 }
             } else {
                 Log.e(TAG, "reportScriptJobResult - ScriptAccount:" + mName
-                        + ", couldn't find ScriptJob with given requestId");
+                        + ", requestId is null or empty");
+            }
+        } catch (IOException | JsonParseException | IllegalStateException
+                | NumberFormatException e) {
+            Log.e(TAG, "reportScriptJobResult - ScriptAccount:" + mName + ", " + e.getClass()
+                    + ": " + e.getLocalizedMessage());
+            if (job != null && !reported) {
+                job.reportFailure("Couldn't decode result: " + e.getLocalizedMessage());
             }
-        } else {
-            Log.e(TAG, "reportScriptJobResult - ScriptAccount:" + mName
-                    + ", requestId is null or empty");
         }
     }
 
@@ -430,19 +708,12 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
     }
 
     public void invokeNativeScriptJob(int requestId, String methodName, String paramsString) {
-        JsonObject params = GsonHelper.get().fromJson(paramsString, JsonObject.class);
         if (methodName.equals("collectionAddTracks")) {
-            String id = params.get("id").getAsString();
-            List<ScriptResolverTrack> tracks = GsonHelper.get().fromJson(
-                    params.getAsJsonArray("tracks"),
-                    new TypeToken<List<ScriptResolverTrack>>() {
-                    }.getType());
-
-            CollectionDb collectionDb = CollectionDbManager.get().getCollectionDb(id);
-            collectionDb.addTracks(tracks);
-
-            reportNativeScriptJobResult(requestId, "'" + collectionDb.getRevision() + "'");
-        } else if (methodName.equals("collectionWipe")) {
+            collectionAddTracks(requestId, paramsString);
+            return;
+        }
+        JsonObject params = GsonHelper.get().fromJson(paramsString, JsonObject.class);
+        if (methodName.equals("collectionWipe")) {
             String id = params.get("id").getAsString();
 
             CollectionDbManager.get().getCollectionDb(id).wipe();
@@ -478,6 +749,54 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
         }
     }
 
+    /**
+     * Decodes the tracks of a "collectionAddTracks" job directly from the given JSON string in
+     * chunks and adds them to the {@link CollectionDb}. Every chunk is being analyzed while the
+     * following chunks are still being decoded.
+     */
+    private void collectionAddTracks(int requestId, String paramsString) {
+        String id = null;
+        final CollectionDb.TrackIngest ingest = new CollectionDb.TrackIngest();
+        JsonReader reader = ScriptResultDecoder.newReader(paramsString);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("id")) {
+                    id = reader.nextString();
+                } else if (name.equals("tracks")) {
+                    ScriptResultDecoder.readArray(reader, ScriptResolverTypeAdapters.TRACK,
+                            TRACK_CHUNK_SIZE,
+                            new ScriptResultDecoder.ChunkCallback<ScriptResolverTrack>() {
+                                @Override
+                                public void onChunk(List<ScriptResolverTrack> chunk) {
+                                    ingest.add(chunk);
+                                }
+                            });
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            Log.e(TAG, "collectionAddTracks - ScriptAccount:" + mName + ", " + e.getClass()
+                    + ": " + e.getLocalizedMessage());
+            reportNativeScriptJobError(requestId,
+                    "Couldn't decode tracks: " + e.getLocalizedMessage());
+            return;
+        }
+        if (id == null) {
+            Log.e(TAG, "collectionAddTracks - ScriptAccount:" + mName + ", id is null");
+            reportNativeScriptJobError(requestId, "No collection id provided");
+            return;
+        }
+
+        CollectionDb collectionDb = CollectionDbManager.get().getCollectionDb(id);
+        collectionDb.addTracks(ingest);
+
+        reportNativeScriptJobResult(requestId, "'" + collectionDb.getRevision() + "'");
+    }
+
     private void reportNativeScriptJobResult(int requestId, String result) {
         if (result == null) {
             evaluateJavaScript("Tomahawk.NativeScriptJobManager.reportNativeScriptJobResult( "
@@ -488,6 +807,11 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
         }
     }
 
+    private void reportNativeScriptJobError(int requestId, String error) {
+        evaluateJavaScript("Tomahawk.NativeScriptJobManager.reportNativeScriptJobError( "
+                + requestId + ", " + GsonHelper.get().toJson(error) + " );");
+    }
+
     public void onShowWebViewFinished(int requestId, String url) {
         if (url != null) {
             HashMap<String, Object> args = new HashMap<>();
@@ -496,6 +820,55 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
         }
     }
 
+    /**
+     * Stores the given response body until JS has pulled it or until it has expired.
+     *
+     * @return the handle, with which JS can pull the response body
+     */
+    private int storeHttpResponse(String responseText) {
+        final int handle = mHttpResponseCounter.incrementAndGet();
+        mHttpResponses.put(handle, responseText);
+        mJobTimeoutHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (mHttpResponses.remove(handle) != null) {
+                    Log.e(TAG, "storeHttpResponse - ScriptAccount:" + mName
+                            + ", response " + handle + " has expired before it has been read");
+                }
+            }
+        }, MIN_DEFAULT_JOB_TIMEOUT);
+        return handle;
+    }
+
+    /**
+     * @return the part of the stored response body with the given handle, that starts at the given
+     * offset and has at most the given length. It is one char shorter, if it would otherwise end
+     * in the middle of a surrogate pair. null if there's no response with the given handle.
+     */
+    public String readHttpResponse(int handle, int offset, int length) {
+        String responseText = mHttpResponses.get(handle);
+        if (responseText == null) {
+            Log.e(TAG, "readHttpResponse - ScriptAccount:" + mName
+                    + ", couldn't find response " + handle);
+            return null;
+        }
+        int start = Math.max(0, Math.min(offset, responseText.length()));
+        int end = Math.min(responseText.length(), start + Math.max(0, length));
+        if (end < responseText.length() && end - 1 > start
+                && Character.isHighSurrogate(responseText.charAt(end - 1))) {
+            // Don't split a surrogate pair. It's being returned with the next chunk instead.
+            end--;
+        }
+        return responseText.substring(start, end);
+    }
+
+    /**
+     * Frees the stored response body with the given handle
+     */
+    public void releaseHttpResponse(int handle) {
+        mHttpResponses.remove(handle);
+    }
+
     private JsonObject jsHttpRequest(ScriptInterfaceRequestOptions options) {
         Response response = null;
         try {
@@ -518,9 +891,12 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
             java.net.CookieManager cookieManager = getCookieManager(isTestingConfig);
             response = NetworkUtils.httpRequest(method, url, headers, username, password, data,
                     true, cookieManager);
-            // We have to encode the %-chars because the Android WebView automatically decodes
-            // percentage-escaped chars ... for whatever reason. Seems likely that this is a bug.
-            String responseText = response.body().string().replace("%", "%25");
+            ResponseBody body = response.body();
+            MediaType contentType = body.contentType();
+            byte[] bytes = body.bytes();
+            mHttpBytesTransferred.addAndGet(bytes.length);
+            String responseText = new String(bytes,
+                    contentType != null ? contentType.charset(Charsets.UTF_8) : Charsets.UTF_8);
             JsonObject responseHeaders = new JsonObject();
             for (String headerName : response.headers().names()) {
                 String concatenatedValues = "";
@@ -538,7 +914,17 @@ public class ScriptAccount implements ScriptWebViewClient.WebViewClientReadyList
             String statusText = response.message().replace("%", "%25");
 
             JsonObject result = new JsonObject();
-            result.addProperty("responseText", responseText);
+            if (responseText.length() > HTTP_RESPONSE_INLINE_LIMIT) {
+                // Large bodies are being kept here and pulled by JS through the bridge, so that
+                // they don't have to be escaped and passed through a "javascript:" url
+                result.addProperty("responseTextHandle", storeHttpResponse(responseText));
+                result.addProperty("responseTextLength", responseText.length());
+            } else {
+                // We have to encode the %-chars because the Android WebView automatically decodes
+                // percentage-escaped chars ... for whatever reason. Seems likely that this is a
+                // bug.
+                result.addProperty("responseText", responseText.replace("%", "%25"));
+            }
             result.add("responseHeaders", responseHeaders);
             result.addProperty("status", status);
             result.addProperty("statusText", statusText);
@@ -1,8 +1,5 @@
 package org.tomahawk.libtomahawk.resolver;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.FileUtils;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverData;
@@ -10,7 +7,6 @@ import org.tomahawk.libtomahawk.utils.GsonHelper;
 import org.tomahawk.tomahawk_android.TomahawkApp;
 
 import android.util.Log;
-import android.webkit.JavascriptInterface;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,7 +14,8 @@ import java.util.Map;
 
 /**
  * This class contains all methods that are being exposed to the javascript script inside a {@link
- * ScriptResolver} object.
+ * ScriptResolver} object. The {@link ScriptRuntime} hosting the script forwards the calls to the
+ * {@link ScriptInterface} of the calling {@link ScriptAccount}.
  */
 public class ScriptInterface {
 
@@ -36,7 +33,6 @@ public class ScriptInterface {
      *
      * @return a serialized JSON-{@link String} containing the scriptPath and config.
      */
-    @JavascriptInterface
     public String resolverDataString() {
         Map<String, Object> config = mScriptAccount.getConfig();
         ScriptResolverData data = new ScriptResolverData();
@@ -49,7 +45,6 @@ public class ScriptInterface {
     /**
      * A straightforward log method to write something into the Debug log.
      */
-    @JavascriptInterface
     public void log(String message) {
         Log.d(TAG, "log: " + mScriptAccount.getName() + ": " + message);
     }
@@ -60,24 +55,20 @@ public class ScriptInterface {
      *
      * @param in the int pointing to the script's capabilities
      */
-    @JavascriptInterface
     public void nativeReportCapabilities(int in) {
         // NOOP until Tomahawk Desktop drops compat for pre 0.9 resolvers
     }
 
-    @JavascriptInterface
     public void addCustomUrlHandler(String protocol, String callbackFuncName, boolean isAsync) {
         // NOOP until Tomahawk Desktop recognizes Resolvers as URL-Handlers without this call
     }
 
-    @JavascriptInterface
     public String readBase64(String fileName) {
         // We return an empty string because we don't want the base64 string containing png image
         // data or stuff from config.ui.
         return "";
     }
 
-    @JavascriptInterface
     public void localStorageSetItem(String key, String value) {
         String dirPath = TomahawkApp.getContext().getFilesDir().getAbsolutePath()
                 + File.separator + "TomahawkWebViewStorage";
@@ -93,7 +84,6 @@ public class ScriptInterface {
         }
     }
 
-    @JavascriptInterface
     public String localStorageGetItem(String key) {
         String dirPath = TomahawkApp.getContext().getFilesDir().getAbsolutePath()
                 + File.separator + "TomahawkWebViewStorage";
@@ -110,7 +100,6 @@ public class ScriptInterface {
         return null;
     }
 
-    @JavascriptInterface
     public void localStorageRemoveItem(String key) {
         String path = TomahawkApp.getContext().getFilesDir().getAbsolutePath()
                 + File.separator + "TomahawkWebViewStorage" + File.separator + key;
@@ -120,7 +109,6 @@ public class ScriptInterface {
         }
     }
 
-    @JavascriptInterface
     public String[] keys() {
         String path = TomahawkApp.getContext().getFilesDir().getAbsolutePath()
                 + File.separator + "TomahawkWebViewStorage";
@@ -131,7 +119,6 @@ public class ScriptInterface {
         return keys;
     }
 
-    @JavascriptInterface
     public String[] values() {
         String[] keys = keys();
         String[] values = new String[keys.length];
@@ -141,26 +128,27 @@ public class ScriptInterface {
         return values;
     }
 
-    @JavascriptInterface
     public void reportScriptJobResults(String resultsString) {
-        JsonElement node = GsonHelper.get().fromJson(resultsString, JsonElement.class);
-        if (node.isJsonObject()) {
-            mScriptAccount.reportScriptJobResult((JsonObject) node);
-        }
+        mScriptAccount.reportScriptJobResult(resultsString);
     }
 
-    @JavascriptInterface
     public void registerScriptPlugin(String type, String objectId) {
         mScriptAccount.registerScriptPlugin(type, objectId);
     }
 
-    @JavascriptInterface
     public void unregisterScriptPlugin(String type, String objectId) {
         mScriptAccount.unregisterScriptPlugin(type, objectId);
     }
 
-    @JavascriptInterface
     public void invokeNativeScriptJob(int requestId, String methodName, String paramsString) {
         mScriptAccount.invokeNativeScriptJob(requestId, methodName, paramsString);
     }
+
+    public String readHttpResponse(int handle, int offset, int length) {
+        return mScriptAccount.readHttpResponse(handle, offset, length);
+    }
+
+    public void releaseHttpResponse(int handle) {
+        mScriptAccount.releaseHttpResponse(handle);
+    }
 }
@@ -20,14 +20,18 @@ package org.tomahawk.libtomahawk.resolver;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
 
 import org.tomahawk.libtomahawk.utils.GsonHelper;
 
 import android.util.Log;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A {@link ScriptJob} is an object that is being passed to the JavaScript side to handle a certain
@@ -49,6 +53,16 @@ public class ScriptJob {
 
     private FailureCallback mFailureCallback;
 
+    private Query mQuery;
+
+    private long mTimeout;
+
+    private String mRequestId;
+
+    private Runnable mTimeoutRunnable;
+
+    private final AtomicBoolean mFinished = new AtomicBoolean(false);
+
     private interface SuccessCallback {
 
     }
@@ -146,6 +160,34 @@ public class ScriptJob {
         object.getScriptAccount().startJob(job);
     }
 
+    /**
+     * Constructs and starts a new ScriptJob that belongs to the given {@link Query}. The job is
+     * being cancelled if the {@link Query} is being stopped through {@link
+     * org.tomahawk.tomahawk_android.utils.ThreadManager#stop(Query)}.
+     *
+     * @param object          The {@link ScriptObject} that is associated with this {@link
+     *                        ScriptJob}. The {@link ScriptObject} represents the Java-{@link
+     *                        ScriptPlugin} on the JS side.
+     * @param methodName      The name of the method that will be called on the JS side.
+     * @param arguments       The set of arguments (parameters) that is provided to the called
+     *                        method.
+     * @param successCallback A callback object that will get called when the request has
+     *                        successfully returned from the JS side.
+     * @param failureCallback A callback object that will get called when the request has failed
+     *                        or timed out.
+     * @param query           The {@link Query} this job belongs to.
+     * @param timeout         The time in ms after which this job is being discarded.
+     */
+    public static void start(ScriptObject object, String methodName, Map<String, Object> arguments,
+            SuccessCallback successCallback, FailureCallback failureCallback, Query query,
+            long timeout) {
+        ScriptJob job = new ScriptJob(object, methodName, arguments, successCallback,
+                failureCallback);
+        job.mQuery = query;
+        job.mTimeout = timeout;
+        object.getScriptAccount().startJob(job);
+    }
+
     /**
      * Convenience-method! Constructs and starts a new ScriptJob.
      *
@@ -240,6 +282,46 @@ public class ScriptJob {
         return mArguments;
     }
 
+    /**
+     * @return the {@link Query} this job belongs to or null
+     */
+    public Query getQuery() {
+        return mQuery;
+    }
+
+    /**
+     * @return the time in ms after which this job is being discarded, 0 if the default timeout of
+     * the {@link ScriptAccount} should be used
+     */
+    public long getTimeout() {
+        return mTimeout;
+    }
+
+    String getRequestId() {
+        return mRequestId;
+    }
+
+    void setRequestId(String requestId) {
+        mRequestId = requestId;
+    }
+
+    Runnable getTimeoutRunnable() {
+        return mTimeoutRunnable;
+    }
+
+    void setTimeoutRunnable(Runnable timeoutRunnable) {
+        mTimeoutRunnable = timeoutRunnable;
+    }
+
+    /**
+     * Marks this job as finished. After that no callback will be invoked anymore.
+     *
+     * @return false, if this job has already been finished before
+     */
+    boolean finish() {
+        return mFinished.compareAndSet(false, true);
+    }
+
     /**
      * This method is being called if the request was successful.
      *
@@ -264,6 +346,22 @@ public class ScriptJob {
         }
     }
 
+    /**
+     * This method is being called if the request was successful. If this job expects typed results,
+     * the data is being decoded directly from the given {@link JsonReader}. Otherwise the data is
+     * being parsed into a {@link JsonElement} first.
+     *
+     * @param reader The {@link JsonReader} that is positioned at the returned data.
+     */
+    public void reportResults(JsonReader reader) throws IOException {
+        if (mSuccessCallback instanceof ResultsCallback) {
+            ResultsCallback callback = ((ResultsCallback) mSuccessCallback);
+            callback.onReportResults(GsonHelper.get().getAdapter(callback.getType()).read(reader));
+        } else {
+            reportResults(new JsonParser().parse(reader));
+        }
+    }
+
     /**
      * This method is being called if the request failed.
      *
@@ -18,7 +18,6 @@
 package org.tomahawk.libtomahawk.resolver;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.reflect.TypeToken;
 
@@ -29,13 +28,13 @@ import org.tomahawk.libtomahawk.authentication.AuthenticatorManager;
 import org.tomahawk.libtomahawk.authentication.AuthenticatorUtils;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverAccessTokenResult;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverConfigUiField;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverResults;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverSettings;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverStreamUrlResult;
 import org.tomahawk.libtomahawk.resolver.models.ScriptResolverUrlResult;
 import org.tomahawk.libtomahawk.utils.ADeferredObject;
 import org.tomahawk.libtomahawk.utils.GsonHelper;
 import org.tomahawk.libtomahawk.utils.NetworkUtils;
-import org.tomahawk.tomahawk_android.TomahawkApp;
 import org.tomahawk.tomahawk_android.utils.WeakReferenceHandler;
 
 import android.os.Looper;
@@ -122,13 +121,7 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
         mInitialized = false;
         mStopped = true;
         mId = mScriptAccount.getName();
-        if (getConfig().get(ScriptAccount.ENABLED_KEY) != null) {
-            mEnabled = (Boolean) getConfig().get(ScriptAccount.ENABLED_KEY);
-        } else {
-            // Enable soundcloud and jamendo by default
-            mEnabled = TomahawkApp.PLUGINNAME_JAMENDO.equals(mId)
-                    || TomahawkApp.PLUGINNAME_SOUNDCLOUD.equals(mId);
-        }
+        mEnabled = mScriptAccount.isResolverEnabled();
         settings();
         if (mEnabled) {
             init();
@@ -190,6 +183,7 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
             public void onReportResults() {
                 mInitialized = true;
                 Log.d(TAG, "ScriptResolver " + mId + " initialized successfully.");
+                PipeLine.get().onResolverReady(ScriptResolver.this);
                 invokeWaitingJobs();
             }
         }, new ScriptJob.FailureCallback() {
@@ -204,7 +198,7 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
         Log.d(TAG, "Resolving " + mWaitingQueries.size() + " waiting queries. Looking up "
                 + mWaitingUrlLookups.size() + " waiting URLs.");
         for (Query query : mWaitingQueries) {
-            resolve(query);
+            PipeLine.get().scheduleResolve(this, query);
         }
         mWaitingQueries.clear();
         for (String url : mWaitingUrlLookups) {
@@ -285,31 +279,48 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
             mTimeOutHandler.removeCallbacksAndMessages(null);
             mTimeOutHandler.sendEmptyMessageDelayed(TIMEOUT_HANDLER_MSG, mTimeout);
 
-            ScriptJob.ResultsObjectCallback callback = new ScriptJob.ResultsObjectCallback() {
+            ScriptJob.ResultsCallback<ScriptResolverResults> callback =
+                    new ScriptJob.ResultsCallback<ScriptResolverResults>(
+                            ScriptResolverResults.class) {
+                @Override
+                public void onReportResults(ScriptResolverResults results) {
+                    try {
+                        ArrayList<Result> parsedResults = ScriptUtils.parseResultList(
+                                ScriptResolver.this, results != null ? results.tracks : null);
+                        PipeLine.get().reportResults(query, parsedResults, mId);
+                    } finally {
+                        mTimeOutHandler.removeCallbacksAndMessages(null);
+                        mStopped = true;
+                        PipeLine.get().onResolveFinished(ScriptResolver.this, query);
+                    }
+                }
+            };
+            ScriptJob.FailureCallback failureCallback = new ScriptJob.FailureCallback() {
                 @Override
-                public void onReportResults(JsonObject results) {
-                    JsonArray tracks = results.getAsJsonArray("tracks");
-                    ArrayList<Result> parsedResults =
-                            ScriptUtils.parseResultList(ScriptResolver.this, tracks);
-                    PipeLine.get().reportResults(query, parsedResults, mId);
-                    mTimeOutHandler.removeCallbacksAndMessages(null);
-                    mStopped = true;
+                public void onReportFailure(String errormessage) {
+                    Log.d(TAG, "ScriptResolver " + mId + " failed to resolve query: "
+                            + errormessage);
+                    PipeLine.get().onResolveFinished(ScriptResolver.this, query);
                 }
             };
 
             if (query.isFullTextQuery()) {
                 HashMap<String, Object> args = new HashMap<>();
                 args.put("query", query.getFullTextQuery());
-                ScriptJob.start(mScriptObject, "_adapter_search", args, callback);
+                ScriptJob.start(mScriptObject, "_adapter_search", args, callback,
+                        failureCallback, query, mTimeout);
             } else {
                 HashMap<String, Object> args = new HashMap<>();
                 args.put("artist", query.getBasicTrack().getArtist().getName());
                 args.put("album", query.getBasicTrack().getAlbum().getName());
                 args.put("track", query.getBasicTrack().getName());
-                ScriptJob.start(mScriptObject, "_adapter_resolve", args, callback);
+                ScriptJob.start(mScriptObject, "_adapter_resolve", args, callback,
+                        failureCallback, query, mTimeout);
             }
         } else {
             mWaitingQueries.add(query);
+            // Free the slot, the query will be resolved again once this resolver is initialized
+            PipeLine.get().onResolveFinished(this, query);
         }
     }
 
@@ -411,6 +422,13 @@ public class ScriptResolver implements Resolver, ScriptPlugin {
         return mWeight;
     }
 
+    /**
+     * @return this {@link ScriptResolver}'s timeout in ms
+     */
+    public int getTimeout() {
+        return mTimeout;
+    }
+
     public String getDescription() {
         return mScriptAccount.getMetaData().description;
     }
@@ -0,0 +1,83 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the JSON strings that are being passed over the JS bridge directly into typed models,
+ * without building a tree of {@link com.google.gson.JsonElement}s first.
+ */
+public class ScriptResultDecoder {
+
+    public interface ChunkCallback<T> {
+
+        void onChunk(List<T> chunk);
+    }
+
+    /**
+     * @return a lenient {@link JsonReader} that reads the given JSON string
+     */
+    public static JsonReader newReader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Reads the JSON array at the current position of the given {@link JsonReader} with the given
+     * {@link TypeAdapter}. The decoded elements are being handed to the given {@link
+     * ChunkCallback} in chunks of the given size, so that they can be processed while the rest of
+     * the array is still being decoded. null elements are being skipped.
+     *
+     * @return the number of decoded elements
+     */
+    public static <T> int readArray(JsonReader reader, TypeAdapter<T> adapter, int chunkSize,
+            ChunkCallback<T> callback) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return 0;
+        }
+        int count = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            T element = adapter.read(reader);
+            if (element != null) {
+                chunk.add(element);
+                count++;
+                if (chunk.size() >= chunkSize) {
+                    callback.onChunk(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+        reader.endArray();
+        if (!chunk.isEmpty()) {
+            callback.onChunk(chunk);
+        }
+        return count;
+    }
+}
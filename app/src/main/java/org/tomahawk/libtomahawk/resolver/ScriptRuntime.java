@@ -0,0 +1,400 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import org.tomahawk.libtomahawk.utils.GsonHelper;
+import org.tomahawk.tomahawk_android.TomahawkApp;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single {@link WebView} that hosts the JavaScript of several {@link ScriptAccount}s. Every
+ * {@link ScriptAccount} is being loaded into its own iframe, so that it has its own global scope.
+ * The libraries all plugins depend on are only being loaded once by the host page.
+ *
+ * The frames are being loaded one after another, so that load times and memory usage can be
+ * attributed to the individual {@link ScriptAccount}s.
+ */
+public class ScriptRuntime implements ScriptWebViewClient.WebViewClientReadyListener {
+
+    private final static String TAG = ScriptRuntime.class.getSimpleName();
+
+    public final static String HOST_INTERFACE_NAME = "TomahawkHostBridge";
+
+    private final int mId;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final Map<String, ScriptAccount> mAccounts = new ConcurrentHashMap<>();
+
+    // The following fields are only being accessed on the main thread
+    private WebView mWebView;
+
+    private boolean mHostPageLoaded;
+
+    private final LinkedList<ScriptAccount> mFrameQueue = new LinkedList<>();
+
+    private ScriptAccount mLoadingAccount;
+
+    private long mFrameLoadStartTime;
+
+    /**
+     * The interface that is being exposed to the host page. Every method takes the key of the
+     * calling frame and forwards the call to the {@link ScriptInterface} of the {@link
+     * ScriptAccount} that has been loaded into that frame.
+     */
+    private class HostInterface {
+
+        @JavascriptInterface
+        public String resolverDataString(String key) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            return scriptInterface != null ? scriptInterface.resolverDataString() : null;
+        }
+
+        @JavascriptInterface
+        public void log(String key, String message) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.log(message);
+            }
+        }
+
+        @JavascriptInterface
+        public void nativeReportCapabilities(String key, int in) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.nativeReportCapabilities(in);
+            }
+        }
+
+        @JavascriptInterface
+        public void addCustomUrlHandler(String key, String protocol, String callbackFuncName,
+                boolean isAsync) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.addCustomUrlHandler(protocol, callbackFuncName, isAsync);
+            }
+        }
+
+        @JavascriptInterface
+        public String readBase64(String key, String fileName) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            return scriptInterface != null ? scriptInterface.readBase64(fileName) : null;
+        }
+
+        @JavascriptInterface
+        public void localStorageSetItem(String key, String itemKey, String value) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.localStorageSetItem(itemKey, value);
+            }
+        }
+
+        @JavascriptInterface
+        public String localStorageGetItem(String key, String itemKey) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            return scriptInterface != null ? scriptInterface.localStorageGetItem(itemKey) : null;
+        }
+
+        @JavascriptInterface
+        public void localStorageRemoveItem(String key, String itemKey) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.localStorageRemoveItem(itemKey);
+            }
+        }
+
+        @JavascriptInterface
+        public String[] keys(String key) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            return scriptInterface != null ? scriptInterface.keys() : new String[]{};
+        }
+
+        @JavascriptInterface
+        public String[] values(String key) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            return scriptInterface != null ? scriptInterface.values() : new String[]{};
+        }
+
+        @JavascriptInterface
+        public void reportScriptJobResults(String key, String resultsString) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.reportScriptJobResults(resultsString);
+            }
+        }
+
+        @JavascriptInterface
+        public void registerScriptPlugin(String key, String type, String objectId) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.registerScriptPlugin(type, objectId);
+            }
+        }
+
+        @JavascriptInterface
+        public void unregisterScriptPlugin(String key, String type, String objectId) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.unregisterScriptPlugin(type, objectId);
+            }
+        }
+
+        @JavascriptInterface
+        public void invokeNativeScriptJob(String key, int requestId, String methodName,
+                String paramsString) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.invokeNativeScriptJob(requestId, methodName, paramsString);
+            }
+        }
+
+        @JavascriptInterface
+        public String readHttpResponse(String key, int handle, int offset, int length) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            return scriptInterface != null
+                    ? scriptInterface.readHttpResponse(handle, offset, length) : null;
+        }
+
+        @JavascriptInterface
+        public void releaseHttpResponse(String key, int handle) {
+            ScriptInterface scriptInterface = getScriptInterface(key);
+            if (scriptInterface != null) {
+                scriptInterface.releaseHttpResponse(handle);
+            }
+        }
+
+        /**
+         * Called by the host page once all scripts of the given frame have been evaluated.
+         *
+         * @param memoryUsage the amount of JS heap in KB the frame has allocated while loading, -1
+         *                    if unknown
+         */
+        @JavascriptInterface
+        public void onFrameLoaded(final String key, final int memoryUsage) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    ScriptRuntime.this.onFrameLoaded(key, memoryUsage);
+                }
+            });
+        }
+
+        /**
+         * Called by the host page if code couldn't be evaluated, because there's no frame with
+         * the given key.
+         */
+        @JavascriptInterface
+        public void onEvaluateFailed(String key) {
+            ScriptAccount account = mAccounts.get(key);
+            if (account == null) {
+                Log.e(TAG, "onEvaluateFailed - ScriptRuntime " + mId + ", unknown frame: " + key);
+                return;
+            }
+            account.onEvaluateFailed();
+        }
+    }
+
+    ScriptRuntime(int id) {
+        mId = id;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                initWebView();
+            }
+        });
+    }
+
+    @SuppressLint({"AddJavascriptInterface", "SetJavaScriptEnabled"})
+    private void initWebView() {
+        long startTime = SystemClock.elapsedRealtime();
+        CookieManager.setAcceptFileSchemeCookies(true);
+
+        mWebView = new WebView(TomahawkApp.getContext());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            CookieManager.getInstance().setAcceptThirdPartyCookies(mWebView, true);
+        }
+        WebSettings settings = mWebView.getSettings();
+        settings.setJavaScriptEnabled(true);
+        settings.setDatabaseEnabled(true);
+        if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            //noinspection deprecation
+            settings.setDatabasePath(
+                    TomahawkApp.getContext().getDir("databases", Context.MODE_PRIVATE)
+                            .getPath());
+        }
+        settings.setDomStorageEnabled(true);
+        mWebView.setWebChromeClient(new TomahawkWebChromeClient());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mWebView.getSettings().setAllowUniversalAccessFromFileURLs(true);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            WebView.setWebContentsDebuggingEnabled(true);
+        }
+
+        String data = "<!DOCTYPE html>" + "<html>"
+                + "<head><title>ScriptRuntime " + mId + "</title></head>"
+                + "<body>"
+                + "<script src=\"file:///android_asset/js/rsvp-latest.min.js"
+                + "\" type=\"text/javascript\"></script>"
+                + "<script src=\"file:///android_asset/js/cryptojs-core.js"
+                + "\" type=\"text/javascript\"></script>";
+        try {
+            String[] cryptoJsScripts = TomahawkApp.getContext().getAssets().list("js/cryptojs");
+            for (String scriptPath : cryptoJsScripts) {
+                data += "<script src=\"file:///android_asset/js/cryptojs/" + scriptPath
+                        + "\" type=\"text/javascript\"></script>";
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "initWebView: " + e.getClass() + ": " + e.getLocalizedMessage());
+        }
+        data += "<script src=\"file:///android_asset/js/tomahawk_android_host.js"
+                + "\" type=\"text/javascript\"></script>"
+                + "</body></html>";
+        mWebView.setWebViewClient(new ScriptWebViewClient(this));
+        mWebView.addJavascriptInterface(new HostInterface(), HOST_INTERFACE_NAME);
+        mWebView.loadDataWithBaseURL("file:///android_asset/test.html", data,
+                "text/html", null, null);
+        Log.d(TAG, "ScriptRuntime " + mId + " created in "
+                + (SystemClock.elapsedRealtime() - startTime) + "ms");
+    }
+
+    /**
+     * This method is being called, when the {@link ScriptWebViewClient} has completely loaded the
+     * host page with the shared libraries.
+     */
+    @Override
+    public void onWebViewClientReady() {
+        if (!mHostPageLoaded) {
+            mHostPageLoaded = true;
+            loadNextFrame();
+        }
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    /**
+     * @return all {@link ScriptAccount}s that have been added to this runtime
+     */
+    public Collection<ScriptAccount> getScriptAccounts() {
+        return new ArrayList<>(mAccounts.values());
+    }
+
+    int getScriptAccountCount() {
+        return mAccounts.size();
+    }
+
+    /**
+     * Loads the given {@link ScriptAccount}'s scripts into a new frame of this runtime. {@link
+     * ScriptAccount#onFrameLoaded(long, int)} is being called once they have been evaluated.
+     */
+    void addScriptAccount(final ScriptAccount account) {
+        mAccounts.put(account.getFrameKey(), account);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mFrameQueue.add(account);
+                loadNextFrame();
+            }
+        });
+    }
+
+    private void loadNextFrame() {
+        if (!mHostPageLoaded || mLoadingAccount != null || mFrameQueue.isEmpty()) {
+            return;
+        }
+        mLoadingAccount = mFrameQueue.poll();
+        mFrameLoadStartTime = SystemClock.elapsedRealtime();
+        evaluateHostJavaScript("TomahawkHost.addFrame("
+                + GsonHelper.get().toJson(mLoadingAccount.getFrameKey()) + ", "
+                + GsonHelper.get().toJson(mLoadingAccount.getName()) + ", "
+                + GsonHelper.get().toJson(mLoadingAccount.getFrameScripts()) + ");");
+    }
+
+    private void onFrameLoaded(String key, int memoryUsage) {
+        ScriptAccount account = mAccounts.get(key);
+        if (account == null || account != mLoadingAccount) {
+            Log.e(TAG, "onFrameLoaded - ScriptRuntime " + mId + ", unexpected frame: " + key);
+            return;
+        }
+        long loadTime = SystemClock.elapsedRealtime() - mFrameLoadStartTime;
+        mLoadingAccount = null;
+        Log.d(TAG, "ScriptRuntime " + mId + " loaded " + account.getName() + " in " + loadTime
+                + "ms, JS heap: " + (memoryUsage >= 0 ? "+" + memoryUsage + "KB" : "unknown"));
+        account.onFrameLoaded(loadTime, memoryUsage);
+        loadNextFrame();
+    }
+
+    /**
+     * Evaluates the given code in the global scope of the given {@link ScriptAccount}'s frame. Must
+     * be called on the main thread.
+     */
+    void evaluateJavaScript(ScriptAccount account, String code) {
+        evaluateHostJavaScript(buildFrameCode(account, code));
+    }
+
+    /**
+     * Evaluates the given code in the global scope of the given {@link ScriptAccount}'s frame by
+     * loading it as a "javascript:" url. Percent-escaped chars in the code are therefore being
+     * decoded by the WebView beforehand. Must be called on the main thread.
+     */
+    void loadJavaScriptUrl(ScriptAccount account, String code) {
+        mWebView.loadUrl("javascript: " + buildFrameCode(account, code));
+    }
+
+    private String buildFrameCode(ScriptAccount account, String code) {
+        return "TomahawkHost.evaluate(" + GsonHelper.get().toJson(account.getFrameKey()) + ", "
+                + GsonHelper.get().toJson(code) + ");";
+    }
+
+    private void evaluateHostJavaScript(String code) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            mWebView.evaluateJavascript(code, null);
+        } else {
+            mWebView.loadUrl("javascript: " + code);
+        }
+    }
+
+    private ScriptInterface getScriptInterface(String key) {
+        ScriptAccount account = mAccounts.get(key);
+        if (account == null) {
+            Log.e(TAG, "getScriptInterface - ScriptRuntime " + mId + ", unknown frame: " + key);
+            return null;
+        }
+        return account.getScriptInterface();
+    }
+}
@@ -0,0 +1,90 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Distributes the {@link ScriptAccount}s over a small fixed number of {@link ScriptRuntime}s, so
+ * that the memory footprint and the startup cost of a WebView isn't being paid for every single
+ * plugin.
+ */
+public class ScriptRuntimeHost {
+
+    // More than one runtime, so that a single busy plugin doesn't block all others
+    private static final int RUNTIME_COUNT = 2;
+
+    private static class Holder {
+
+        private static final ScriptRuntimeHost instance = new ScriptRuntimeHost();
+
+    }
+
+    private final List<ScriptRuntime> mRuntimes = new ArrayList<>();
+
+    private ScriptRuntimeHost() {
+    }
+
+    public static ScriptRuntimeHost get() {
+        return Holder.instance;
+    }
+
+    /**
+     * Loads the given {@link ScriptAccount} into the {@link ScriptRuntime} that currently hosts
+     * the fewest {@link ScriptAccount}s.
+     *
+     * @return the {@link ScriptRuntime} the {@link ScriptAccount} has been added to
+     */
+    public synchronized ScriptRuntime attach(ScriptAccount account) {
+        ScriptRuntime runtime = null;
+        if (mRuntimes.size() < RUNTIME_COUNT) {
+            runtime = new ScriptRuntime(mRuntimes.size());
+            mRuntimes.add(runtime);
+        } else {
+            for (ScriptRuntime r : mRuntimes) {
+                if (runtime == null
+                        || r.getScriptAccountCount() < runtime.getScriptAccountCount()) {
+                    runtime = r;
+                }
+            }
+        }
+        account.setRuntime(runtime);
+        runtime.addScriptAccount(account);
+        return runtime;
+    }
+
+    /**
+     * @return a String containing the load time and memory usage of every loaded {@link
+     * ScriptAccount}
+     */
+    public synchronized String getStats() {
+        StringBuilder sb = new StringBuilder();
+        for (ScriptRuntime runtime : mRuntimes) {
+            sb.append("ScriptRuntime ").append(runtime.getId()).append(":\n");
+            for (ScriptAccount account : runtime.getScriptAccounts()) {
+                sb.append("  ").append(account.getName())
+                        .append(" - load time: ").append(account.getLoadTime()).append("ms")
+                        .append(", JS heap: ").append(account.getMemoryUsage()).append("KB")
+                        .append(", http: ").append(account.getHttpBytesTransferred() / 1024)
+                        .append("KB\n");
+            }
+        }
+        return sb.toString();
+    }
+}
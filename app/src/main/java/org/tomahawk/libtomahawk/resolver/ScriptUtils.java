@@ -17,55 +17,48 @@
  */
 package org.tomahawk.libtomahawk.resolver;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import org.tomahawk.libtomahawk.collection.Album;
 import org.tomahawk.libtomahawk.collection.Artist;
 import org.tomahawk.libtomahawk.collection.Track;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverResultEntry;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class ScriptUtils {
 
     /**
-     * Parses the given {@link JsonArray) into an {@link ArrayList} of {@link Result}s.
+     * Converts the given {@link ScriptResolverResultEntry}s into an {@link ArrayList} of {@link
+     * Result}s. Entries without a url or track name are being skipped.
      *
      * @param resolver   the {@link Resolver} which will be set in the {@link Result}'s constructor
-     * @param rawResults {@link JsonArray) containing the raw result information
+     * @param rawResults the decoded result entries, may be null
      * @return a {@link ArrayList} of {@link Result}s containing the parsed data
      */
-    public static ArrayList<Result> parseResultList(ScriptResolver resolver, JsonArray rawResults) {
+    public static ArrayList<Result> parseResultList(ScriptResolver resolver,
+            List<ScriptResolverResultEntry> rawResults) {
         ArrayList<Result> resultList = new ArrayList<>();
-        for (JsonElement rawResult : rawResults) {
-            String url = getNodeChildAsText(rawResult, "url");
-            String track = getNodeChildAsText(rawResult, "track");
-            if (url != null && track != null) {
-                String artist = getNodeChildAsText(rawResult, "artist");
-                String album = getNodeChildAsText(rawResult, "album");
-                String purchaseUrl = getNodeChildAsText(rawResult, "purchaseUrl");
-                String linkUrl = getNodeChildAsText(rawResult, "linkUrl");
-                int albumpos = getNodeChildAsInt(rawResult, "albumpos");
-                int discnumber = getNodeChildAsInt(rawResult, "discnumber");
-                int year = getNodeChildAsInt(rawResult, "year");
-                int duration = getNodeChildAsInt(rawResult, "duration");
-                int bitrate = getNodeChildAsInt(rawResult, "bitrate");
-                int size = getNodeChildAsInt(rawResult, "size");
-
-                Artist artistObj = Artist.get(artist);
-                Album albumObj = Album.get(album, artistObj);
-                Track trackObj = Track.get(track, albumObj, artistObj);
-                trackObj.setAlbumPos(albumpos);
-                trackObj.setDiscNumber(discnumber);
-                trackObj.setYear(year);
-                trackObj.setDuration(duration * 1000);
+        if (rawResults == null) {
+            return resultList;
+        }
+        for (ScriptResolverResultEntry rawResult : rawResults) {
+            if (rawResult.url != null && rawResult.track != null) {
+                Artist artistObj = Artist.get(rawResult.artist);
+                Album albumObj = Album.get(rawResult.album, artistObj);
+                Track trackObj = Track.get(rawResult.track, albumObj, artistObj);
+                trackObj.setAlbumPos(rawResult.albumpos);
+                trackObj.setDiscNumber(rawResult.discnumber);
+                trackObj.setYear(parseInt(rawResult.year));
+                trackObj.setDuration(rawResult.duration * 1000);
 
-                Result result = Result.get(url, trackObj, resolver);
-                result.setBitrate(bitrate);
-                result.setSize(size);
-                result.setPurchaseUrl(purchaseUrl);
-                result.setLinkUrl(linkUrl);
+                Result result = Result.get(rawResult.url, trackObj, resolver);
+                result.setBitrate(rawResult.bitrate);
+                result.setSize(rawResult.size);
+                result.setPurchaseUrl(rawResult.purchaseUrl);
+                result.setLinkUrl(rawResult.linkUrl);
                 result.setArtist(artistObj);
                 result.setAlbum(albumObj);
                 result.setTrack(trackObj);
@@ -76,6 +69,15 @@ public class ScriptUtils {
         return resultList;
     }
 
+    private static int parseInt(String string) {
+        if (string != null) {
+            try {
+                return (int) Double.parseDouble(string);
+            } catch (NumberFormatException ignored) {}
+        }
+        return 0;
+    }
+
     public static String getNodeChildAsText(JsonElement node, String fieldName) {
         if (node instanceof JsonObject) {
             JsonElement n = ((JsonObject) node).get(fieldName);
@@ -0,0 +1,261 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver;
+
+import org.tomahawk.libtomahawk.infosystem.InfoRequestData;
+import org.tomahawk.libtomahawk.infosystem.InfoSystem;
+import org.tomahawk.tomahawk_android.TomahawkApp;
+import org.tomahawk.tomahawk_android.utils.ThreadManager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Manages the full-text searches that are being started while the user is typing. The input is
+ * being debounced and a search that has been superseded by a newer one is being cancelled in the
+ * {@link ThreadManager}, in all resolvers and in the {@link InfoSystem}. If the previous search
+ * text is a prefix of the new one, the previous search's matching local results are being shown
+ * right away.
+ *
+ * All methods have to be called on the main thread.
+ */
+public class SearchSession {
+
+    private final static String TAG = SearchSession.class.getSimpleName();
+
+    public static final long DEFAULT_DEBOUNCE_DELAY = 300;
+
+    // The results are considered stable once no new results have arrived for this long (in ms)
+    private static final long STABLE_RESULT_DELAY = 2000;
+
+    public interface Listener {
+
+        /**
+         * Called whenever a new search has been started
+         *
+         * @param text            the search text
+         * @param query           the full-text {@link Query} that is being resolved
+         * @param infoRequestData the search request that has been sent to the {@link InfoSystem},
+         *                        null if there is none
+         */
+        void onSearchStarted(String text, Query query, InfoRequestData infoRequestData);
+    }
+
+    private final Listener mListener;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private long mDebounceDelay = DEFAULT_DEBOUNCE_DELAY;
+
+    private String mPendingText;
+
+    private long mPendingInputTime;
+
+    private String mText;
+
+    private Query mQuery;
+
+    private InfoRequestData mInfoRequestData;
+
+    // The time of the input that has started the current search
+    private long mInputTime;
+
+    private long mLastResultTime;
+
+    private long mTimeToFirstResult = -1;
+
+    private long mTimeToStableResult = -1;
+
+    private final Runnable mStartRunnable = new Runnable() {
+        @Override
+        public void run() {
+            start();
+        }
+    };
+
+    private final Runnable mStableRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mTimeToStableResult = mLastResultTime - mInputTime;
+            Log.d(TAG, "Search for '" + mText + "' - first result after " + mTimeToFirstResult
+                    + "ms, stable result after " + mTimeToStableResult + "ms");
+        }
+    };
+
+    public SearchSession(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Sets the time (in ms) that has to pass without any new input before a search is being
+     * started
+     */
+    public void setDebounceDelay(long debounceDelay) {
+        mDebounceDelay = debounceDelay;
+    }
+
+    /**
+     * Searches for the given text once no new input has arrived for the debounce delay
+     */
+    public void search(String text) {
+        search(text, false);
+    }
+
+    /**
+     * Searches for the given text
+     *
+     * @param immediate whether to start searching right away instead of waiting for the debounce
+     *                  delay
+     */
+    public void search(String text, boolean immediate) {
+        mHandler.removeCallbacks(mStartRunnable);
+        mPendingText = text;
+        mPendingInputTime = SystemClock.elapsedRealtime();
+        if (immediate) {
+            start();
+        } else {
+            mHandler.postDelayed(mStartRunnable, mDebounceDelay);
+        }
+    }
+
+    /**
+     * Cancels the pending and the current search
+     */
+    public void cancel() {
+        mHandler.removeCallbacks(mStartRunnable);
+        mHandler.removeCallbacks(mStableRunnable);
+        if (mQuery != null) {
+            ThreadManager.get().stop(mQuery);
+        }
+        if (mInfoRequestData != null) {
+            InfoSystem.get().cancel(mInfoRequestData);
+        }
+    }
+
+    private void start() {
+        String previousText = mText;
+        Query previousQuery = mQuery;
+        cancel();
+
+        mText = mPendingText;
+        mInputTime = mPendingInputTime;
+        mTimeToFirstResult = -1;
+        mTimeToStableResult = -1;
+        mInfoRequestData = InfoSystem.get().resolveSearch(mText);
+        mQuery = PipeLine.get().resolve(mText, false);
+        mListener.onSearchStarted(mText, mQuery, mInfoRequestData);
+
+        if (mQuery != null && previousQuery != null && previousQuery != mQuery
+                && previousText.length() < mText.length()
+                && mText.toLowerCase(Locale.ENGLISH)
+                .startsWith(previousText.toLowerCase(Locale.ENGLISH))) {
+            reuseLocalResults(previousQuery, mQuery);
+        }
+    }
+
+    /**
+     * Reports the local results of the given previous {@link Query} that also match the given
+     * {@link Query}'s search text, so that they can be shown before the resolvers have answered.
+     */
+    private void reuseLocalResults(Query previousQuery, Query query) {
+        String[] terms =
+                query.getFullTextQuery().toLowerCase(Locale.ENGLISH).trim().split("\\s+");
+        ArrayList<Result> results = new ArrayList<>();
+        for (Result result : previousQuery.getLocalTrackResults()) {
+            if (result.getTrack() == null) {
+                continue;
+            }
+            String text = result.getTrack().getName();
+            if (result.getAlbum() != null) {
+                text = result.getAlbum().getName() + " " + text;
+            }
+            if (result.getArtist() != null) {
+                text = result.getArtist().getName() + " " + text;
+            }
+            text = text.toLowerCase(Locale.ENGLISH);
+            boolean matches = true;
+            for (String term : terms) {
+                if (!text.contains(term)) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                results.add(result);
+            }
+        }
+        if (!results.isEmpty()) {
+            Log.d(TAG, "Reusing " + results.size() + " local results of '"
+                    + previousQuery.getFullTextQuery() + "' for '" + mText + "'");
+            PipeLine.get().reportResults(query, results, TomahawkApp.PLUGINNAME_USERCOLLECTION);
+        }
+    }
+
+    /**
+     * Has to be called whenever results for the given {@link Query} have been reported
+     */
+    public void onResultsReported(Query query) {
+        if (query == mQuery && query.getPreferredTrackResult() != null) {
+            onResultsReported();
+        }
+    }
+
+    /**
+     * Has to be called whenever results for the given {@link InfoRequestData} have been reported
+     */
+    public void onResultsReported(InfoRequestData infoRequestData) {
+        if (infoRequestData == mInfoRequestData) {
+            onResultsReported();
+        }
+    }
+
+    private void onResultsReported() {
+        mLastResultTime = SystemClock.elapsedRealtime();
+        if (mTimeToFirstResult < 0) {
+            mTimeToFirstResult = mLastResultTime - mInputTime;
+        }
+        mHandler.removeCallbacks(mStableRunnable);
+        mHandler.postDelayed(mStableRunnable, STABLE_RESULT_DELAY);
+    }
+
+    public String getText() {
+        return mText;
+    }
+
+    /**
+     * @return the time (in ms) from the input to the first result of the current search, -1 if
+     * there hasn't been any result yet
+     */
+    public long getTimeToFirstResult() {
+        return mTimeToFirstResult;
+    }
+
+    /**
+     * @return the time (in ms) from the input to the last result of the current search, after
+     * which no new results have arrived for a while. -1 if the results aren't stable yet.
+     */
+    public long getTimeToStableResult() {
+        return mTimeToStableResult;
+    }
+}
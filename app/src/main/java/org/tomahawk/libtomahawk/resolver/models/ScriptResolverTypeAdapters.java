@@ -0,0 +1,309 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.libtomahawk.resolver.models;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Hand-written {@link TypeAdapter}s for the models that are being decoded most often and in the
+ * largest numbers. They don't use reflection and they are as lenient as Gson's reflective adapters
+ * regarding the types of the values that the plugins provide (e.g. numbers given as strings).
+ */
+public class ScriptResolverTypeAdapters {
+
+    public static final TypeAdapter<ScriptResolverTrack> TRACK =
+            new TypeAdapter<ScriptResolverTrack>() {
+                @Override
+                public void write(JsonWriter out, ScriptResolverTrack track) throws IOException {
+                    if (track == null) {
+                        out.nullValue();
+                        return;
+                    }
+                    out.beginObject();
+                    out.name("track").value(track.track);
+                    out.name("album").value(track.album);
+                    out.name("imagePath").value(track.imagePath);
+                    out.name("artist").value(track.artist);
+                    out.name("artistDisambiguation").value(track.artistDisambiguation);
+                    out.name("albumArtist").value(track.albumArtist);
+                    out.name("albumArtistDisambiguation").value(track.albumArtistDisambiguation);
+                    out.name("url").value(track.url);
+                    out.name("duration").value(track.duration);
+                    out.name("linkUrl").value(track.linkUrl);
+                    out.name("albumpos").value(track.albumpos);
+                    out.name("lastModified").value(track.lastModified);
+                    out.endObject();
+                }
+
+                @Override
+                public ScriptResolverTrack read(JsonReader in) throws IOException {
+                    if (!beginObject(in)) {
+                        return null;
+                    }
+                    ScriptResolverTrack track = new ScriptResolverTrack();
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "track":
+                                track.track = readString(in);
+                                break;
+                            case "album":
+                                track.album = readString(in);
+                                break;
+                            case "imagePath":
+                                track.imagePath = readString(in);
+                                break;
+                            case "artist":
+                                track.artist = readString(in);
+                                break;
+                            case "artistDisambiguation":
+                                track.artistDisambiguation = readString(in);
+                                break;
+                            case "albumArtist":
+                                track.albumArtist = readString(in);
+                                break;
+                            case "albumArtistDisambiguation":
+                                track.albumArtistDisambiguation = readString(in);
+                                break;
+                            case "url":
+                                track.url = readString(in);
+                                break;
+                            case "duration":
+                                track.duration = (float) readDouble(in);
+                                break;
+                            case "linkUrl":
+                                track.linkUrl = readString(in);
+                                break;
+                            case "albumpos":
+                                track.albumpos = (int) readLong(in);
+                                break;
+                            case "lastModified":
+                                track.lastModified = readLong(in);
+                                break;
+                            default:
+                                in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    return track;
+                }
+            };
+
+    public static final TypeAdapter<ScriptResolverResultEntry> RESULT_ENTRY =
+            new TypeAdapter<ScriptResolverResultEntry>() {
+                @Override
+                public void write(JsonWriter out, ScriptResolverResultEntry entry)
+                        throws IOException {
+                    if (entry == null) {
+                        out.nullValue();
+                        return;
+                    }
+                    out.beginObject();
+                    out.name("url").value(entry.url);
+                    out.name("artist").value(entry.artist);
+                    out.name("album").value(entry.album);
+                    out.name("track").value(entry.track);
+                    out.name("albumpos").value(entry.albumpos);
+                    out.name("discnumber").value(entry.discnumber);
+                    out.name("year").value(entry.year);
+                    out.name("duration").value(entry.duration);
+                    out.name("bitrate").value(entry.bitrate);
+                    out.name("size").value(entry.size);
+                    out.name("purchaseUrl").value(entry.purchaseUrl);
+                    out.name("linkUrl").value(entry.linkUrl);
+                    out.name("score").value(entry.score);
+                    out.endObject();
+                }
+
+                @Override
+                public ScriptResolverResultEntry read(JsonReader in) throws IOException {
+                    if (!beginObject(in)) {
+                        return null;
+                    }
+                    ScriptResolverResultEntry entry = new ScriptResolverResultEntry();
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "url":
+                                entry.url = readString(in);
+                                break;
+                            case "artist":
+                                entry.artist = readString(in);
+                                break;
+                            case "album":
+                                entry.album = readString(in);
+                                break;
+                            case "track":
+                                entry.track = readString(in);
+                                break;
+                            case "albumpos":
+                                entry.albumpos = (int) readLong(in);
+                                break;
+                            case "discnumber":
+                                entry.discnumber = (int) readLong(in);
+                                break;
+                            case "year":
+                                entry.year = readString(in);
+                                break;
+                            case "duration":
+                                entry.duration = (int) readLong(in);
+                                break;
+                            case "bitrate":
+                                entry.bitrate = (int) readLong(in);
+                                break;
+                            case "size":
+                                entry.size = (int) readLong(in);
+                                break;
+                            case "purchaseUrl":
+                                entry.purchaseUrl = readString(in);
+                                break;
+                            case "linkUrl":
+                                entry.linkUrl = readString(in);
+                                break;
+                            case "score":
+                                entry.score = (float) readDouble(in);
+                                break;
+                            default:
+                                in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    return entry;
+                }
+            };
+
+    public static final TypeAdapter<ScriptResolverResults> RESULTS =
+            new TypeAdapter<ScriptResolverResults>() {
+                @Override
+                public void write(JsonWriter out, ScriptResolverResults results)
+                        throws IOException {
+                    if (results == null) {
+                        out.nullValue();
+                        return;
+                    }
+                    out.beginObject();
+                    out.name("qid").value(results.qid);
+                    if (results.tracks != null) {
+                        out.name("tracks").beginArray();
+                        for (ScriptResolverResultEntry entry : results.tracks) {
+                            RESULT_ENTRY.write(out, entry);
+                        }
+                        out.endArray();
+                    }
+                    out.endObject();
+                }
+
+                @Override
+                public ScriptResolverResults read(JsonReader in) throws IOException {
+                    if (!beginObject(in)) {
+                        return null;
+                    }
+                    ScriptResolverResults results = new ScriptResolverResults();
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "qid":
+                                results.qid = readString(in);
+                                break;
+                            case "tracks":
+                                if (in.peek() == JsonToken.BEGIN_ARRAY) {
+                                    results.tracks = new ArrayList<>();
+                                    in.beginArray();
+                                    while (in.hasNext()) {
+                                        ScriptResolverResultEntry entry = RESULT_ENTRY.read(in);
+                                        if (entry != null) {
+                                            results.tracks.add(entry);
+                                        }
+                                    }
+                                    in.endArray();
+                                } else {
+                                    in.skipValue();
+                                }
+                                break;
+                            default:
+                                in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    return results;
+                }
+            };
+
+    /**
+     * Begins reading an object. Skips the current value if it isn't an object.
+     *
+     * @return whether or not an object has been begun
+     */
+    private static boolean beginObject(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            return true;
+        }
+        in.skipValue();
+        return false;
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case STRING:
+            case NUMBER:
+                return in.nextString();
+            case BOOLEAN:
+                return String.valueOf(in.nextBoolean());
+            default:
+                in.skipValue();
+                return null;
+        }
+    }
+
+    private static long readLong(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return in.nextLong();
+            } catch (NumberFormatException e) {
+                // The value has been buffered, so that it can be read as a double instead
+                try {
+                    return (long) in.nextDouble();
+                } catch (NumberFormatException e1) {
+                    in.skipValue();
+                    return 0;
+                }
+            }
+        }
+        in.skipValue();
+        return 0;
+    }
+
+    private static double readDouble(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return in.nextDouble();
+            } catch (NumberFormatException e) {
+                in.skipValue();
+                return 0;
+            }
+        }
+        in.skipValue();
+        return 0;
+    }
+}
@@ -24,6 +24,11 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverResultEntry;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverResults;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTrack;
+import org.tomahawk.libtomahawk.resolver.models.ScriptResolverTypeAdapters;
+
 import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.Date;
@@ -58,6 +63,12 @@ public class GsonHelper {
             mGson = new GsonBuilder()
                     .registerTypeHierarchyAdapter(Collection.class, new CollectionAdapter())
                     .registerTypeAdapter(Date.class, new ISO8601DateFormat())
+                    .registerTypeAdapter(ScriptResolverTrack.class,
+                            ScriptResolverTypeAdapters.TRACK)
+                    .registerTypeAdapter(ScriptResolverResultEntry.class,
+                            ScriptResolverTypeAdapters.RESULT_ENTRY)
+                    .registerTypeAdapter(ScriptResolverResults.class,
+                            ScriptResolverTypeAdapters.RESULTS)
                     .create();
         }
         return mGson;
@@ -1,11 +1,16 @@
 package org.tomahawk.libtomahawk.utils;
 
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.Connection;
+import com.squareup.okhttp.ConnectionPool;
 import com.squareup.okhttp.Credentials;
+import com.squareup.okhttp.Interceptor;
 import com.squareup.okhttp.MediaType;
 import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.RequestBody;
 import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
 import com.squareup.okhttp.logging.HttpLoggingInterceptor;
 
 import org.tomahawk.tomahawk_android.TomahawkApp;
@@ -13,16 +18,28 @@ import org.tomahawk.tomahawk_android.TomahawkApp;
 import android.content.Context;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
+import android.util.LruCache;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
 import java.net.Proxy;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
 
 public class NetworkUtils {
 
@@ -31,8 +48,65 @@ public class NetworkUtils {
     private static final MediaType MEDIA_TYPE_FORM =
             MediaType.parse("application/x-www-form-urlencoded");
 
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    private static final long KEEP_ALIVE_DURATION = TimeUnit.MINUTES.toMillis(5);
+
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+
+    // The number of hosts for which the concurrent requests are being limited
+    private static final int MAX_LIMITED_HOSTS = 64;
+
     private static Map<String, CookieManager> sCookieManagerMap = new ConcurrentHashMap<>();
 
+    private static OkHttpClient sBaseClient;
+
+    // The shared clients, keyed by CookieManager (identity) and redirect policy. Clients without
+    // a CookieManager are stored with the base client as their key.
+    private static final Map<Object, OkHttpClient> sRedirectingClients = new WeakHashMap<>();
+
+    private static final Map<Object, OkHttpClient> sNonRedirectingClients = new WeakHashMap<>();
+
+    private static final LruCache<String, Semaphore> sHostSemaphores =
+            new LruCache<>(MAX_LIMITED_HOSTS);
+
+    private static final Set<Connection> sSeenConnections =
+            Collections.newSetFromMap(new WeakHashMap<Connection, Boolean>());
+
+    private static final AtomicLong sPoolHits = new AtomicLong();
+
+    private static final AtomicLong sPoolMisses = new AtomicLong();
+
+    private static final AtomicLong sHandshakes = new AtomicLong();
+
+    /**
+     * Network interceptor that counts how often a pooled connection could be reused and how many
+     * new connections (and TLS handshakes) had to be established.
+     */
+    private static final Interceptor sConnectionStatsInterceptor = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Connection connection = chain.connection();
+            if (connection != null) {
+                boolean isNew;
+                synchronized (sSeenConnections) {
+                    isNew = sSeenConnections.add(connection);
+                }
+                if (isNew) {
+                    sPoolMisses.incrementAndGet();
+                    if (connection.getHandshake() != null) {
+                        sHandshakes.incrementAndGet();
+                    }
+                } else {
+                    sPoolHits.incrementAndGet();
+                }
+            }
+            return chain.proceed(chain.request());
+        }
+    };
+
     public static CookieManager getCookieManager(String cookieContextId) {
         if (sCookieManagerMap.containsKey(cookieContextId)) {
             return sCookieManagerMap.get(cookieContextId);
@@ -45,6 +119,152 @@ public class NetworkUtils {
         }
     }
 
+    /**
+     * @return the process-wide base {@link OkHttpClient}. All clients returned by {@link
+     * #getHttpClient(boolean, CookieManager)} share its connection pool and response cache.
+     */
+    private static synchronized OkHttpClient getBaseClient() {
+        if (sBaseClient == null) {
+            sBaseClient = new OkHttpClient();
+            sBaseClient.setConnectionPool(
+                    new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION));
+            File cacheDir = new File(TomahawkApp.getContext().getCacheDir(), "okhttp");
+            sBaseClient.setCache(new Cache(cacheDir, HTTP_CACHE_SIZE));
+            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+            sBaseClient.networkInterceptors().add(loggingInterceptor);
+            sBaseClient.networkInterceptors().add(sConnectionStatsInterceptor);
+            sBaseClient.setConnectTimeout(15000, TimeUnit.MILLISECONDS);
+            sBaseClient.setReadTimeout(15000, TimeUnit.MILLISECONDS);
+        }
+        return sBaseClient;
+    }
+
+    /**
+     * @return the shared {@link OkHttpClient} for the given redirect policy and cookie context
+     */
+    private static synchronized OkHttpClient getHttpClient(boolean followRedirects,
+            CookieManager cookieManager) {
+        OkHttpClient baseClient = getBaseClient();
+        Map<Object, OkHttpClient> clients =
+                followRedirects ? sRedirectingClients : sNonRedirectingClients;
+        Object key = cookieManager != null ? cookieManager : baseClient;
+        OkHttpClient client = clients.get(key);
+        if (client == null) {
+            client = baseClient.clone();
+            client.setFollowRedirects(followRedirects);
+            if (cookieManager != null) {
+                client.setCookieHandler(cookieManager);
+            }
+            clients.put(key, client);
+        }
+        return client;
+    }
+
+    private static Semaphore getHostSemaphore(String host) {
+        synchronized (sHostSemaphores) {
+            Semaphore semaphore = sHostSemaphores.get(host);
+            if (semaphore == null) {
+                semaphore = new Semaphore(MAX_REQUESTS_PER_HOST, true);
+                sHostSemaphores.put(host, semaphore);
+            }
+            return semaphore;
+        }
+    }
+
+    /**
+     * {@link ResponseBody} that releases its host's permit exactly once, as soon as either the
+     * body or its source has been closed. {@link ResponseBody#string()} and {@link
+     * ResponseBody#bytes()} only close the source, so both have to be covered.
+     */
+    private static class PermitReleasingResponseBody extends ResponseBody {
+
+        private final ResponseBody mDelegate;
+
+        private final Semaphore mSemaphore;
+
+        private final AtomicBoolean mReleased = new AtomicBoolean();
+
+        private BufferedSource mSource;
+
+        public PermitReleasingResponseBody(ResponseBody delegate, Semaphore semaphore) {
+            mDelegate = delegate;
+            mSemaphore = semaphore;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return mDelegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return mDelegate.contentLength();
+        }
+
+        @Override
+        public synchronized BufferedSource source() throws IOException {
+            if (mSource == null) {
+                mSource = Okio.buffer(new ForwardingSource(mDelegate.source()) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            release();
+                        }
+                    }
+                });
+            }
+            return mSource;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                mDelegate.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (mReleased.compareAndSet(false, true)) {
+                mSemaphore.release();
+            }
+        }
+    }
+
+    /**
+     * @return the number of requests that have been sent over an already pooled connection
+     */
+    public static long getPoolHitCount() {
+        return sPoolHits.get();
+    }
+
+    /**
+     * @return the number of requests that required a new connection to be established
+     */
+    public static long getPoolMissCount() {
+        return sPoolMisses.get();
+    }
+
+    /**
+     * @return the ratio of requests that have been sent over an already pooled connection
+     */
+    public static float getPoolHitRatio() {
+        long hits = sPoolHits.get();
+        long total = hits + sPoolMisses.get();
+        return total > 0 ? (float) hits / total : 0f;
+    }
+
+    /**
+     * @return the number of TLS handshakes that have been done for new connections
+     */
+    public static long getHandshakeCount() {
+        return sHandshakes.get();
+    }
+
     /**
      * Does a HTTP or HTTPS request
      *
@@ -63,22 +283,13 @@ public class NetworkUtils {
     public static Response httpRequest(String method, String urlString,
             Map<String, String> extraHeaders, final String username, final String password,
             String data, boolean followRedirects, CookieManager cookieManager) throws IOException {
-        OkHttpClient client = new OkHttpClient();
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
-        client.networkInterceptors().add(loggingInterceptor);
-        if (cookieManager != null) {
-            client.setCookieHandler(cookieManager);
-        }
-
-        //Set time-outs
-        client.setConnectTimeout(15000, TimeUnit.MILLISECONDS);
-        client.setReadTimeout(15000, TimeUnit.MILLISECONDS);
-
-        client.setFollowRedirects(followRedirects);
+        OkHttpClient client = getHttpClient(followRedirects, cookieManager);
 
         // Configure HTTP Basic Auth if available
         if (username != null && password != null) {
+            // Clone the shared client so that the credentials don't leak into other requests. The
+            // clone still shares the connection pool and the cache.
+            client = client.clone();
             client.setAuthenticator(new com.squareup.okhttp.Authenticator() {
                 @Override
                 public Request authenticate(Proxy proxy, Response response) throws IOException {
@@ -127,8 +338,30 @@ public class NetworkUtils {
         }
 
         // Build and execute the request and retrieve the response.
+        // The number of concurrent requests per host is limited until the response body has been
+        // closed, which every caller has to do anyway.
         Request request = builder.build();
-        return client.newCall(request).execute();
+        Semaphore semaphore = getHostSemaphore(request.httpUrl().host());
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a free connection slot");
+        }
+        Response response;
+        try {
+            response = client.newCall(request).execute();
+        } catch (IOException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+        if (response.body() == null) {
+            semaphore.release();
+            return response;
+        }
+        return response.newBuilder()
+                .body(new PermitReleasingResponseBody(response.body(), semaphore))
+                .build();
     }
 
     public static boolean isNetworkAvailable() {
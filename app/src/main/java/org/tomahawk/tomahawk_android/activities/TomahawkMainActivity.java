@@ -93,6 +93,7 @@ import android.os.Looper;
 import android.os.RemoteException;
 import android.provider.MediaStore;
 import android.support.annotation.NonNull;
+import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.media.MediaBrowserCompat;
 import android.support.v4.media.MediaMetadataCompat;
@@ -845,6 +846,12 @@ public class TomahawkMainActivity extends AppCompatActivity {
 
             @Override
             public boolean onQueryTextChange(String newText) {
+                Fragment fragment =
+                        getSupportFragmentManager().findFragmentByTag(FragmentUtils.FRAGMENT_TAG);
+                if (fragment instanceof SearchPagerFragment && !TextUtils.isEmpty(newText)) {
+                    // Refine the search that is currently being shown while the user is typing
+                    ((SearchPagerFragment) fragment).resolveFullTextQuery(newText);
+                }
                 Cursor cursor = DatabaseHelper.get().getSearchHistoryCursor(newText);
                 if (cursor.getCount() != 0) {
                     String[] columns = new String[]{
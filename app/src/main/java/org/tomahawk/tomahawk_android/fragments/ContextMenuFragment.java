@@ -191,6 +191,10 @@ public class ContextMenuFragment extends Fragment {
                         break;
                     case TomahawkFragment.SOCIALACTION:
                         SocialAction socialAction = SocialAction.getByKey(key);
+                        if (socialAction == null) {
+                            // It has been evicted from the cache in the meantime
+                            break;
+                        }
                         Object targetObject = socialAction.getTargetObject();
                         if (targetObject instanceof Artist) {
                             mArtist = (Artist) targetObject;
@@ -87,6 +87,8 @@ public class PreferenceConnectFragment extends TomahawkListFragment
     public void onViewCreated(View view, Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
+        // The plugins with a disabled resolver are only being loaded once they are being listed
+        PipeLine.get().loadDeferredPlugins();
         updateAdapter();
     }
 
@@ -114,7 +116,7 @@ public class PreferenceConnectFragment extends TomahawkListFragment
             }
         });
         for (ScriptResolver scriptResolver : scriptResolvers) {
-            //TODO: Remove this hack once we can get rid of Tomahawk.resolver.instance completely (see ScriptAccount#onWebViewClientReady)
+            //TODO: Remove this hack once we can get rid of Tomahawk.resolver.instance completely (see ScriptAccount#onFrameLoaded)
             if (!scriptResolver.getId().contains("-metadata")
                     && !scriptResolver.getId().equals("echonest")
                     && !scriptResolver.getId().equals("itunes")
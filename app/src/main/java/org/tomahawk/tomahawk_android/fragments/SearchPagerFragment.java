@@ -22,17 +22,16 @@ import org.tomahawk.libtomahawk.collection.Artist;
 import org.tomahawk.libtomahawk.collection.Image;
 import org.tomahawk.libtomahawk.collection.Playlist;
 import org.tomahawk.libtomahawk.infosystem.InfoRequestData;
-import org.tomahawk.libtomahawk.infosystem.InfoSystem;
 import org.tomahawk.libtomahawk.infosystem.User;
 import org.tomahawk.libtomahawk.infosystem.hatchet.Search;
 import org.tomahawk.libtomahawk.infosystem.hatchet.SearchResult;
 import org.tomahawk.libtomahawk.resolver.PipeLine;
 import org.tomahawk.libtomahawk.resolver.Query;
+import org.tomahawk.libtomahawk.resolver.SearchSession;
 import org.tomahawk.tomahawk_android.R;
 import org.tomahawk.tomahawk_android.activities.TomahawkMainActivity;
 import org.tomahawk.tomahawk_android.utils.FragmentInfo;
 import org.tomahawk.tomahawk_android.utils.IdGenerator;
-import org.tomahawk.tomahawk_android.utils.ThreadManager;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -68,6 +67,26 @@ public class SearchPagerFragment extends PagerFragment {
 
     private boolean mIsFirstBroadcast;
 
+    private final SearchSession mSearchSession = new SearchSession(new SearchSession.Listener() {
+        @Override
+        public void onSearchStarted(String text, Query query, InfoRequestData infoRequestData) {
+            mTrackResultPlaylist =
+                    Playlist.fromEmptyList(IdGenerator.getSessionUniqueStringId(), "");
+            mAlbumIds.clear();
+            mArtistIds.clear();
+            mUserIds.clear();
+            mCurrentQueryString = text;
+            mCorrespondingRequestIds.clear();
+            if (infoRequestData != null) {
+                mCorrespondingRequestIds.add(infoRequestData.getRequestId());
+            }
+            mCorrespondingQueries.clear();
+            if (query != null) {
+                mCorrespondingQueries.add(query);
+            }
+        }
+    });
+
     /**
      * Handles incoming broadcasts.
      */
@@ -79,7 +98,7 @@ public class SearchPagerFragment extends PagerFragment {
                 boolean noConnectivity =
                         intent.getBooleanExtra(ConnectivityManager.EXTRA_NO_CONNECTIVITY, false);
                 if (!noConnectivity && !mIsFirstBroadcast) {
-                    resolveFullTextQuery(mCurrentQueryString);
+                    resolveFullTextQuery(mCurrentQueryString, true);
                 }
                 mIsFirstBroadcast = false;
             }
@@ -89,6 +108,7 @@ public class SearchPagerFragment extends PagerFragment {
     @SuppressWarnings("unused")
     public void onEventMainThread(PipeLine.ResultsEvent event) {
         if (mCorrespondingQueries.contains(event.mQuery)) {
+            mSearchSession.onResultsReported(event.mQuery);
             mTrackResultPlaylist = event.mQuery.getResultPlaylist();
             updatePager();
         }
@@ -134,7 +154,7 @@ public class SearchPagerFragment extends PagerFragment {
         // If we have restored a CurrentQueryString, start searching, so that we show the proper
         // results again
         if (mCurrentQueryString != null) {
-            resolveFullTextQuery(mCurrentQueryString);
+            resolveFullTextQuery(mCurrentQueryString, true);
             getActivity().setTitle(mCurrentQueryString);
         }
 
@@ -160,11 +180,7 @@ public class SearchPagerFragment extends PagerFragment {
     public void onPause() {
         super.onPause();
 
-        for (Query query : mCorrespondingQueries) {
-            if (ThreadManager.get().stop(query)) {
-                mCorrespondingQueries.remove(query);
-            }
-        }
+        mSearchSession.cancel();
     }
 
     @Override
@@ -235,30 +251,28 @@ public class SearchPagerFragment extends PagerFragment {
     }
 
     /**
-     * Invoke the resolving process with the given fullTextQuery {@link String}
+     * Invoke the resolving process with the given fullTextQuery {@link String} once no new input
+     * has arrived for a moment. The previous search is being cancelled.
      */
     public void resolveFullTextQuery(String fullTextQuery) {
+        resolveFullTextQuery(fullTextQuery, false);
+    }
+
+    /**
+     * Invoke the resolving process with the given fullTextQuery {@link String}. The previous
+     * search is being cancelled.
+     *
+     * @param immediate whether to start resolving right away instead of waiting for further input
+     */
+    public void resolveFullTextQuery(String fullTextQuery, boolean immediate) {
         ((TomahawkMainActivity) getActivity()).closeDrawer();
-        mTrackResultPlaylist = Playlist.fromEmptyList(IdGenerator.getSessionUniqueStringId(), "");
-        mAlbumIds.clear();
-        mArtistIds.clear();
-        mUserIds.clear();
-        mCurrentQueryString = fullTextQuery;
-        mCorrespondingRequestIds.clear();
-        String requestId = InfoSystem.get().resolve(fullTextQuery);
-        if (requestId != null) {
-            mCorrespondingRequestIds.add(requestId);
-        }
-        Query query = PipeLine.get().resolve(fullTextQuery, false);
-        if (query != null) {
-            mCorrespondingQueries.clear();
-            mCorrespondingQueries.add(query);
-        }
+        mSearchSession.search(fullTextQuery, immediate);
     }
 
     @Override
     protected void onInfoSystemResultsReported(InfoRequestData infoRequestData) {
         if (mCorrespondingRequestIds.contains(infoRequestData.getRequestId())) {
+            mSearchSession.onResultsReported(infoRequestData);
             List<Search> results = infoRequestData.getResultList(Search.class);
             if (results != null && results.size() > 0) {
                 Search search = results.get(0);
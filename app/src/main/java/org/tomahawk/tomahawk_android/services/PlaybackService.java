@@ -394,15 +394,22 @@ public class PlaybackService extends MediaBrowserServiceCompat {
             } else if (ACTION_DELETE_ENTRY_IN_QUEUE.equals(action)) {
                 PlaylistEntry entry =
                         PlaylistEntry.getByKey(extras.getString(TomahawkFragment.PLAYLISTENTRY));
-                mPlaybackManager.deleteFromQueue(entry);
+                if (entry != null) {
+                    mPlaybackManager.deleteFromQueue(entry);
+                }
             } else if (ACTION_ADD_QUERY_TO_QUEUE.equals(action)) {
                 Query query = Query.getByKey(extras.getString(TomahawkFragment.QUERY));
-                mPlaybackManager.addToQueue(query);
+                if (query != null) {
+                    mPlaybackManager.addToQueue(query);
+                }
             } else if (ACTION_ADD_QUERIES_TO_QUEUE.equals(action)) {
                 List<String> queryKeys = extras.getStringArrayList(TomahawkFragment.QUERYARRAY);
                 List<Query> queries = new ArrayList<>();
                 for (String queryKey : queryKeys) {
-                    queries.add(Query.getByKey(queryKey));
+                    Query query = Query.getByKey(queryKey);
+                    if (query != null) {
+                        queries.add(query);
+                    }
                 }
                 mPlaybackManager.addToQueue(queries);
             } else if (ACTION_SET_SHUFFLE_MODE.equals(action)) {
@@ -1212,15 +1219,19 @@ public class PlaybackService extends MediaBrowserServiceCompat {
 
     private void resolveProximalQueries() {
         Set<Query> qs = new HashSet<>();
+        Set<Query> proximalQueries = new HashSet<>();
         int start = Math.max(0, mPlaybackManager.getCurrentIndex() - 2);
         int end = Math.min(mPlaybackManager.getPlaybackListSize(),
                 mPlaybackManager.getCurrentIndex() + 10);
         for (int i = start; i < end; i++) {
             Query q = mPlaybackManager.getPlaybackListEntry(i).getQuery();
+            proximalQueries.add(q);
             if (!mCorrespondingQueries.contains(q)) {
                 qs.add(q);
             }
         }
+        // Make sure that the queries around the current track are resolved first
+        PipeLine.get().setPriorityQueries(proximalQueries);
         if (!qs.isEmpty()) {
             HashSet<Query> queries = PipeLine.get().resolve(qs);
             mCorrespondingQueries.addAll(queries);
@@ -278,6 +278,10 @@ public class MediaBrowserHelper {
             String cacheKey = parts[1];
             if (MEDIA_ID_COLLECTION_ALBUMS.equals(leaf)) {
                 final Album album = Album.getByKey(cacheKey);
+                if (album == null) {
+                    Log.e(TAG, "onPlayFromMediaId - Couldn't find album " + cacheKey);
+                    return;
+                }
                 CollectionManager.get().getUserCollection().getAlbumTracks(album).done(
                         new DoneCallback<Playlist>() {
                             @Override
@@ -304,6 +308,10 @@ public class MediaBrowserHelper {
                         });
             } else if (MEDIA_ID_COLLECTION_ARTISTS.equals(leaf)) {
                 final Artist artist = Artist.getByKey(cacheKey);
+                if (artist == null) {
+                    Log.e(TAG, "onPlayFromMediaId - Couldn't find artist " + cacheKey);
+                    return;
+                }
                 CollectionManager.get().getUserCollection().getArtistTracks(artist).done(
                         new DoneCallback<Playlist>() {
                             @Override
@@ -329,6 +337,10 @@ public class MediaBrowserHelper {
                         });
             } else if (MEDIA_ID_PLAYLISTS.equals(leaf) || MEDIA_ID_STATIONS.equals(leaf)) {
                 Playlist playlist = Playlist.getByKey(cacheKey);
+                if (playlist == null) {
+                    Log.e(TAG, "onPlayFromMediaId - Couldn't find playlist " + cacheKey);
+                    return;
+                }
                 if (!(playlist instanceof StationPlaylist) && !playlist.isFilled()) {
                     playlist = DatabaseHelper.get().getPlaylist(playlist.getId());
                 }
@@ -77,6 +77,8 @@ public class PlaybackManager extends Cacheable {
         super(PlaybackManager.class, id);
 
         mId = id;
+        pin(mPlaylist);
+        pin(mQueue);
     }
 
     public static PlaybackManager get(String id) {
@@ -119,12 +121,14 @@ public class PlaybackManager extends Cacheable {
         }
         mRepeatMode = NOT_REPEATING;
         mShuffleMode = NOT_SHUFFLED;
+        unpin(mPlaylist);
         if (playlist instanceof StationPlaylist) {
             mPlaylist = playlist;
         } else {
             mPlaylist = playlist.copy(
                     Playlist.get("playback_playlist" + IdGenerator.getSessionUniqueStringId()));
         }
+        pin(mPlaylist);
         if (currentEntry == null) {
             currentEntry = mPlaylist.getEntryAtPos(0);
         }
@@ -212,6 +216,15 @@ public class PlaybackManager extends Cacheable {
         }
         PlaylistEntry lastEntry = mCurrentEntry;
         mCurrentEntry = currentEntry;
+        // Make sure that the current entry and its Query don't get evicted from their caches
+        if (lastEntry != null) {
+            unpin(lastEntry);
+            unpin(lastEntry.getQuery());
+        }
+        if (currentEntry != null) {
+            pin(currentEntry);
+            pin(currentEntry.getQuery());
+        }
         // Delete the last entry from the queue
         boolean playlistChanged = mQueue.deleteEntry(lastEntry);
         if (currentEntry == null) {
@@ -17,26 +17,44 @@
  */
 package org.tomahawk.tomahawk_android.utils;
 
+import org.tomahawk.libtomahawk.resolver.PipeLine;
 import org.tomahawk.libtomahawk.resolver.Query;
 import org.tomahawk.tomahawk_android.mediaplayers.TomahawkMediaPlayer;
 
-import java.util.Collection;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ThreadManager {
 
+    private final static String TAG = ThreadManager.class.getSimpleName();
+
     /*
      * Gets the number of available cores
      * (not always the same as the maximum number of cores)
      */
     private static final int NUMBER_OF_CORES = Runtime.getRuntime().availableProcessors();
 
+    // I/O and bridge work mostly waits, so we can afford more threads than cores
+    private static final int IO_POOL_SIZE = Math.max(4, NUMBER_OF_CORES * 2);
+
+    // A queued runnable's priority is raised by one for every AGING_INTERVAL ms it has been
+    // waiting, so that low priority runnables can't starve
+    private static final long AGING_INTERVAL = 50;
+
     // Sets the amount of time an idle thread waits before terminating
     private static final int KEEP_ALIVE_TIME = 1;
 
@@ -49,17 +67,215 @@ public class ThreadManager {
 
     }
 
-    private final ThreadPoolExecutor mThreadPool;
+    /**
+     * Is being handed to every {@link TomahawkRunnable} that belongs to a {@link Query}, so that
+     * running {@link TomahawkRunnable}s can find out whether or not the {@link Query} has been
+     * stopped.
+     */
+    public static class CancellationToken {
+
+        private volatile boolean mCancelled;
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        private void cancel() {
+            mCancelled = true;
+        }
+    }
+
+    public static class Stats {
+
+        public int queueLength;
+
+        public long executed;
+
+        public long averageLatency;
+
+        public long averageRunTime;
+
+        @Override
+        public String toString() {
+            return "queueLength: " + queueLength + ", executed: " + executed
+                    + ", avgLatency: " + averageLatency + "ms, avgRunTime: " + averageRunTime
+                    + "ms";
+        }
+    }
+
+    private static class PriorityMetrics {
+
+        private final AtomicLong mQueueLength = new AtomicLong();
+
+        private final AtomicLong mExecuted = new AtomicLong();
+
+        private final AtomicLong mTotalLatency = new AtomicLong();
+
+        private final AtomicLong mTotalRunTime = new AtomicLong();
+    }
+
+    private static class Task {
+
+        private final TomahawkRunnable mRunnable;
+
+        private final Query mQuery;
+
+        private final long mEnqueueTime = SystemClock.elapsedRealtime();
+
+        private Task(TomahawkRunnable runnable, Query query) {
+            mRunnable = runnable;
+            mQuery = query;
+        }
+    }
+
+    /**
+     * The {@link TomahawkRunnable}s of a {@link Query} that haven't finished yet and the {@link
+     * CancellationToken} that has been handed to them.
+     */
+    private static class QueryTasks {
+
+        private final Set<TomahawkRunnable> mRunnables = new HashSet<>();
+
+        private final CancellationToken mToken = new CancellationToken();
+    }
+
+    /**
+     * A fixed set of worker threads, which always run the queued {@link TomahawkRunnable} with
+     * the highest priority. The priority of a queued {@link TomahawkRunnable} increases the longer
+     * it waits.
+     */
+    private class PriorityPool {
+
+        // One FIFO queue per priority
+        private final TreeMap<Integer, ArrayDeque<Task>> mQueues = new TreeMap<>();
+
+        private int mQueuedCount;
+
+        private int mActiveCount;
+
+        private PriorityPool(String name, int size) {
+            for (int i = 0; i < size; i++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        work();
+                    }
+                }, name + "-" + i);
+                thread.start();
+            }
+        }
+
+        private synchronized void execute(Task task) {
+            int priority = task.mRunnable.getPriority();
+            ArrayDeque<Task> queue = mQueues.get(priority);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                mQueues.put(priority, queue);
+            }
+            queue.add(task);
+            mQueuedCount++;
+            getMetrics(priority).mQueueLength.incrementAndGet();
+            notify();
+        }
+
+        private synchronized boolean remove(TomahawkRunnable r) {
+            ArrayDeque<Task> queue = mQueues.get(r.getPriority());
+            if (queue != null) {
+                Iterator<Task> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().mRunnable == r) {
+                        iterator.remove();
+                        mQueuedCount--;
+                        getMetrics(r.getPriority()).mQueueLength.decrementAndGet();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private synchronized boolean isActive() {
+            return mActiveCount > 0 || mQueuedCount > 0;
+        }
+
+        private synchronized Task take() throws InterruptedException {
+            while (mQueuedCount == 0) {
+                wait();
+            }
+            // Pick the head with the highest aged priority. Every queue is FIFO, so its head is
+            // always its oldest Task.
+            long now = SystemClock.elapsedRealtime();
+            ArrayDeque<Task> bestQueue = null;
+            long bestPriority = Long.MIN_VALUE;
+            for (Map.Entry<Integer, ArrayDeque<Task>> entry : mQueues.entrySet()) {
+                Task head = entry.getValue().peek();
+                if (head != null) {
+                    long agedPriority = entry.getKey() + (now - head.mEnqueueTime) / AGING_INTERVAL;
+                    if (agedPriority >= bestPriority) {
+                        bestPriority = agedPriority;
+                        bestQueue = entry.getValue();
+                    }
+                }
+            }
+            Task task = bestQueue.poll();
+            mQueuedCount--;
+            mActiveCount++;
+            return task;
+        }
+
+        private synchronized void onTaskDone() {
+            mActiveCount--;
+        }
+
+        private void work() {
+            while (true) {
+                Task task;
+                try {
+                    task = take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                TomahawkRunnable r = task.mRunnable;
+                PriorityMetrics metrics = getMetrics(r.getPriority());
+                long startTime = SystemClock.elapsedRealtime();
+                metrics.mQueueLength.decrementAndGet();
+                metrics.mTotalLatency.addAndGet(startTime - task.mEnqueueTime);
+                try {
+                    if (!r.isCancelled()) {
+                        r.run();
+                    }
+                } catch (Throwable e) {
+                    // Don't let a failing runnable (including Errors like OutOfMemoryError or
+                    // StackOverflowError) kill this worker and shrink the pool for good
+                    Log.e(TAG, "work: " + e.getClass() + ": " + e.getLocalizedMessage(), e);
+                } finally {
+                    metrics.mExecuted.incrementAndGet();
+                    metrics.mTotalRunTime.addAndGet(SystemClock.elapsedRealtime() - startTime);
+                    onTaskDone();
+                    if (task.mQuery != null) {
+                        onQueryRunnableDone(task.mQuery, r);
+                    }
+                }
+            }
+        }
+    }
+
+    // Scoring, indexing and other CPU bound work
+    private final PriorityPool mCpuPool;
+
+    // Database, network and JS bridge work
+    private final PriorityPool mIoPool;
 
     private final ConcurrentHashMap<TomahawkMediaPlayer, ThreadPoolExecutor> mPlaybackThreadPools
             = new ConcurrentHashMap<>();
 
-    private final Map<Query, Collection<TomahawkRunnable>> mQueryRunnableMap;
+    private final ConcurrentHashMap<Query, QueryTasks> mQueryTasks = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Integer, PriorityMetrics> mMetrics = new ConcurrentHashMap<>();
 
     private ThreadManager() {
-        mQueryRunnableMap = new ConcurrentHashMap<>();
-        mThreadPool = new ThreadPoolExecutor(NUMBER_OF_CORES, NUMBER_OF_CORES,
-                KEEP_ALIVE_TIME, KEEP_ALIVE_TIME_UNIT, new PriorityBlockingQueue<Runnable>());
+        mCpuPool = new PriorityPool("ThreadManager-cpu", NUMBER_OF_CORES);
+        mIoPool = new PriorityPool("ThreadManager-io", IO_POOL_SIZE);
     }
 
     public static ThreadManager get() {
@@ -67,31 +283,106 @@ public class ThreadManager {
     }
 
     public void execute(TomahawkRunnable r) {
-        mThreadPool.execute(r);
+        getPool(r).execute(new Task(r, null));
     }
 
+    /**
+     * Executes the given {@link TomahawkRunnable} on behalf of the given {@link Query}. The
+     * {@link TomahawkRunnable} is being cancelled if the {@link Query} is being stopped through
+     * {@link #stop(Query)}.
+     */
     public void execute(TomahawkRunnable r, Query query) {
-        Collection<TomahawkRunnable> runnables = mQueryRunnableMap.get(query);
-        if (runnables == null) {
-            runnables = new HashSet<>();
+        while (true) {
+            QueryTasks tasks = mQueryTasks.get(query);
+            if (tasks == null) {
+                QueryTasks newTasks = new QueryTasks();
+                tasks = mQueryTasks.putIfAbsent(query, newTasks);
+                if (tasks == null) {
+                    tasks = newTasks;
+                }
+            }
+            synchronized (tasks) {
+                // Make sure that the QueryTasks haven't been removed in the meantime
+                if (mQueryTasks.get(query) == tasks) {
+                    tasks.mRunnables.add(r);
+                    r.setCancellationToken(tasks.mToken);
+                    break;
+                }
+            }
         }
-        runnables.add(r);
-        mQueryRunnableMap.put(query, runnables);
-        mThreadPool.execute(r);
+        getPool(r).execute(new Task(r, query));
     }
 
+    /**
+     * Removes all queued runnables of the given {@link Query}, cancels the ones that are already
+     * running and cancels its pending ScriptJobs.
+     *
+     * @return whether or not anything has been stopped
+     */
     public boolean stop(Query query) {
-        boolean success = false;
-        Collection<TomahawkRunnable> runnables = mQueryRunnableMap.remove(query);
-        if (runnables != null) {
-            for (TomahawkRunnable r : runnables) {
-                mThreadPool.remove(r);
-                success = true;
+        boolean success = PipeLine.get().cancelScriptJobs(query) > 0;
+        QueryTasks tasks = mQueryTasks.remove(query);
+        if (tasks != null) {
+            synchronized (tasks) {
+                tasks.mToken.cancel();
+                for (TomahawkRunnable r : tasks.mRunnables) {
+                    getPool(r).remove(r);
+                    success = true;
+                }
+                tasks.mRunnables.clear();
             }
         }
         return success;
     }
 
+    private void onQueryRunnableDone(Query query, TomahawkRunnable r) {
+        QueryTasks tasks = mQueryTasks.get(query);
+        if (tasks != null) {
+            synchronized (tasks) {
+                tasks.mRunnables.remove(r);
+                if (tasks.mRunnables.isEmpty()) {
+                    mQueryTasks.remove(query, tasks);
+                }
+            }
+        }
+    }
+
+    private PriorityPool getPool(TomahawkRunnable r) {
+        return r.isCpuBound() ? mCpuPool : mIoPool;
+    }
+
+    private PriorityMetrics getMetrics(int priority) {
+        PriorityMetrics metrics = mMetrics.get(priority);
+        if (metrics == null) {
+            PriorityMetrics newMetrics = new PriorityMetrics();
+            metrics = mMetrics.putIfAbsent(priority, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the current queue length and the average latency and run time of all {@link
+     * TomahawkRunnable}s, mapped to their priority
+     */
+    public Map<Integer, Stats> getStats() {
+        Map<Integer, Stats> statsMap = new HashMap<>();
+        for (Map.Entry<Integer, PriorityMetrics> entry : mMetrics.entrySet()) {
+            PriorityMetrics metrics = entry.getValue();
+            Stats stats = new Stats();
+            stats.queueLength = (int) metrics.mQueueLength.get();
+            stats.executed = metrics.mExecuted.get();
+            if (stats.executed > 0) {
+                stats.averageLatency = metrics.mTotalLatency.get() / stats.executed;
+                stats.averageRunTime = metrics.mTotalRunTime.get() / stats.executed;
+            }
+            statsMap.put(entry.getKey(), stats);
+        }
+        return Collections.unmodifiableMap(statsMap);
+    }
+
     public void executePlayback(TomahawkMediaPlayer mp, Runnable r) {
         ThreadPoolExecutor pool = mPlaybackThreadPools.get(mp);
         if (pool == null) {
@@ -108,6 +399,6 @@ public class ThreadManager {
                 return true;
             }
         }
-        return mThreadPool.getActiveCount() > 0 || mThreadPool.getQueue().size() > 0;
+        return mCpuPool.isActive() || mIoPool.isActive();
     }
 }
@@ -17,9 +17,7 @@
  */
 package org.tomahawk.tomahawk_android.utils;
 
-import android.support.annotation.NonNull;
-
-public abstract class TomahawkRunnable implements Runnable, Comparable<TomahawkRunnable> {
+public abstract class TomahawkRunnable implements Runnable {
 
     public static final int PRIORITY_IS_NOTIFICATION = 500;
 
@@ -47,16 +45,46 @@ public abstract class TomahawkRunnable implements Runnable, Comparable<TomahawkR
 
     private final int mPriority;
 
+    private final boolean mCpuBound;
+
+    private volatile ThreadManager.CancellationToken mCancellationToken;
+
     public TomahawkRunnable(int priority) {
+        this(priority, false);
+    }
+
+    /**
+     * @param cpuBound whether or not this runnable only does CPU bound work (e.g. scoring) and
+     *                 should therefore be executed on the CPU pool. Runnables that access the
+     *                 database, the network or the JS bridge must not be CPU bound.
+     */
+    public TomahawkRunnable(int priority, boolean cpuBound) {
         mPriority = priority;
+        mCpuBound = cpuBound;
     }
 
     public int getPriority() {
         return mPriority;
     }
 
-    @Override
-    public int compareTo(@NonNull TomahawkRunnable other) {
-        return other.getPriority() - mPriority;
+    /**
+     * @return whether or not this runnable should be executed on the CPU pool instead of the I/O
+     * pool
+     */
+    public boolean isCpuBound() {
+        return mCpuBound;
+    }
+
+    void setCancellationToken(ThreadManager.CancellationToken cancellationToken) {
+        mCancellationToken = cancellationToken;
+    }
+
+    /**
+     * @return whether or not the {@link org.tomahawk.libtomahawk.resolver.Query} this runnable
+     * belongs to has been stopped. Long running runnables should check this regularly.
+     */
+    public boolean isCancelled() {
+        ThreadManager.CancellationToken token = mCancellationToken;
+        return token != null && token.isCancelled();
     }
 }
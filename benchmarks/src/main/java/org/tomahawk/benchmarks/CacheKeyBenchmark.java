@@ -0,0 +1,126 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tomahawk.libtomahawk.collection.CacheKey;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up a cached Query by its five fields (track, album, artist, result hint,
+ * onlyLocal) with the String cache key, that has been concatenated on every lookup before, to
+ * probing the cache with a {@link CacheKey}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class CacheKeyBenchmark {
+
+    // The default size of the Query cache
+    private static final int CACHED_QUERY_COUNT = 5000;
+
+    @Param({"true", "false"})
+    public boolean mHit;
+
+    private final Map<String, Object> mStringKeyedCache = new HashMap<>();
+
+    private final Map<CacheKey, Object> mCacheKeyedCache = new HashMap<>();
+
+    private String[][] mLookups;
+
+    private int mLookupIndex;
+
+    @Setup
+    public void setup() {
+        mLookups = new String[CACHED_QUERY_COUNT][];
+        for (int i = 0; i < CACHED_QUERY_COUNT; i++) {
+            String[] fields = new String[]{"Track Name " + i, "Album Name " + (i / 12),
+                    "Artist Name " + (i / 120), i % 3 == 0 ? "spotify:track:" + i : null};
+            Object value = new Object();
+            String cacheKey = concatCacheKey(fields[0], fields[1], fields[2], fields[3], false);
+            mStringKeyedCache.put(cacheKey, value);
+            mCacheKeyedCache.put(CacheKey.of(cacheKey), value);
+            if (!mHit) {
+                fields[0] += " (Remastered)";
+            }
+            // Copy the Strings, so that their hash codes aren't cached yet, like the ones coming
+            // from a resolver or the database
+            for (int j = 0; j < fields.length; j++) {
+                if (fields[j] != null) {
+                    fields[j] = new String(fields[j].toCharArray());
+                }
+            }
+            mLookups[i] = fields;
+        }
+    }
+
+    private String[] nextLookup() {
+        mLookupIndex = (mLookupIndex + 1) % mLookups.length;
+        return mLookups[mLookupIndex];
+    }
+
+    @Benchmark
+    public Object stringConcat() {
+        String[] f = nextLookup();
+        return mStringKeyedCache.get(concatCacheKey(f[0], f[1], f[2], f[3], false));
+    }
+
+    @Benchmark
+    public Object cacheKey() {
+        String[] f = nextLookup();
+        return mCacheKeyedCache.get(CacheKey.obtain(f[0], f[1], f[2], f[3], false));
+    }
+
+    /**
+     * The String cache key, as Cacheable.getCacheKey(Object...) built it for every lookup before
+     * CacheKey has been introduced.
+     */
+    private static String concatCacheKey(Object... objects) {
+        String result = "";
+        for (int i = 0; i < objects.length; i++) {
+            Object o = objects[i];
+            if (o != null) {
+                if (i > 0) {
+                    result += "\t\t";
+                }
+                if (o instanceof String) {
+                    result += ((String) o);
+                } else if (o instanceof Boolean) {
+                    result += ((Boolean) o) ? "1" : "0";
+                }
+            }
+        }
+        return result;
+    }
+}
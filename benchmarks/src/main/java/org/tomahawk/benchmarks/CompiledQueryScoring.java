@@ -0,0 +1,95 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.tomahawk.libtomahawk.resolver.ResultScoring;
+
+/**
+ * Scores results exactly like org.tomahawk.libtomahawk.resolver.QueryMatcher, but on plain
+ * Strings, because Query and Result can't be created outside of Android. The result's names
+ * have to be cleaned up with {@link ResultScoring#cleanUpString(String, boolean)} already, like
+ * Result caches them.
+ */
+public class CompiledQueryScoring {
+
+    private final boolean mIsFullTextQuery;
+
+    private final ResultScoring.Pattern mFullTextPattern;
+
+    private final ResultScoring.Pattern mArtistPattern;
+
+    private final ResultScoring.Pattern mAlbumPattern;
+
+    private final ResultScoring.Pattern mTrackPattern;
+
+    public CompiledQueryScoring(String fullTextQuery) {
+        mIsFullTextQuery = true;
+        mFullTextPattern = new ResultScoring.Pattern(
+                ResultScoring.cleanUpString(fullTextQuery, true));
+        mArtistPattern = null;
+        mAlbumPattern = null;
+        mTrackPattern = null;
+    }
+
+    public CompiledQueryScoring(String trackName, String albumName, String artistName) {
+        mIsFullTextQuery = false;
+        mFullTextPattern = null;
+        mArtistPattern = new ResultScoring.Pattern(ResultScoring.cleanUpString(artistName, false));
+        String cleanAlbumName = ResultScoring.cleanUpString(albumName, false);
+        mAlbumPattern = cleanAlbumName.isEmpty() ? null : new ResultScoring.Pattern(cleanAlbumName);
+        mTrackPattern = new ResultScoring.Pattern(ResultScoring.cleanUpString(trackName, false));
+    }
+
+    public float score(String track, String album, String artist) {
+        ResultScoring.Scratch scratch = ResultScoring.getScratch();
+        if (mIsFullTextQuery) {
+            float maxResult = 0f;
+            scratch.setText(track, album, artist);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(track, artist, album);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(artist, track, album);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(artist, album, track);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(album, artist, track);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            scratch.setText(album, track, artist);
+            maxResult = Math.max(maxResult,
+                    ResultScoring.calculateScore(scratch, mFullTextPattern));
+            return maxResult;
+        } else {
+            scratch.setText(artist);
+            float artistScore = ResultScoring.calculateScore(scratch, mArtistPattern);
+            scratch.setText(track);
+            float trackScore = ResultScoring.calculateScore(scratch, mTrackPattern);
+            if (mAlbumPattern == null) {
+                return (artistScore + trackScore) / 2;
+            } else {
+                scratch.setText(album);
+                float albumScore = ResultScoring.calculateScore(scratch, mAlbumPattern);
+                return (artistScore * 3 + albumScore + trackScore * 4) / 8;
+            }
+        }
+    }
+}
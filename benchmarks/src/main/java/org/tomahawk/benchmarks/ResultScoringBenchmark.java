@@ -0,0 +1,145 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tomahawk.benchmarks.legacy.LegacyQueryScoring;
+import org.tomahawk.libtomahawk.resolver.ResultScoring;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many results per second can be scored against a query, like PipeLine.reportResults
+ * does for every result list that a resolver reports. Compares the legacy scoring, which cleans
+ * up and compiles everything for every result, to the precompiled matchers. The precompiled
+ * matchers are being measured with results that are scored for the first time (so their names
+ * still have to be cleaned up) and with results whose cleaned up names are already cached.
+ *
+ * The score is in results per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ResultScoringBenchmark {
+
+    // The number of results in one reported result list
+    private static final int RESULT_COUNT = 500;
+
+    @Param({"true", "false"})
+    public boolean mFullText;
+
+    private String[][] mResults;
+
+    private String[][] mCleanResults;
+
+    private int mQueryIndex;
+
+    @Setup
+    public void setup() {
+        mResults = ScoringSamples.createResults(42, RESULT_COUNT);
+        mCleanResults = new String[RESULT_COUNT][];
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            mCleanResults[i] = new String[3];
+            for (int j = 0; j < 3; j++) {
+                mCleanResults[i][j] = ResultScoring.cleanUpString(mResults[i][j], false);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULT_COUNT)
+    public float legacy() {
+        float sum = 0f;
+        if (mFullText) {
+            String query = nextFullTextQuery();
+            for (String[] r : mResults) {
+                sum += LegacyQueryScoring.howSimilar(query, null, null, null,
+                        r[ScoringSamples.TRACK], r[ScoringSamples.ALBUM],
+                        r[ScoringSamples.ARTIST]);
+            }
+        } else {
+            String[] query = nextTrackQuery();
+            for (String[] r : mResults) {
+                sum += LegacyQueryScoring.howSimilar(null, query[ScoringSamples.TRACK],
+                        query[ScoringSamples.ALBUM], query[ScoringSamples.ARTIST],
+                        r[ScoringSamples.TRACK], r[ScoringSamples.ALBUM],
+                        r[ScoringSamples.ARTIST]);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULT_COUNT)
+    public float compiled() {
+        CompiledQueryScoring scoring = nextCompiledQuery();
+        float sum = 0f;
+        for (String[] r : mResults) {
+            sum += scoring.score(ResultScoring.cleanUpString(r[ScoringSamples.TRACK], false),
+                    ResultScoring.cleanUpString(r[ScoringSamples.ALBUM], false),
+                    ResultScoring.cleanUpString(r[ScoringSamples.ARTIST], false));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESULT_COUNT)
+    public float compiledCachedNames() {
+        CompiledQueryScoring scoring = nextCompiledQuery();
+        float sum = 0f;
+        for (String[] r : mCleanResults) {
+            sum += scoring.score(r[ScoringSamples.TRACK], r[ScoringSamples.ALBUM],
+                    r[ScoringSamples.ARTIST]);
+        }
+        return sum;
+    }
+
+    private String nextFullTextQuery() {
+        mQueryIndex = (mQueryIndex + 1) % ScoringSamples.FULLTEXT_QUERIES.length;
+        return ScoringSamples.FULLTEXT_QUERIES[mQueryIndex];
+    }
+
+    private String[] nextTrackQuery() {
+        mQueryIndex = (mQueryIndex + 1) % ScoringSamples.TRACK_QUERIES.length;
+        return ScoringSamples.TRACK_QUERIES[mQueryIndex];
+    }
+
+    private CompiledQueryScoring nextCompiledQuery() {
+        if (mFullText) {
+            return new CompiledQueryScoring(nextFullTextQuery());
+        } else {
+            String[] query = nextTrackQuery();
+            return new CompiledQueryScoring(query[ScoringSamples.TRACK],
+                    query[ScoringSamples.ALBUM], query[ScoringSamples.ARTIST]);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic track, album and artist names of resolver results and queries, which are being
+ * used by the scoring benchmark and the scoring equivalence check.
+ */
+public class ScoringSamples {
+
+    public static final int TRACK = 0;
+
+    public static final int ALBUM = 1;
+
+    public static final int ARTIST = 2;
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz  ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+            + "0123456789 -()[]/\\\téèüößçñ,.'&";
+
+    private static final String[][] REAL_RESULTS = new String[][]{
+            {"Harder, Better, Faster, Stronger", "Discovery", "Daft Punk"},
+            {"Harder Better Faster Stronger (Live)", "Alive 2007", "Daft Punk"},
+            {"Harder Better Faster Stronger - Radio Edit", "", "Daft  Punk"},
+            {"Let It Be", "Let It Be", "The Beatles"},
+            {"Let It Be (Remastered 2009)", "Let It Be... Naked", "Beatles"},
+            {"Let it be [Live at the Apple Rooftop]", "Anthology 3", "The Beatles"},
+            {"Bohemian Rhapsody", "A Night at the Opera", "Queen"},
+            {"Für Elise", "Klavierstücke", "Ludwig van Beethoven"},
+            {"Ça plane pour moi", "Ça plane pour moi", "Plastic Bertrand"},
+            {"Strong", "", ""},
+    };
+
+    /**
+     * The full text queries. Some of them are longer than the 32 chars that fit into one Bitap
+     * pattern.
+     */
+    public static final String[] FULLTEXT_QUERIES = new String[]{
+            "daft punk harder better faster stronger",
+            "The Beatles  Let it be",
+            "harder better faster stronger discovery daft punk live",
+            "queen",
+            "xyz",
+            "",
+    };
+
+    /**
+     * The track, album and artist names of the basic track queries.
+     */
+    public static final String[][] TRACK_QUERIES = new String[][]{
+            {"Harder Better Faster Stronger", "Discovery", "Daft Punk"},
+            {"Let It Be", "", "The Beatles"},
+            {"Bohemian Rhapsody - 2011 Remaster", "A Night At The Opera", "Queen"},
+            {"Fur Elise", "", "Beethoven"},
+            {"", "", ""},
+    };
+
+    /**
+     * @return the given number of results. Every other result is a variation of a real track, the
+     * others are random.
+     */
+    public static String[][] createResults(long seed, int count) {
+        Random random = new Random(seed);
+        String[][] results = new String[count][];
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                results[i] = REAL_RESULTS[random.nextInt(REAL_RESULTS.length)].clone();
+                if (random.nextInt(4) == 0) {
+                    results[i][TRACK] += " " + randomString(random, 1 + random.nextInt(12));
+                }
+            } else {
+                results[i] = new String[]{randomString(random, 1 + random.nextInt(60)),
+                        randomString(random, random.nextInt(30)),
+                        randomString(random, 1 + random.nextInt(25))};
+            }
+        }
+        return results;
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,70 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks.legacy;
+
+/**
+ * Scores results the way Query.howSimilar(Result) did before results were being scored with
+ * precompiled matchers: every String is being cleaned up and every query is being compiled again
+ * for every single result.
+ */
+public class LegacyQueryScoring {
+
+    public static float howSimilar(String fullTextQuery, String queryTrackName,
+            String queryAlbumName, String queryArtistName, String trackName, String albumName,
+            String artistName) {
+        String resultArtistName = ResultScoring.cleanUpString(artistName, false);
+        String resultAlbumName = ResultScoring.cleanUpString(albumName, false);
+        String resultTrackName = ResultScoring.cleanUpString(trackName, false);
+        if (fullTextQuery != null) {
+            String cleanFullTextQuery = ResultScoring.cleanUpString(fullTextQuery, true);
+            float maxResult = 0f;
+            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
+                    resultTrackName + " " + resultAlbumName + " " + resultArtistName,
+                    cleanFullTextQuery));
+            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
+                    resultTrackName + " " + resultArtistName + " " + resultAlbumName,
+                    cleanFullTextQuery));
+            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
+                    resultArtistName + " " + resultTrackName + " " + resultAlbumName,
+                    cleanFullTextQuery));
+            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
+                    resultArtistName + " " + resultAlbumName + " " + resultTrackName,
+                    cleanFullTextQuery));
+            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
+                    resultAlbumName + " " + resultArtistName + " " + resultTrackName,
+                    cleanFullTextQuery));
+            maxResult = Math.max(maxResult, ResultScoring.calculateScore(
+                    resultAlbumName + " " + resultTrackName + " " + resultArtistName,
+                    cleanFullTextQuery));
+            return maxResult;
+        } else {
+            String cleanArtistName = ResultScoring.cleanUpString(queryArtistName, false);
+            float artistScore = ResultScoring.calculateScore(resultArtistName, cleanArtistName);
+            String cleanTrackName = ResultScoring.cleanUpString(queryTrackName, false);
+            float trackScore = ResultScoring.calculateScore(resultTrackName, cleanTrackName);
+            String cleanAlbumName = ResultScoring.cleanUpString(queryAlbumName, false);
+            float albumScore;
+            if (cleanAlbumName.isEmpty()) {
+                return (artistScore + trackScore) / 2;
+            } else {
+                albumScore = ResultScoring.calculateScore(resultAlbumName, cleanAlbumName);
+                return (artistScore * 3 + albumScore + trackScore * 4) / 8;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/* == This file is part of Tomahawk Player - <http://tomahawk-player.org> ===
+ *
+ *   Copyright 2016, Enno Gottschalk <mrmaffen@googlemail.com>
+ *
+ *   Tomahawk is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Tomahawk is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Tomahawk. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.tomahawk.benchmarks;
+
+import org.junit.Test;
+import org.tomahawk.benchmarks.legacy.LegacyQueryScoring;
+import org.tomahawk.libtomahawk.resolver.ResultScoring;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Makes sure that the precompiled matchers score every result exactly like the legacy scoring
+ * did.
+ */
+public class ResultScoringEquivalenceTest {
+
+    private static final int RESULT_COUNT = 5000;
+
+    private final String[][] mResults = ScoringSamples.createResults(1, RESULT_COUNT);
+
+    @Test
+    public void cleanUpStringIsUnchanged() {
+        for (String[] r : mResults) {
+            for (String s : r) {
+                assertEquals(
+                        org.tomahawk.benchmarks.legacy.ResultScoring.cleanUpString(s, false),
+                        ResultScoring.cleanUpString(s, false));
+                assertEquals(
+                        org.tomahawk.benchmarks.legacy.ResultScoring.cleanUpString(s, true),
+                        ResultScoring.cleanUpString(s, true));
+            }
+        }
+    }
+
+    @Test
+    public void calculateScoreIsUnchanged() {
+        for (String query : ScoringSamples.FULLTEXT_QUERIES) {
+            for (String[] r : mResults) {
+                String result = r[ScoringSamples.TRACK];
+                assertEquals(query + " | " + result,
+                        org.tomahawk.benchmarks.legacy.ResultScoring.calculateScore(result, query),
+                        ResultScoring.calculateScore(result, query), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void fullTextScoresAreUnchanged() {
+        for (String query : ScoringSamples.FULLTEXT_QUERIES) {
+            CompiledQueryScoring scoring = new CompiledQueryScoring(query);
+            for (String[] r : mResults) {
+                float expected = LegacyQueryScoring.howSimilar(query, null, null, null,
+                        r[ScoringSamples.TRACK], r[ScoringSamples.ALBUM],
+                        r[ScoringSamples.ARTIST]);
+                assertEquals(query + " | " + r[0] + " | " + r[1] + " | " + r[2], expected,
+                        score(scoring, r), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void trackScoresAreUnchanged() {
+        for (String[] query : ScoringSamples.TRACK_QUERIES) {
+            CompiledQueryScoring scoring = new CompiledQueryScoring(query[ScoringSamples.TRACK],
+                    query[ScoringSamples.ALBUM], query[ScoringSamples.ARTIST]);
+            for (String[] r : mResults) {
+                float expected = LegacyQueryScoring.howSimilar(null, query[ScoringSamples.TRACK],
+                        query[ScoringSamples.ALBUM], query[ScoringSamples.ARTIST],
+                        r[ScoringSamples.TRACK], r[ScoringSamples.ALBUM],
+                        r[ScoringSamples.ARTIST]);
+                assertEquals(query[0] + " | " + r[0] + " | " + r[1] + " | " + r[2], expected,
+                        score(scoring, r), 0f);
+            }
+        }
+    }
+
+    private static float score(CompiledQueryScoring scoring, String[] r) {
+        return scoring.score(ResultScoring.cleanUpString(r[ScoringSamples.TRACK], false),
+                ResultScoring.cleanUpString(r[ScoringSamples.ALBUM], false),
+                ResultScoring.cleanUpString(r[ScoringSamples.ARTIST], false));
+    }
+}